@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.swing.event.TreeModelEvent;
@@ -31,6 +32,7 @@ public class SortedTreeModelWrapper implements TreeModel, TreeModelListener {
   private final MindMap model;
 
   private final Map<Object,List<Object>> sortedCache = new HashMap<Object,List<Object>>();
+  private final Map<Object,Map<Object,Integer>> positionCache = new HashMap<Object,Map<Object,Integer>>();
   private final Comparator<Object> comparator;
 
   public SortedTreeModelWrapper(final MindMap model, final Comparator<Object> comparator){
@@ -62,12 +64,22 @@ public class SortedTreeModelWrapper implements TreeModel, TreeModelListener {
   @Override
   public void valueForPathChanged(final TreePath path, final Object newValue) {
     this.model.valueForPathChanged(path, newValue);
-    this.sortedCache.clear();
+    this.clear();
   }
 
   @Override
   public int getIndexOfChild(final Object parent, final Object child) {
-    return getChildrenFromCache(parent).indexOf(child);
+    Map<Object,Integer> positions = this.positionCache.get(parent);
+    if (positions == null) {
+      final List<Object> sorted = getChildrenFromCache(parent);
+      positions = new IdentityHashMap<Object,Integer>(sorted.size());
+      for (int i = 0; i < sorted.size(); i++) {
+        positions.put(sorted.get(i), i);
+      }
+      this.positionCache.put(parent, positions);
+    }
+    final Integer result = positions.get(child);
+    return result == null ? -1 : result;
   }
 
   @Override
@@ -82,6 +94,7 @@ public class SortedTreeModelWrapper implements TreeModel, TreeModelListener {
 
   private void clear(){
     this.sortedCache.clear();
+    this.positionCache.clear();
   }
 
   private List<Object> getChildrenFromCache(final Object parent){
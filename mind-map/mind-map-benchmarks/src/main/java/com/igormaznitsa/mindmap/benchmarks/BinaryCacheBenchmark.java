@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.MindMapBinaryCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare parsing of mind map text with restoring of the same map from binary
+ * cache format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryCacheBenchmark {
+
+  @Param({"20000", "100000"})
+  public int topics;
+
+  private String text;
+  private byte[] binary;
+
+  @Setup
+  public void setup() throws IOException {
+    this.text = SyntheticMaps.makeBalancedMap(this.topics, 8);
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    MindMapBinaryCache.write(new MindMap(null, new StringReader(this.text)), buffer, null);
+    this.binary = buffer.toByteArray();
+  }
+
+  @Benchmark
+  public MindMap parseText() throws IOException {
+    return new MindMap(null, new StringReader(this.text));
+  }
+
+  @Benchmark
+  public MindMap readBinary() throws IOException {
+    return MindMapBinaryCache.read(null, new ByteArrayInputStream(this.binary), null);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.plugins.api.AbstractExporter;
+import com.igormaznitsa.mindmap.plugins.exporters.ASCIIDocExporter;
+import com.igormaznitsa.mindmap.plugins.exporters.FreeMindExporter;
+import com.igormaznitsa.mindmap.plugins.exporters.MDExporter;
+import com.igormaznitsa.mindmap.plugins.exporters.MindmupExporter;
+import com.igormaznitsa.mindmap.plugins.exporters.ORGMODEExporter;
+import com.igormaznitsa.mindmap.plugins.exporters.PNGImageExporter;
+import com.igormaznitsa.mindmap.plugins.exporters.SVGImageExporter;
+import com.igormaznitsa.mindmap.plugins.exporters.TextExporter;
+import com.igormaznitsa.mindmap.swing.panel.MindMapPanel;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.swing.JComponent;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Export of maps of different shapes by every standard exporter, result is
+ * written into null stream. Works in headless mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class ExportBenchmark {
+
+  /**
+   * Standard exporters.
+   */
+  public enum Format {
+    ASCIIDOC,
+    FREEMIND,
+    MARKDOWN,
+    MINDMUP,
+    ORGMODE,
+    PNG,
+    SVG,
+    TEXT;
+
+    @Nonnull
+    AbstractExporter makeExporter() {
+      switch (this) {
+        case ASCIIDOC:
+          return new ASCIIDocExporter();
+        case FREEMIND:
+          return new FreeMindExporter();
+        case MARKDOWN:
+          return new MDExporter();
+        case MINDMUP:
+          return new MindmupExporter();
+        case ORGMODE:
+          return new ORGMODEExporter();
+        case PNG:
+          return new PNGImageExporter();
+        case SVG:
+          return new SVGImageExporter();
+        case TEXT:
+          return new TextExporter();
+        default:
+          throw new Error("Unexpected format : " + this); //NOI18N
+      }
+    }
+  }
+
+  @Param({"ASCIIDOC", "FREEMIND", "MARKDOWN", "MINDMUP", "ORGMODE", "PNG", "SVG", "TEXT"})
+  public Format format;
+
+  @Param({"WIDE", "DEEP", "NOTES", "IMAGES", "JUMPS"})
+  public SyntheticMaps.Shape shape;
+
+  @Param({"1000"})
+  public int topics;
+
+  private MindMapPanel panel;
+  private AbstractExporter exporter;
+  private JComponent options;
+
+  @Setup
+  public void setup() throws IOException {
+    this.panel = HeadlessPanelController.makePanel(new MindMap(null, new StringReader(SyntheticMaps.makeShapedMap(this.shape, this.topics))));
+    this.exporter = this.format.makeExporter();
+    this.options = this.exporter.makeOptions();
+  }
+
+  @Benchmark
+  public MindMapPanel export() throws IOException {
+    this.exporter.doExport(this.panel, this.options, NullOutputStream.NULL_OUTPUT_STREAM);
+    return this.panel;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.Extra;
+import com.igormaznitsa.mindmap.model.ExtraTopic;
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.Topic;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare search of topics with jumps through cached extra type index against
+ * full tree walk which was used before the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtraTypeSearchBenchmark {
+
+  @Param({"50000"})
+  public int topics;
+
+  @Param({"100"})
+  public int jumpEvery;
+
+  private MindMap map;
+
+  @Setup
+  public void setup() throws IOException {
+    this.map = new MindMap(null, new StringReader(SyntheticMaps.makeBalancedMap(this.topics, 8)));
+    final List<Topic> all = new ArrayList<Topic>();
+    for (final Topic t : this.map) {
+      all.add(t);
+    }
+    for (int i = 0; i < all.size(); i += this.jumpEvery) {
+      all.get(i).setExtra(ExtraTopic.makeLinkTo(this.map, all.get(all.size() - 1 - i)));
+    }
+  }
+
+  @Benchmark
+  public List<Topic> indexed() {
+    return this.map.findAllTopicsForExtraType(Extra.ExtraType.TOPIC);
+  }
+
+  @Benchmark
+  public List<Topic> treeWalk() {
+    final List<Topic> result = new ArrayList<Topic>();
+    this.map.lock();
+    try {
+      walk(this.map.getRoot(), Extra.ExtraType.TOPIC, result);
+    }
+    finally {
+      this.map.unlock();
+    }
+    return result;
+  }
+
+  private static void walk(final Topic topic, final Extra.ExtraType type, final List<Topic> result) {
+    if (topic.getExtras().containsKey(type)) {
+      result.add(topic);
+    }
+    for (final Topic c : topic.getChildren()) {
+      walk(c, type, result);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.Topic;
+import com.igormaznitsa.mindmap.swing.panel.DialogProvider;
+import com.igormaznitsa.mindmap.swing.panel.MindMapPanel;
+import com.igormaznitsa.mindmap.swing.panel.MindMapPanelConfig;
+import com.igormaznitsa.mindmap.swing.panel.MindMapPanelController;
+import com.igormaznitsa.mindmap.swing.panel.ui.AbstractElement;
+import com.igormaznitsa.mindmap.swing.panel.ui.ElementPart;
+
+import java.awt.Component;
+import java.awt.Point;
+import java.io.File;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.swing.JComponent;
+import javax.swing.JPopupMenu;
+import javax.swing.filechooser.FileFilter;
+
+/**
+ * Controller for panels created by benchmarks in headless mode, all user
+ * interactions are disabled and any dialog breaks benchmark.
+ */
+public final class HeadlessPanelController implements MindMapPanelController, DialogProvider {
+
+  private final MindMapPanelConfig config = new MindMapPanelConfig();
+
+  /**
+   * Make panel for map, it is not shown and can be used in headless mode.
+   *
+   * @param map model for the panel
+   * @return created panel
+   */
+  @Nonnull
+  public static MindMapPanel makePanel(@Nonnull final MindMap map) {
+    final MindMapPanel result = new MindMapPanel(new HeadlessPanelController());
+    result.setModel(map);
+    return result;
+  }
+
+  @Override
+  public boolean isUnfoldCollapsedTopicDropTarget(@Nonnull final MindMapPanel source) {
+    return false;
+  }
+
+  @Override
+  public boolean isCopyColorInfoFromParentToNewChildAllowed(@Nonnull final MindMapPanel source) {
+    return false;
+  }
+
+  @Override
+  public boolean isTrimTopicTextBeforeSet(@Nonnull final MindMapPanel source) {
+    return false;
+  }
+
+  @Override
+  public boolean isSelectionAllowed(@Nonnull final MindMapPanel source) {
+    return false;
+  }
+
+  @Override
+  public boolean isElementDragAllowed(@Nonnull final MindMapPanel source) {
+    return false;
+  }
+
+  @Override
+  public boolean isMouseMoveProcessingAllowed(@Nonnull final MindMapPanel source) {
+    return false;
+  }
+
+  @Override
+  public boolean isMouseWheelProcessingAllowed(@Nonnull final MindMapPanel source) {
+    return false;
+  }
+
+  @Override
+  public boolean isMouseClickProcessingAllowed(@Nonnull final MindMapPanel source) {
+    return false;
+  }
+
+  @Override
+  @Nonnull
+  public MindMapPanelConfig provideConfigForMindMapPanel(@Nonnull final MindMapPanel source) {
+    return this.config;
+  }
+
+  @Override
+  @Nullable
+  public JPopupMenu makePopUpForMindMapPanel(@Nonnull final MindMapPanel source, @Nonnull final Point point, @Nullable final AbstractElement elementUnderMouse, @Nullable final ElementPart elementPartUnderMouse) {
+    return null;
+  }
+
+  @Override
+  @Nonnull
+  public DialogProvider getDialogProvider(@Nonnull final MindMapPanel source) {
+    return this;
+  }
+
+  @Override
+  public boolean processDropTopicToAnotherTopic(@Nonnull final MindMapPanel source, @Nonnull final Point dropPoint, @Nonnull final Topic draggedTopic, @Nullable final Topic destinationTopic) {
+    return false;
+  }
+
+  @Nonnull
+  private static IllegalStateException dialogRequested(@Nonnull final String text) {
+    return new IllegalStateException("Dialog is requested during benchmark : " + text); //NOI18N
+  }
+
+  @Override
+  public void msgError(@Nullable final Component parentComponent, @Nonnull final String text) {
+    throw dialogRequested(text);
+  }
+
+  @Override
+  public void msgInfo(@Nullable final Component parentComponent, @Nonnull final String text) {
+    throw dialogRequested(text);
+  }
+
+  @Override
+  public void msgWarn(@Nullable final Component parentComponent, @Nonnull final String text) {
+    throw dialogRequested(text);
+  }
+
+  @Override
+  public boolean msgConfirmOkCancel(@Nullable final Component parentComponent, @Nonnull final String title, @Nonnull final String question) {
+    throw dialogRequested(title);
+  }
+
+  @Override
+  public boolean msgOkCancel(@Nullable final Component parentComponent, @Nonnull final String title, @Nonnull final JComponent component) {
+    throw dialogRequested(title);
+  }
+
+  @Override
+  public boolean msgConfirmYesNo(@Nullable final Component parentComponent, @Nonnull final String title, @Nonnull final String question) {
+    throw dialogRequested(title);
+  }
+
+  @Override
+  @Nullable
+  public Boolean msgConfirmYesNoCancel(@Nullable final Component parentComponent, @Nonnull final String title, @Nonnull final String question) {
+    throw dialogRequested(title);
+  }
+
+  @Override
+  @Nullable
+  public File msgSaveFileDialog(@Nullable final Component parentComponent, @Nonnull final String id, @Nonnull final String title, @Nullable final File defaultFolder, final boolean filesOnly, @Nonnull final FileFilter fileFilter, @Nonnull final String approveButtonText) {
+    throw dialogRequested(title);
+  }
+
+  @Override
+  @Nullable
+  public File msgOpenFileDialog(@Nullable final Component parentComponent, @Nonnull final String id, @Nonnull final String title, @Nullable final File defaultFolder, final boolean filesOnly, @Nonnull final FileFilter fileFilter, @Nonnull final String approveButtonText) {
+    throw dialogRequested(title);
+  }
+}
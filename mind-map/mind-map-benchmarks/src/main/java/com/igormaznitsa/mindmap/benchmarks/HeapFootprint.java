@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.MindMap;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Measure retained heap size of parsed mind maps with JOL and compare it with
+ * {@link MindMap#estimateRetainedBytes()}. Cost of every element is calculated
+ * as difference between maps which have the same number of topics but differ
+ * only in the element. Start with
+ * {@code java -cp benchmarks.jar com.igormaznitsa.mindmap.benchmarks.HeapFootprint [topics...]}
+ * and give enough heap for the biggest map.
+ */
+public final class HeapFootprint {
+
+  private static final int BRANCHING = 8;
+
+  private HeapFootprint() {
+  }
+
+  public static void main(@Nonnull final String... args) throws IOException {
+    final int[] sizes;
+    if (args.length == 0) {
+      sizes = new int[]{1000, 10000, 100000, 1000000};
+    } else {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.out.println("topics;variant;retained;estimated;error%;bytes/topic;bytes/element"); //NOI18N
+    for (final int topics : sizes) {
+      final long plain = report(topics, "plain", 0, false, false, 0L); //NOI18N
+      report(topics, "+1 attribute", 1, false, false, plain); //NOI18N
+      report(topics, "+4 attributes", 4, false, false, plain); //NOI18N
+      report(topics, "+note", 0, true, false, plain); //NOI18N
+      report(topics, "+link", 0, false, true, plain); //NOI18N
+    }
+  }
+
+  private static long report(final int topics, @Nonnull final String variant, final int attributes, final boolean note, final boolean link, final long base) throws IOException {
+    final MindMap map = new MindMap(null, new StringReader(SyntheticMaps.makeUniformMap(topics, BRANCHING, attributes, note, link)));
+    final long retained = GraphLayout.parseInstance(map).totalSize();
+    final long estimated = map.estimateRetainedBytes();
+
+    final int elements = Math.max(1, attributes) + (note ? 1 : 0) + (link ? 1 : 0);
+    final String perElement = base == 0L ? "-" : String.format(Locale.ROOT, "%.1f", (double) (retained - base) / topics / elements); //NOI18N
+
+    System.out.println(String.format(Locale.ROOT, "%d;%s;%d;%d;%.1f;%.1f;%s", //NOI18N
+        topics,
+        variant,
+        retained,
+        estimated,
+        (estimated - retained) * 100.0d / retained,
+        (double) retained / topics,
+        perElement));
+    return retained;
+  }
+}
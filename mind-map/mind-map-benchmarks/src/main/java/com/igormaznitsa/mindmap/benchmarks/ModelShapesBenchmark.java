@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.Topic;
+import com.igormaznitsa.mindmap.model.parser.MindMapLexer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lexing, parsing and writing of maps of different shapes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelShapesBenchmark {
+
+  @Param({"WIDE", "DEEP", "NOTES", "IMAGES", "JUMPS"})
+  public SyntheticMaps.Shape shape;
+
+  @Param({"1000", "10000"})
+  public int topics;
+
+  private String text;
+  private MindMap map;
+  private final MindMapLexer lexer = new MindMapLexer();
+
+  @Setup
+  public void setup() throws IOException {
+    this.text = SyntheticMaps.makeShapedMap(this.shape, this.topics);
+    this.map = new MindMap(null, new StringReader(this.text));
+  }
+
+  @Benchmark
+  public void lexer(final Blackhole blackhole) {
+    this.lexer.start(this.text, 0, this.text.length(), MindMapLexer.TokenType.HEAD_LINE);
+    while (true) {
+      this.lexer.advance();
+      final MindMapLexer.TokenType type = this.lexer.getTokenType();
+      if (type == null) {
+        break;
+      }
+      blackhole.consume(type);
+      blackhole.consume(this.lexer.getTokenEndOffset());
+    }
+  }
+
+  @Benchmark
+  public Topic parseTopics() throws IOException {
+    this.lexer.start(this.text, 0, this.text.length(), MindMapLexer.TokenType.HEAD_LINE);
+    do {
+      this.lexer.advance();
+    }
+    while (this.lexer.getTokenType() != MindMapLexer.TokenType.HEAD_DELIMITER);
+    return Topic.parse(new MindMap(null, false), this.lexer);
+  }
+
+  @Benchmark
+  public MindMap write() throws IOException {
+    this.map.write(NullOutputStream.NULL_OUTPUT_STREAM);
+    return this.map;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.Topic;
+import com.igormaznitsa.mindmap.swing.panel.MindMapPanel;
+import com.igormaznitsa.mindmap.swing.panel.MindMapPanelConfig;
+import com.igormaznitsa.mindmap.swing.panel.ui.AbstractElement;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics2DWrapper;
+import com.igormaznitsa.mindmap.swing.panel.utils.RenderQuality;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.geom.Dimension2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calculation of element sizes, layout and painting of maps of different
+ * shapes into offscreen image of screen size. Works in headless mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class PanelBenchmark {
+
+  @Param({"WIDE", "DEEP", "NOTES", "IMAGES", "JUMPS"})
+  public SyntheticMaps.Shape shape;
+
+  @Param({"1000"})
+  public int topics;
+
+  private MindMap map;
+  private MindMapPanelConfig config;
+  private BufferedImage image;
+  private Graphics2D graphics;
+  private MMGraphics gfx;
+  private MMGraphics viewportGfx;
+  private Topic editedTopic;
+  private final Object layoutContext = new Object();
+  private int editCounter;
+  private Point hitPoint;
+
+  @Setup
+  public void setup() throws IOException {
+    this.map = new MindMap(null, new StringReader(SyntheticMaps.makeShapedMap(this.shape, this.topics)));
+    this.config = new MindMapPanelConfig();
+    this.image = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_ARGB);
+    this.graphics = this.image.createGraphics();
+    RenderQuality.DEFAULT.prepare(this.graphics);
+    this.gfx = new MMGraphics2DWrapper(this.graphics);
+    MindMapPanel.calculateElementSizes(this.gfx, this.map, this.config);
+    final Dimension2D size = MindMapPanel.layoutModelElements(this.map, this.config);
+    final Graphics2D viewport = this.image.createGraphics();
+    RenderQuality.DEFAULT.prepare(viewport);
+    final int viewportX = (int) Math.max(0.0d, size.getWidth() - this.image.getWidth()) / 2;
+    final int viewportY = (int) Math.max(0.0d, size.getHeight() - this.image.getHeight()) / 2;
+    viewport.translate(-viewportX, -viewportY);
+    viewport.setClip(viewportX, viewportY, this.image.getWidth(), this.image.getHeight());
+    this.viewportGfx = new MMGraphics2DWrapper(viewport);
+    for (final Topic t : this.map) {
+      this.editedTopic = t;
+    }
+    final AbstractElement hitElement = (AbstractElement) this.editedTopic.getPayload();
+    this.hitPoint = new Point((int) hitElement.getBounds().getCenterX(), (int) hitElement.getBounds().getCenterY());
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.gfx.dispose();
+    this.viewportGfx.dispose();
+  }
+
+  @Benchmark
+  public boolean calculateElementSizes() {
+    return MindMapPanel.calculateElementSizes(this.gfx, this.map, this.config);
+  }
+
+  /**
+   * Change text of the last topic and update sizes and layout of elements,
+   * only the changed topic is measured again.
+   */
+  @Benchmark
+  public Dimension2D editTopicAndRelayout() {
+    this.editedTopic.setText((this.editCounter++ & 1) == 0 ? "Edited topic text" : "Another text");
+    MindMapPanel.updateElementSizes(this.gfx, this.map, this.config, this.layoutContext);
+    return MindMapPanel.layoutModelElements(this.map, this.config);
+  }
+
+  /**
+   * Search of element under mouse and nearest element for drag, both are made
+   * on every mouse move.
+   */
+  @Benchmark
+  public AbstractElement findElementsForPoint() {
+    final AbstractElement root = (AbstractElement) this.map.getRoot().getPayload();
+    root.findForPoint(this.hitPoint);
+    return root.findNearestOpenedTopicToPoint(null, this.hitPoint);
+  }
+
+  @Benchmark
+  public Dimension2D layoutModelElements() {
+    return MindMapPanel.layoutModelElements(this.map, this.config);
+  }
+
+  @Benchmark
+  public BufferedImage drawOnGraphicsForConfiguration() {
+    MindMapPanel.drawOnGraphicsForConfiguration(this.gfx, this.config, this.map, false, null);
+    return this.image;
+  }
+
+  /**
+   * Paint of screen sized area in the center of diagram, like a panel in
+   * scroll pane does.
+   */
+  @Benchmark
+  public BufferedImage drawViewport() {
+    MindMapPanel.drawOnGraphicsForConfiguration(this.viewportGfx, this.config, this.map, false, null);
+    return this.image;
+  }
+}
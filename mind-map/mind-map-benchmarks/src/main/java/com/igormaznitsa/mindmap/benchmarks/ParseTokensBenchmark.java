@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.Extra;
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.ModelUtils;
+import com.igormaznitsa.mindmap.model.parser.MindMapLexer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compare allocations of token text processing made through string copies and
+ * through token views. Results are normalized per topic, start with
+ * {@code -prof gc} and look at {@code gc.alloc.rate.norm} to get allocated
+ * bytes per topic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseTokensBenchmark {
+
+  private static final int TOPICS = 10000;
+
+  private String text;
+  private final MindMapLexer lexer = new MindMapLexer();
+  private final StringBuilder buffer = new StringBuilder();
+
+  @Setup
+  public void setup() {
+    this.text = SyntheticMaps.makeBalancedMap(TOPICS, 8);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TOPICS)
+  public void tokensAsStrings(final Blackhole blackhole) {
+    this.lexer.start(this.text, 0, this.text.length(), MindMapLexer.TokenType.HEAD_LINE);
+    while (true) {
+      this.lexer.advance();
+      final MindMapLexer.TokenType type = this.lexer.getTokenType();
+      if (type == null) {
+        break;
+      }
+      switch (type) {
+        case TOPIC_LEVEL:
+          blackhole.consume(ModelUtils.calcCharsOnStart('#', this.lexer.getTokenText()));
+          break;
+        case TOPIC_TITLE:
+          blackhole.consume(ModelUtils.unescapeMarkdownStr(ModelUtils.removeISOControls(this.lexer.getTokenText())));
+          break;
+        case EXTRA_TYPE:
+          blackhole.consume(Extra.ExtraType.valueOf(this.lexer.getTokenText().substring(1).trim()));
+          break;
+        case ATTRIBUTE:
+          blackhole.consume(this.lexer.getTokenText().trim());
+          break;
+        case EXTRA_TEXT: {
+          final String tokenText = this.lexer.getTokenText();
+          blackhole.consume(tokenText.substring(5, tokenText.length() - 6));
+        }
+        break;
+        default:
+          blackhole.consume(type);
+          break;
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TOPICS)
+  public void tokensAsViews(final Blackhole blackhole) {
+    this.lexer.start(this.text, 0, this.text.length(), MindMapLexer.TokenType.HEAD_LINE);
+    while (true) {
+      this.lexer.advance();
+      final MindMapLexer.TokenType type = this.lexer.getTokenType();
+      if (type == null) {
+        break;
+      }
+      final CharSequence buff = this.lexer.getBufferSequence();
+      final int start = this.lexer.getTokenStartOffset();
+      final int end = this.lexer.getTokenEndOffset();
+      switch (type) {
+        case TOPIC_LEVEL:
+          blackhole.consume(ModelUtils.calcCharsOnStart('#', buff, start, end));
+          break;
+        case TOPIC_TITLE:
+          blackhole.consume(ModelUtils.unescapeMarkdownStrAndRemoveISOControls(buff, start, end, this.buffer));
+          break;
+        case EXTRA_TYPE: {
+          final MindMapLexer.TokenView view = this.lexer.getTokenView();
+          blackhole.consume(view.set(buff, start + 1, end).trim());
+        }
+        break;
+        case ATTRIBUTE:
+          blackhole.consume(this.lexer.getTokenView().trim());
+          break;
+        case EXTRA_TEXT:
+          blackhole.consume(buff.subSequence(start + 5, end - 6).toString());
+          break;
+        default:
+          blackhole.consume(type);
+          break;
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TOPICS)
+  public MindMap parseMindMap() throws IOException {
+    return new MindMap(null, new StringReader(this.text));
+  }
+}
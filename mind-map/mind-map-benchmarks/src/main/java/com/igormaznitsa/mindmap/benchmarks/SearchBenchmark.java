@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.Extra;
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.Topic;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Find as you type in big map, every typed char makes search from the map
+ * start with pattern made in the same way as the find panel of editor does.
+ * Pattern with alternation can't use the search index and shows cost of full
+ * scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+  private static final Set<Extra.ExtraType> EXTRAS = EnumSet.of(Extra.ExtraType.NOTE, Extra.ExtraType.LINK, Extra.ExtraType.FILE);
+
+  @Param({"100000"})
+  public int topics;
+
+  private MindMap map;
+  private Pattern[] typed;
+  private Pattern notIndexed;
+
+  @Setup
+  public void setup() throws IOException {
+    this.map = new MindMap(null, new StringReader(SyntheticMaps.makeBalancedMap(this.topics, 8)));
+    final String text = "note text for topic " + (this.topics - 4); //NOI18N
+    this.typed = new Pattern[text.length()];
+    for (int i = 0; i < text.length(); i++) {
+      this.typed[i] = makePattern(text.substring(0, i + 1));
+    }
+    this.notIndexed = Pattern.compile("topic " + (this.topics - 4) + " with|not presented", Pattern.CASE_INSENSITIVE); //NOI18N
+    this.map.findNext(null, null, this.typed[0], true, EXTRAS);
+  }
+
+  @Nonnull
+  private static Pattern makePattern(@Nonnull final String text) {
+    final StringBuilder result = new StringBuilder();
+    for (final char c : text.toCharArray()) {
+      result.append(String.format(Locale.ENGLISH, "\\u%04X", (int) c)); //NOI18N
+    }
+    return Pattern.compile(result.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+  }
+
+  @Benchmark
+  public void findAsYouType(final Blackhole blackhole) {
+    for (final Pattern p : this.typed) {
+      blackhole.consume(this.map.findNext(null, null, p, true, EXTRAS));
+    }
+  }
+
+  @Benchmark
+  public Topic findNotIndexedPattern() {
+    return this.map.findNext(null, null, this.notIndexed, true, EXTRAS);
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.ExtraTopic;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+import javax.imageio.ImageIO;
+
+/**
+ * Generator of mind map texts for benchmarks, generated text is deterministic
+ * for the same arguments.
+ */
+public final class SyntheticMaps {
+
+  /**
+   * Shapes of generated maps.
+   */
+  public enum Shape {
+    /**
+     * Shallow tree where every topic has 64 children.
+     */
+    WIDE,
+    /**
+     * Root with four long chains of topics.
+     */
+    DEEP,
+    /**
+     * Balanced tree where every topic has multi-line note.
+     */
+    NOTES,
+    /**
+     * Balanced tree where every fourth topic has image.
+     */
+    IMAGES,
+    /**
+     * Balanced tree where every topic has UID and every second one has jump
+     * to random topic.
+     */
+    JUMPS
+  }
+
+  /**
+   * Lazy holder of image encoded as Base64 PNG.
+   */
+  private static final class ImageHolder {
+
+    private static final String IMAGE = makeImage();
+
+    @Nonnull
+    private static String makeImage() {
+      final BufferedImage image = new BufferedImage(48, 48, BufferedImage.TYPE_INT_ARGB);
+      for (int y = 0; y < image.getHeight(); y++) {
+        for (int x = 0; x < image.getWidth(); x++) {
+          image.setRGB(x, y, 0xFF000000 | (x * 5) << 16 | (y * 5) << 8 | ((x ^ y) * 5));
+        }
+      }
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      try {
+        ImageIO.write(image, "png", buffer); //NOI18N
+      }
+      catch (IOException ex) {
+        throw new Error("Can't make image", ex); //NOI18N
+      }
+      return Base64.getEncoder().encodeToString(buffer.toByteArray());
+    }
+  }
+
+  private SyntheticMaps() {
+  }
+
+  /**
+   * Make text of mind map where topics are placed as balanced tree.
+   *
+   * @param topics number of topics in the map
+   * @param branching max number of children for every topic
+   * @return text of mind map in MMD format
+   */
+  @Nonnull
+  public static String makeBalancedMap(final int topics, final int branching) {
+    final Random rnd = new Random(topics * 31L + branching);
+    final StringBuilder result = new StringBuilder(topics * 96);
+    result.append("Mind Map generated by benchmark\n> __version__=`1.1`\n---\n"); //NOI18N
+
+    final int[] parents = makeBalancedParents(topics, branching);
+    final int[] levels = makeLevels(parents);
+    for (final int index : makeDepthFirstOrder(parents)) {
+      writeTopic(result, rnd, index, levels[index]);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Make text of mind map which has realistic content for the shape.
+   *
+   * @param shape shape of the map
+   * @param topics number of topics in the map
+   * @return text of mind map in MMD format
+   */
+  @Nonnull
+  public static String makeShapedMap(@Nonnull final Shape shape, final int topics) {
+    final Random rnd = new Random(topics * 31L + shape.ordinal());
+    final StringBuilder result = new StringBuilder(topics * 128);
+    result.append("Mind Map generated by benchmark\n> __version__=`1.1`\n---\n"); //NOI18N
+
+    final int[] parents;
+    switch (shape) {
+      case WIDE:
+        parents = makeBalancedParents(topics, 64);
+        break;
+      case DEEP:
+        parents = makeChainParents(topics, 4);
+        break;
+      default:
+        parents = makeBalancedParents(topics, 8);
+        break;
+    }
+
+    final int[] levels = makeLevels(parents);
+    for (final int index : makeDepthFirstOrder(parents)) {
+      result.append('\n');
+      for (int i = 0; i < levels[index]; i++) {
+        result.append('#');
+      }
+      result.append(" Topic ").append(index).append(" of ").append(shape.name().toLowerCase(Locale.ENGLISH)).append(" map\n"); //NOI18N
+      switch (shape) {
+        case NOTES: {
+          result.append("- NOTE\n<pre>"); //NOI18N
+          for (int i = 0; i < 8; i++) {
+            result.append("Line ").append(i).append(" of note for topic ").append(index).append(", it contains some &lt;escaped&gt; chars\n"); //NOI18N
+          }
+          result.append("</pre>\n"); //NOI18N
+        }
+        break;
+        case IMAGES: {
+          if (index % 4 == 0) {
+            result.append("> mmd.image=`").append(ImageHolder.IMAGE).append("`\n\n"); //NOI18N
+          }
+        }
+        break;
+        case JUMPS: {
+          result.append("> ").append(ExtraTopic.TOPIC_UID_ATTR).append("=`uid").append(index).append("`\n\n"); //NOI18N
+          if (index % 2 == 0) {
+            result.append("- TOPIC\n<pre>uid").append(rnd.nextInt(topics)).append("</pre>\n"); //NOI18N
+          }
+        }
+        break;
+        default: {
+          result.append("> fillColor=`#").append(Integer.toHexString(0x100000 + rnd.nextInt(0xEFFFFF))).append("`\n\n"); //NOI18N
+        }
+        break;
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Make text of mind map where topics are placed as balanced tree and all
+   * topics have the same content, it allows to calculate cost of every
+   * element.
+   *
+   * @param topics number of topics in the map
+   * @param branching max number of children for every topic
+   * @param attributes number of attributes in every topic
+   * @param note true if every topic must have note
+   * @param link true if every topic must have link
+   * @return text of mind map in MMD format
+   */
+  @Nonnull
+  public static String makeUniformMap(final int topics, final int branching, final int attributes, final boolean note, final boolean link) {
+    final StringBuilder result = new StringBuilder(topics * (32 + attributes * 24 + (note ? 48 : 0) + (link ? 48 : 0)));
+    result.append("Mind Map generated by benchmark\n> __version__=`1.1`\n---\n"); //NOI18N
+
+    final int[] parents = makeBalancedParents(topics, branching);
+    final int[] levels = makeLevels(parents);
+    for (final int index : makeDepthFirstOrder(parents)) {
+      result.append('\n');
+      for (int i = 0; i < levels[index]; i++) {
+        result.append('#');
+      }
+      result.append(" Topic ").append(index).append('\n'); //NOI18N
+      if (attributes > 0) {
+        result.append("> "); //NOI18N
+        for (int i = 0; i < attributes; i++) {
+          if (i > 0) {
+            result.append(',');
+          }
+          result.append("attr").append(i).append("=`value").append(index).append('`'); //NOI18N
+        }
+        result.append("\n\n"); //NOI18N
+      }
+      if (note) {
+        result.append("- NOTE\n<pre>Note for topic ").append(index).append("</pre>\n"); //NOI18N
+      }
+      if (link) {
+        result.append("- LINK\n<pre>http://www.sciareto.org/topic/").append(index).append("</pre>\n"); //NOI18N
+      }
+    }
+    return result.toString();
+  }
+
+  @Nonnull
+  private static int[] makeBalancedParents(final int topics, final int branching) {
+    final int[] parents = new int[topics];
+    parents[0] = -1;
+    for (int i = 1; i < topics; i++) {
+      parents[i] = (i - 1) / branching;
+    }
+    return parents;
+  }
+
+  /**
+   * Make parents for root with number of long topic chains.
+   */
+  @Nonnull
+  private static int[] makeChainParents(final int topics, final int chains) {
+    final int[] parents = new int[topics];
+    parents[0] = -1;
+    for (int i = 1; i < topics; i++) {
+      parents[i] = i <= chains ? 0 : i - chains;
+    }
+    return parents;
+  }
+
+  @Nonnull
+  private static int[] makeLevels(@Nonnull final int[] parents) {
+    final int[] levels = new int[parents.length];
+    levels[0] = 1;
+    for (int i = 1; i < parents.length; i++) {
+      levels[i] = levels[parents[i]] + 1;
+    }
+    return levels;
+  }
+
+  /**
+   * Order topics as depth first, children are placed in their index order.
+   * Parent index must be less than index of its child.
+   */
+  @Nonnull
+  private static int[] makeDepthFirstOrder(@Nonnull final int[] parents) {
+    final int topics = parents.length;
+    final int[] childCount = new int[topics + 1];
+    for (int i = 1; i < topics; i++) {
+      childCount[parents[i] + 1]++;
+    }
+    for (int i = 1; i <= topics; i++) {
+      childCount[i] += childCount[i - 1];
+    }
+    final int[] children = new int[topics];
+    final int[] filled = new int[topics];
+    for (int i = 1; i < topics; i++) {
+      final int parent = parents[i];
+      children[childCount[parent] + filled[parent]++] = i;
+    }
+
+    final int[] order = new int[topics];
+    final int[] stack = new int[topics];
+    int stackSize = 0;
+    int orderSize = 0;
+    stack[stackSize++] = 0;
+    while (stackSize > 0) {
+      final int index = stack[--stackSize];
+      order[orderSize++] = index;
+      for (int c = childCount[index + 1] - 1; c >= childCount[index]; c--) {
+        stack[stackSize++] = children[c];
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Make text of mind map with root and single child, the root contains code
+   * snippet with big number of lines.
+   *
+   * @param lines number of lines in code snippet
+   * @return text of mind map in MMD format
+   */
+  @Nonnull
+  public static String makeMapWithCodeSnippet(final int lines) {
+    final StringBuilder result = new StringBuilder(lines * 40);
+    result.append("Mind Map generated by benchmark\n> __version__=`1.1`\n---\n\n# Root\n```PlantUML\n@startuml\n"); //NOI18N
+    for (int i = 0; i < lines; i++) {
+      result.append("Component").append(i).append(" --> Component").append(i + 1).append('\n'); //NOI18N
+    }
+    result.append("@enduml\n```\n\n## Child\n"); //NOI18N
+    return result.toString();
+  }
+
+  private static void writeTopic(@Nonnull final StringBuilder out, @Nonnull final Random rnd, final int index, final int level) {
+    out.append('\n');
+    for (int i = 0; i < level; i++) {
+      out.append('#');
+    }
+    out.append(" Topic number ").append(index).append(" \\(item\\) for \\<test\\><br/>second line\n"); //NOI18N
+    out.append("> fillColor=`#").append(Integer.toHexString(0x100000 + rnd.nextInt(0xEFFFFF))).append("`,leftSide=`true`\n\n"); //NOI18N
+    if (index % 4 == 0) {
+      out.append("- NOTE\n<pre>Some note text for topic ").append(index).append(" with &lt;html&gt; chars</pre>\n"); //NOI18N
+    }
+    if (index % 7 == 0) {
+      out.append("- LINK\n<pre>http://www.sciareto.org/topic/").append(index).append("</pre>\n"); //NOI18N
+    }
+  }
+}
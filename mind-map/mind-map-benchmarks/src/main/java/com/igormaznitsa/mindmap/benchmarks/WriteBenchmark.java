@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.benchmarks;
+
+import com.igormaznitsa.mindmap.model.MindMap;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare saving of map through whole document string encoded into UTF-8 with
+ * direct streaming into output stream. Run with {@code -prof gc} to see
+ * allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+  @Param({"1000", "20000"})
+  public int topics;
+
+  private MindMap map;
+
+  @Setup
+  public void setup() throws IOException {
+    this.map = new MindMap(null, new StringReader(SyntheticMaps.makeBalancedMap(this.topics, 8)));
+  }
+
+  @Benchmark
+  public int packToStringAndEncode() throws IOException {
+    final byte[] encoded = this.map.packToString().getBytes("UTF-8"); //NOI18N
+    NullOutputStream.NULL_OUTPUT_STREAM.write(encoded);
+    return encoded.length;
+  }
+
+  @Benchmark
+  public MindMap streamToOutputStream() throws IOException {
+    this.map.write(NullOutputStream.NULL_OUTPUT_STREAM);
+    return this.map;
+  }
+}
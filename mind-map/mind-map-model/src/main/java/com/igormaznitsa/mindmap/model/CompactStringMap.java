@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
+
+/**
+ * Immutable map of strings kept in single array of keys and values sorted by
+ * keys, it is used for attributes and code snippets of topics. Changes make new
+ * instances, empty map is shared singleton, so that topics without attributes
+ * don't allocate anything and copies of topics share their maps. Keys are
+ * interned through shared bounded dictionary because the same few attribute
+ * names are repeated in all topics.
+ *
+ * @since 1.4.4
+ */
+final class CompactStringMap extends AbstractMap<String, String> implements Serializable {
+
+  private static final long serialVersionUID = 3309862458204561542L;
+
+  private static final int MAX_DICTIONARY_SIZE = 1024;
+  private static final ConcurrentMap<String, String> KEY_DICTIONARY = new ConcurrentHashMap<String, String>();
+
+  static final CompactStringMap EMPTY = new CompactStringMap(new String[0]);
+
+  static {
+    for (final String k : new String[]{"fillColor", "borderColor", "textColor", "collapsed", "leftSide", "showJumps", "mmd.image", "mmd.emoticon", ExtraTopic.TOPIC_UID_ATTR}) { //NOI18N
+      KEY_DICTIONARY.put(k, k);
+    }
+  }
+
+  /**
+   * Keys on even positions and values on odd positions, sorted by keys.
+   */
+  private final String[] data;
+
+  private CompactStringMap(@Nonnull @MustNotContainNull final String[] data) {
+    super();
+    this.data = data;
+  }
+
+  /**
+   * Get shared instance of key.
+   *
+   * @param key key to be interned
+   * @return shared instance equal to the key
+   */
+  @Nonnull
+  static String internKey(@Nonnull final String key) {
+    final String found = KEY_DICTIONARY.get(key);
+    if (found != null) {
+      return found;
+    }
+    if (KEY_DICTIONARY.size() < MAX_DICTIONARY_SIZE) {
+      final String prev = KEY_DICTIONARY.putIfAbsent(key, key);
+      return prev == null ? key : prev;
+    }
+    return key;
+  }
+
+  private int indexOf(@Nonnull final String key) {
+    int low = 0;
+    int high = (this.data.length >> 1) - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int cmp = ModelUtils.STRING_COMPARATOR.compare(this.data[middle << 1], key);
+      if (cmp < 0) {
+        low = middle + 1;
+      } else if (cmp > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Make map with changed value.
+   *
+   * @param key key, must not be null
+   * @param value new value, null to remove the key
+   * @return map contains the change, the same map if nothing changed
+   */
+  @Nonnull
+  CompactStringMap with(@Nonnull final String key, @Nullable final String value) {
+    final int index = indexOf(key);
+    final String[] newData;
+    if (index >= 0) {
+      final int pos = index << 1;
+      if (value == null) {
+        if (this.data.length == 2) {
+          return EMPTY;
+        }
+        newData = new String[this.data.length - 2];
+        System.arraycopy(this.data, 0, newData, 0, pos);
+        System.arraycopy(this.data, pos + 2, newData, pos, this.data.length - pos - 2);
+      } else {
+        if (value.equals(this.data[pos + 1])) {
+          return this;
+        }
+        newData = this.data.clone();
+        newData[pos + 1] = value;
+      }
+    } else {
+      if (value == null) {
+        return this;
+      }
+      final int pos = -(index + 1) << 1;
+      newData = new String[this.data.length + 2];
+      System.arraycopy(this.data, 0, newData, 0, pos);
+      System.arraycopy(this.data, pos, newData, pos + 2, this.data.length - pos);
+      newData[pos] = internKey(key);
+      newData[pos + 1] = value;
+    }
+    return new CompactStringMap(newData);
+  }
+
+  /**
+   * Make map contains all values from another map, values for the same keys
+   * are replaced.
+   *
+   * @param values values to be added, must not be null
+   * @return map contains values of both maps
+   */
+  @Nonnull
+  CompactStringMap withAll(@Nonnull final Map<String, String> values) {
+    CompactStringMap result = this;
+    for (final Map.Entry<String, String> e : values.entrySet()) {
+      result = result.with(e.getKey(), e.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Estimate heap size retained by the map, shared empty map and interned keys
+   * are not counted.
+   *
+   * @return estimated size in bytes
+   */
+  long estimateRetainedBytes() {
+    if (this.data.length == 0) {
+      return 0L;
+    }
+    long result = RetainedSizeEstimator.shallowSizeOf(CompactStringMap.class) + RetainedSizeEstimator.sizeOfArray(this.data.length, RetainedSizeEstimator.REFERENCE);
+    for (int i = 0; i < this.data.length; i += 2) {
+      final String key = this.data[i];
+      if (KEY_DICTIONARY.get(key) != key) {
+        result += RetainedSizeEstimator.sizeOfString(key);
+      }
+      result += RetainedSizeEstimator.sizeOfString(this.data[i + 1]);
+    }
+    return result;
+  }
+
+  @Override
+  public int size() {
+    return this.data.length >> 1;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.data.length == 0;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable final Object key) {
+    return key instanceof String && indexOf((String) key) >= 0;
+  }
+
+  @Override
+  @Nullable
+  public String get(@Nullable final Object key) {
+    if (key instanceof String) {
+      final int index = indexOf((String) key);
+      return index < 0 ? null : this.data[(index << 1) + 1];
+    }
+    return null;
+  }
+
+  @Override
+  @Nonnull
+  public Set<Map.Entry<String, String>> entrySet() {
+    return new AbstractSet<Map.Entry<String, String>>() {
+      @Override
+      @Nonnull
+      public Iterator<Map.Entry<String, String>> iterator() {
+        return new Iterator<Map.Entry<String, String>>() {
+          private int pos = 0;
+
+          @Override
+          public boolean hasNext() {
+            return this.pos < data.length;
+          }
+
+          @Override
+          @Nonnull
+          public Map.Entry<String, String> next() {
+            if (this.pos >= data.length) {
+              throw new NoSuchElementException();
+            }
+            final Map.Entry<String, String> result = new AbstractMap.SimpleImmutableEntry<String, String>(data[this.pos], data[this.pos + 1]);
+            this.pos += 2;
+            return result;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException("Map is immutable"); //NOI18N
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return data.length >> 1;
+      }
+    };
+  }
+
+  @Nonnull
+  private Object readResolve() {
+    if (this.data.length == 0) {
+      return EMPTY;
+    }
+    for (int i = 0; i < this.data.length; i += 2) {
+      this.data[i] = internKey(this.data[i]);
+    }
+    return this;
+  }
+}
@@ -70,16 +70,28 @@ public abstract class Extra<T> implements Serializable, Constants, Cloneable {
 
     @Nonnull
     public Extra<?> parseLoaded(@Nonnull final String text) throws URISyntaxException {
-      final String preprocessed = StringEscapeUtils.unescapeHtml(text);
+      return makeFromSaved(StringEscapeUtils.unescapeHtml(text));
+    }
+
+    /**
+     * Make extra from string provided by {@link Extra#provideAsStringForSave()}.
+     *
+     * @param text unescaped text, must not be null
+     * @return created extra
+     * @throws URISyntaxException if wrong URI
+     * @since 1.4.4
+     */
+    @Nonnull
+    Extra<?> makeFromSaved(@Nonnull final String text) throws URISyntaxException {
       switch (this) {
         case FILE:
-          return new ExtraFile(preprocessed);
+          return new ExtraFile(text);
         case LINK:
-          return new ExtraLink(preprocessed);
+          return new ExtraLink(text);
         case NOTE:
-          return new ExtraNote(preprocessed);
+          return new ExtraNote(text);
         case TOPIC:
-          return new ExtraTopic(preprocessed);
+          return new ExtraTopic(text);
         default:
           throw new Error("Unexpected value [" + this.name() + ']'); //NOI18N
       }
@@ -102,7 +114,7 @@ public abstract class Extra<T> implements Serializable, Constants, Cloneable {
 
   public final void write(@Nonnull final Writer out) throws IOException {
     out.append("- ").append(getType().name()).append(NEXT_LINE); //NOI18N
-    out.append(ModelUtils.makePreBlock(provideAsStringForSave()));
+    ModelUtils.writePreBlock(out, provideAsStringForSave());
   }
 
 }
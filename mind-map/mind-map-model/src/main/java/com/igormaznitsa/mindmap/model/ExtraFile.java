@@ -33,6 +33,8 @@ public class ExtraFile extends Extra<MMapURI> implements ExtraLinkable {
 
   private volatile String cachedString;
 
+  private transient volatile ResolvedPath resolvedPath;
+
   private final boolean mmdFileFlag;
   private final String lowerCasedFileExtension;
 
@@ -46,10 +48,46 @@ public class ExtraFile extends Extra<MMapURI> implements ExtraLinkable {
     this(new MMapURI(text));
   }
 
+  /**
+   * Normalized absolute path of the file resolved for base folder.
+   */
+  private static final class ResolvedPath {
+
+    private final File baseFolder;
+    private final String path;
+
+    private ResolvedPath(@Nullable final File baseFolder, @Nullable final String path) {
+      this.baseFolder = baseFolder;
+      this.path = path;
+    }
+
+    private boolean isFor(@Nullable final File folder) {
+      return this.baseFolder == folder || (this.baseFolder != null && this.baseFolder.equals(folder));
+    }
+  }
+
+  /**
+   * Get normalized absolute path of the file. The path is cached for the last
+   * used base folder, so that repeated calls don't resolve the file again.
+   *
+   * @param baseFolder base folder to resolve relative path, can be null
+   * @return normalized path or null if it can't be normalized
+   * @since 1.4.4
+   */
+  @Nullable
+  public String getNormalizedPath(@Nullable final File baseFolder) {
+    ResolvedPath result = this.resolvedPath;
+    if (result == null || !result.isFor(baseFolder)) {
+      result = new ResolvedPath(baseFolder, FilenameUtils.normalize(this.fileUri.asFile(baseFolder).getAbsolutePath()));
+      this.resolvedPath = result;
+    }
+    return result.path;
+  }
+
   @Override
   public boolean containsPattern(@Nullable final File baseFolder, @Nonnull final Pattern pattern) {
-    final String filePathAsText = FilenameUtils.normalize(this.fileUri.asFile(baseFolder).getAbsolutePath());
-    return pattern.matcher(filePathAsText).find();
+    final String filePathAsText = getNormalizedPath(baseFolder);
+    return filePathAsText != null && pattern.matcher(filePathAsText).find();
   }
 
   public boolean isMMDFile() {
@@ -106,11 +144,10 @@ public class ExtraFile extends Extra<MMapURI> implements ExtraLinkable {
   
   @Nullable
   public ExtraFile replaceParentPath(@Nullable final File baseFolder, @Nonnull final MMapURI oldFolder, @Nonnull final MMapURI newFolder) {
-    final File theFile = this.fileUri.asFile(baseFolder);
     final File oldFolderFile = oldFolder.asFile(baseFolder);
     final File newFolderFile = newFolder.asFile(baseFolder);
 
-    final String theFilePath = FilenameUtils.normalize(theFile.getAbsolutePath());
+    final String theFilePath = getNormalizedPath(baseFolder);
     final String oldFolderFilePath = ensureFolderPath(FilenameUtils.normalize(oldFolderFile.getAbsolutePath()));
     final String newFolderFilePath = ensureFolderPath(FilenameUtils.normalize(newFolderFile.getAbsolutePath()));
     
@@ -123,10 +160,9 @@ public class ExtraFile extends Extra<MMapURI> implements ExtraLinkable {
   }
   
   public boolean hasParent(@Nullable final File baseFolder, @Nonnull final MMapURI folder) {
-    final File theFile = this.fileUri.asFile(baseFolder);
     final File thatFile = folder.asFile(baseFolder);
 
-    final String theFilePath = FilenameUtils.normalize(theFile.getAbsolutePath());
+    final String theFilePath = getNormalizedPath(baseFolder);
     final String thatFilePath = ensureFolderPath(FilenameUtils.normalize(thatFile.getAbsolutePath()));
     
     if (!theFilePath.equals(thatFilePath) && theFilePath.startsWith(thatFilePath)) {
@@ -139,10 +175,9 @@ public class ExtraFile extends Extra<MMapURI> implements ExtraLinkable {
   }
   
   public boolean isSameOrHasParent(@Nullable final File baseFolder, @Nonnull final MMapURI file) {
-    final File theFile = this.fileUri.asFile(baseFolder);
     final File thatFile = file.asFile(baseFolder);
 
-    final String theFilePath = FilenameUtils.normalize(theFile.getAbsolutePath());
+    final String theFilePath = getNormalizedPath(baseFolder);
     final String thatFilePath = FilenameUtils.normalize(thatFile.getAbsolutePath());
 
     if (theFilePath.startsWith(thatFilePath)) {
@@ -155,10 +190,9 @@ public class ExtraFile extends Extra<MMapURI> implements ExtraLinkable {
   }
 
   public boolean isSame(@Nullable final File baseFolder, @Nonnull final MMapURI file) {
-    final File theFile = this.fileUri.asFile(baseFolder);
     final File thatFile = file.asFile(baseFolder);
 
-    final String theFilePath = FilenameUtils.normalize(theFile.getAbsolutePath());
+    final String theFilePath = getNormalizedPath(baseFolder);
     final String thatFilePath = FilenameUtils.normalize(thatFile.getAbsolutePath());
 
     return theFilePath.equals(thatFilePath);
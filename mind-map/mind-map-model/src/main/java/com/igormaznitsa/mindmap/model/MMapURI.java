@@ -272,6 +272,30 @@ public class MMapURI implements Serializable {
     return this.uri.isAbsolute();
   }
 
+  /**
+   * Approximate number of heap bytes retained by the object, parsed URI keeps
+   * source text and its components as separated strings.
+   *
+   * @return estimated size in bytes
+   */
+  long estimateRetainedBytes() {
+    long result = RetainedSizeEstimator.shallowSizeOf(MMapURI.class)
+        + RetainedSizeEstimator.shallowSizeOf(URI.class)
+        + RetainedSizeEstimator.sizeOfString(this.uri.toString())
+        + RetainedSizeEstimator.sizeOfString(this.uri.getScheme())
+        + RetainedSizeEstimator.sizeOfString(this.uri.getRawSchemeSpecificPart())
+        + RetainedSizeEstimator.sizeOfString(this.uri.getRawAuthority())
+        + RetainedSizeEstimator.sizeOfString(this.uri.getRawUserInfo())
+        + RetainedSizeEstimator.sizeOfString(this.uri.getHost())
+        + RetainedSizeEstimator.sizeOfString(this.uri.getRawPath())
+        + RetainedSizeEstimator.sizeOfString(this.uri.getRawQuery())
+        + RetainedSizeEstimator.sizeOfString(this.uri.getRawFragment());
+    if (this.parameters != EMPTY) {
+      result += RetainedSizeEstimator.sizeOfProperties(this.parameters);
+    }
+    return result;
+  }
+
   @Override
   @Nonnull
   public String toString() {
@@ -19,20 +19,34 @@ import com.igormaznitsa.mindmap.model.logger.Logger;
 import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -58,7 +72,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
   @Nullable
   private Topic root;
 
-  private final transient Lock locker = new ReentrantLock();
+  private final transient ReentrantReadWriteLock locker = new ReentrantReadWriteLock();
   private final Map<String, String> attributes = new TreeMap<String, String>(ModelUtils.STRING_COMPARATOR);
   private static final Pattern PATTERN_ATTRIBUTES = Pattern.compile("^\\s*\\>\\s(.+)$"); //NOI18N
   private static final Pattern PATTERN_ATTRIBUTE = Pattern.compile("[,]?\\s*([\\S]+?)\\s*=\\s*(\\`+)(.*?)\\2"); //NOI18N
@@ -68,6 +82,22 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
 
   private final transient List<TreeModelListener> treeListeners = new ArrayList<TreeModelListener>();
 
+  private transient int batchDepth;
+  private transient boolean batchStructureChanged;
+  private transient Set<Topic> batchChangedTopics;
+
+  private final transient Map<String, Topic> topicUidIndex = new HashMap<String, Topic>();
+  private transient volatile boolean topicUidIndexValid;
+
+  private final transient Map<Extra.ExtraType, Set<Topic>> extraTypeIndex = new EnumMap<Extra.ExtraType, Set<Topic>>(Extra.ExtraType.class);
+  private transient volatile boolean extraTypeIndexValid;
+
+  private transient volatile MindMapSearchIndex searchIndex;
+
+  private transient File savedFile;
+  private transient long savedFileLength;
+  private transient long savedFileLastModified;
+
   private final MindMapController controller;
 
   public MindMap(@Nullable final MindMapController nullableController, final boolean makeRoot) {
@@ -75,6 +105,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     if (makeRoot) {
       this.root = new Topic(this, null, "");
     }
+    this.attributes.put(GENERATOR_VERSION_NAME, FORMAT_VERSION);
   }
 
   public MindMap(@Nonnull final MindMap map, @Nullable final MindMapController nullableController) {
@@ -82,14 +113,14 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     final Topic rootTopic = map.getRoot();
     this.root = rootTopic == null ? null : rootTopic.makeCopy(this, null);
     this.controller = nullableController;
+    this.attributes.put(GENERATOR_VERSION_NAME, FORMAT_VERSION);
   }
 
   public MindMap(@Nullable final MindMapController nullableController, @Nonnull final Reader reader) throws IOException {
     this.controller = nullableController;
-    final String text = IOUtils.toString(Assertions.assertNotNull(reader));
 
     final MindMapLexer lexer = new MindMapLexer();
-    lexer.start(text, 0, text.length(), MindMapLexer.TokenType.HEAD_LINE);
+    lexer.start(Assertions.assertNotNull(reader), MindMapLexer.DEFAULT_STREAM_WINDOW, MindMapLexer.TokenType.HEAD_LINE);
 
     Topic rootTopic = null;
 
@@ -108,7 +139,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
         case HEAD_LINE:
           continue;
         case ATTRIBUTE: {
-          fillMapByAttributes(lexer.getTokenText(), this.attributes);
+          fillMapByAttributes(lexer.getTokenView(), this.attributes);
         }
         break;
         case HEAD_DELIMITER: {
@@ -125,10 +156,48 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     this.attributes.put(GENERATOR_VERSION_NAME, FORMAT_VERSION);
   }
 
+  /**
+   * Load mind map from file, the file is decoded as UTF-8 through file channel
+   * and parsed in stream mode without loading whole text into memory.
+   *
+   * @param nullableController controller for the map, can be null
+   * @param path path to mind map file, must not be null
+   * @return loaded mind map
+   * @throws IOException it will be thrown for transport errors
+   * @since 1.4.4
+   */
+  @Nonnull
+  @IgnoreInAnimalSniffer
+  public static MindMap load(@Nullable final MindMapController nullableController, @Nonnull final java.nio.file.Path path) throws IOException {
+    final FileChannel channel = FileChannel.open(Assertions.assertNotNull(path), StandardOpenOption.READ);
+    try {
+      final CharsetDecoder decoder = Charset.forName("UTF-8").newDecoder() //NOI18N
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      return new MindMap(nullableController, Channels.newReader(channel, decoder, -1));
+    }
+    finally {
+      channel.close();
+    }
+  }
+
   public void clear() {
     setRoot(null, true);
   }
 
+  /**
+   * Find next topic in the tree order which contains the pattern. Literal parts
+   * of the pattern are looked for in the cached search index, so that only
+   * topics which can contain them are checked.
+   *
+   * @param baseFolder base folder to resolve relative file links, can be null
+   * @param start topic to start search after it, if null then search from the
+   * root
+   * @param pattern pattern to find
+   * @param findInTopicText true if topic text should be checked
+   * @param extrasToFind types of extras to be checked, can be null
+   * @return found topic or null
+   */
   @Nullable
   public Topic findNext(@Nullable final File baseFolder, @Nullable final Topic start, @Nonnull final Pattern pattern, final boolean findInTopicText, @Nullable final Set<Extra.ExtraType> extrasToFind) {
     if (start != null && start.getMap() != this) {
@@ -137,27 +206,35 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
 
     Topic result = null;
 
-    this.locker.lock();
+    this.locker.readLock().lock();
     try {
-      boolean startFound = start == null;
-      for (final Topic t : this) {
-        if (startFound) {
-          if (t.containsPattern(baseFolder, pattern, findInTopicText, extrasToFind)) {
-            result = t;
-            break;
-          }
-        } else if (t == start) {
-          startFound = true;
+      final MindMapSearchIndex index = getSearchIndex();
+      if (index != null) {
+        final int startPosition = start == null ? -1 : index.positionOf(start);
+        if (start == null || startPosition >= 0) {
+          result = index.find(startPosition + 1, true, baseFolder, pattern, findInTopicText, extrasToFind);
         }
       }
     }
     finally {
-      this.locker.unlock();
+      this.locker.readLock().unlock();
     }
 
     return result;
   }
 
+  /**
+   * Find previous topic in the tree order which contains the pattern.
+   *
+   * @param baseFolder base folder to resolve relative file links, can be null
+   * @param start topic to start search before it, if null then search from the
+   * last topic
+   * @param pattern pattern to find
+   * @param findInTopicText true if topic text should be checked
+   * @param extrasForSearch types of extras to be checked, can be null
+   * @return found topic or null
+   * @see #findNext(File, Topic, Pattern, boolean, Set)
+   */
   @Nullable
   public Topic findPrev(@Nullable final File baseFolder, @Nullable final Topic start, @Nonnull final Pattern pattern, final boolean findInTopicText, @Nullable final Set<Extra.ExtraType> extrasForSearch) {
     if (start != null && start.getMap() != this) {
@@ -166,32 +243,43 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
 
     Topic result = null;
 
-    this.locker.lock();
+    this.locker.readLock().lock();
     try {
-      final List<Topic> plain = this.makePlainList();
-      int startIndex = start == null ? plain.size() : plain.indexOf(start);
-      if (startIndex < 0) {
-        throw new IllegalArgumentException("It looks like that topic doesn't belong to the mind map");
-      }
-      if (startIndex > 0) {
-        while (startIndex >= 0) {
-          final Topic candidate = plain.get(--startIndex);
-          if (candidate.containsPattern(baseFolder, pattern, findInTopicText, extrasForSearch)) {
-            result = candidate;
-            break;
-          }
+      final MindMapSearchIndex index = getSearchIndex();
+      if (index != null) {
+        final int startPosition = start == null ? index.size() : index.positionOf(start);
+        if (startPosition < 0) {
+          throw new IllegalArgumentException("It looks like that topic doesn't belong to the mind map");
         }
+        result = index.find(startPosition - 1, false, baseFolder, pattern, findInTopicText, extrasForSearch);
       }
     }
     finally {
-      this.locker.unlock();
+      this.locker.readLock().unlock();
     }
 
     return result;
   }
 
+  /**
+   * Get search index, it is built if needed. Must be called under read lock so
+   * that the tree can't be changed during building.
+   *
+   * @return index or null if there is no root
+   */
+  @Nullable
+  private MindMapSearchIndex getSearchIndex() {
+    MindMapSearchIndex result = this.searchIndex;
+    final Topic rootTopic = this.root;
+    if (result == null && rootTopic != null) {
+      result = MindMapSearchIndex.build(rootTopic);
+      this.searchIndex = result;
+    }
+    return result;
+  }
+
   public void setRoot(@Nullable final Topic newRoot, final boolean makeNotification) {
-    this.locker.lock();
+    lock();
     try {
       if (newRoot == null) {
         this.root = newRoot;
@@ -201,12 +289,13 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
         }
         this.root = newRoot;
       }
+      invalidateIndexes();
       if (makeNotification) {
         fireModelChanged();
       }
     }
     finally {
-      this.locker.unlock();
+      unlock();
     }
   }
 
@@ -219,50 +308,31 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
   @Nonnull
   public Iterator<Topic> iterator() {
     final Topic theroot = this.root;
-
-    return new Iterator<Topic>() {
-      Topic topicroot = theroot;
-      Iterator<Topic> children;
-
-      @Override
-      public void remove() {
-        this.children.remove();
-      }
-
-      @Override
-      public boolean hasNext() {
-        return this.topicroot != null || (this.children != null && this.children.hasNext());
-      }
-
-      @Override
-      @Nonnull
-      public Topic next() {
-        final Topic result;
-        if (this.topicroot != null) {
-          result = this.topicroot;
-          this.topicroot = null;
-          this.children = result.iterator();
-        } else if (this.children != null) {
-          result = this.children.next();
-        } else {
-          throw new NoSuchElementException();
-        }
-        return result;
-      }
-    };
+    if (theroot == null) {
+      return Collections.<Topic>emptyList().iterator();
+    }
+    return new Topic.TreeIterator(theroot, true);
   }
 
   public boolean isEmpty() {
-    this.locker.lock();
+    this.locker.readLock().lock();
     try {
       return this.root == null;
     }
     finally {
-      this.locker.unlock();
+      this.locker.readLock().unlock();
     }
   }
 
+  private boolean isBatchActive() {
+    return this.locker.isWriteLockedByCurrentThread() && this.batchDepth > 0;
+  }
+
   private void fireModelChanged() {
+    if (isBatchActive()) {
+      this.batchStructureChanged = true;
+      return;
+    }
     final Topic rootTopic = this.root;
     final TreeModelEvent evt = new TreeModelEvent(this, rootTopic == null ? (Topic[]) null : rootTopic.getPath());
     for (final TreeModelListener l : this.treeListeners) {
@@ -271,6 +341,17 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
   }
 
   private void fireTopicChanged(@Nullable final Topic topic) {
+    if (isBatchActive()) {
+      if (topic == null) {
+        this.batchStructureChanged = true;
+      } else {
+        if (this.batchChangedTopics == null) {
+          this.batchChangedTopics = new LinkedHashSet<Topic>();
+        }
+        this.batchChangedTopics.add(topic);
+      }
+      return;
+    }
     final TreeModelEvent evt = new TreeModelEvent(this, topic == null ? null : topic.getPath());
     for (final TreeModelListener l : this.treeListeners) {
       l.treeNodesChanged(evt);
@@ -282,8 +363,57 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     return this.attributes.get(name);
   }
 
+  /**
+   * Estimate heap size retained by the mind map: topics, their texts,
+   * attributes, code snippets, extras and internal indexes. Payloads of topics,
+   * controller and listeners are not counted. The estimation
+   * supposes 64 bit JVM with compressed references, it is made in one pass
+   * over the topics, so that it can be called to show memory usage in user
+   * interface.
+   *
+   * @return estimated size in bytes
+   * @since 1.4.4
+   */
+  public long estimateRetainedBytes() {
+    this.locker.readLock().lock();
+    try {
+      long result = RetainedSizeEstimator.shallowSizeOf(MindMap.class);
+      for (final Map.Entry<String, String> e : this.attributes.entrySet()) {
+        result += RetainedSizeEstimator.TREE_ENTRY + RetainedSizeEstimator.sizeOfString(e.getKey()) + RetainedSizeEstimator.sizeOfString(e.getValue());
+      }
+      final Topic rootTopic = this.root;
+      if (rootTopic != null) {
+        final Iterator<Topic> iterator = new Topic.TreeIterator(rootTopic, true);
+        while (iterator.hasNext()) {
+          result += iterator.next().estimateOwnRetainedBytes();
+        }
+      }
+      synchronized (this.topicUidIndex) {
+        result += (long) this.topicUidIndex.size() * RetainedSizeEstimator.HASH_ENTRY;
+      }
+      synchronized (this.extraTypeIndex) {
+        for (final Set<Topic> topics : this.extraTypeIndex.values()) {
+          result += (long) topics.size() * RetainedSizeEstimator.LINKED_HASH_ENTRY;
+        }
+      }
+      final MindMapSearchIndex index = this.searchIndex;
+      if (index != null) {
+        result += index.estimateRetainedBytes();
+      }
+      return result;
+    }
+    finally {
+      this.locker.readLock().unlock();
+    }
+  }
+
+  @Nonnull
+  Map<String, String> getAttributes() {
+    return Collections.unmodifiableMap(this.attributes);
+  }
+
   public void setAttribute(@Nonnull final String name, @Nullable final String value) {
-    this.locker.lock();
+    lock();
     try {
       if (value == null) {
         this.attributes.remove(name);
@@ -292,31 +422,32 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
       }
     }
     finally {
-      this.locker.unlock();
+      unlock();
     }
   }
 
   public void resetPayload() {
-    this.locker.lock();
+    lock();
     try {
       if (this.root != null) {
         resetPayload(this.root);
       }
     }
     finally {
-      this.locker.unlock();
+      unlock();
     }
   }
 
   private void resetPayload(@Nullable final Topic t) {
     if (t != null) {
-      t.setPayload(null);
-      for (final Topic m : t.getChildren()) {
-        resetPayload(m);
+      final Iterator<Topic> iterator = new Topic.TreeIterator(t, true);
+      while (iterator.hasNext()) {
+        iterator.next().setPayload(null);
       }
     }
   }
 
+
   @Nullable
   public Topic findForPositionPath(@Nullable final int[] positions) {
     if (positions == null || positions.length == 0) {
@@ -345,7 +476,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     final List<Topic> result = new ArrayList<Topic>();
     final Topic rootTopic = this.root;
     if (rootTopic != null) {
-      this.locker.lock();
+      this.locker.readLock().lock();
       try {
         for (final Topic t : origList) {
           if (rootTopic.containTopic(t)) {
@@ -354,7 +485,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
         }
       }
       finally {
-        this.locker.unlock();
+        this.locker.readLock().unlock();
       }
     }
     return result;
@@ -363,19 +494,20 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
   @Override
   @Nullable
   public Topic getRoot() {
-    this.locker.lock();
+    this.locker.readLock().lock();
     try {
       return this.root;
     }
     finally {
-      this.locker.unlock();
+      this.locker.readLock().unlock();
     }
   }
 
-  static boolean fillMapByAttributes(@Nonnull final String line, @Nonnull final Map<String, String> map) {
+  static boolean fillMapByAttributes(@Nonnull final CharSequence line, @Nonnull final Map<String, String> map) {
     final Matcher attrmatcher = PATTERN_ATTRIBUTES.matcher(line);
     if (attrmatcher.find()) {
-      final Matcher attrParser = PATTERN_ATTRIBUTE.matcher(attrmatcher.group(1));
+      final Matcher attrParser = PATTERN_ATTRIBUTE.matcher(line);
+      attrParser.region(attrmatcher.start(1), attrmatcher.end(1));
       while (attrParser.find()) {
         map.put(attrParser.group(1), attrParser.group(3));
       }
@@ -387,24 +519,27 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
   @Nonnull
   static String allAttributesAsString(@Nonnull final Map<String, String> map) throws IOException {
     final StringBuilder buffer = new StringBuilder();
+    writeAttributes(buffer, map);
+    return buffer.toString();
+  }
 
+  static void writeAttributes(@Nonnull final Appendable out, @Nonnull final Map<String, String> map) throws IOException {
     boolean nonfirst = false;
     for (final Map.Entry<String, String> e : map.entrySet()) {
       if (nonfirst) {
-        buffer.append(',');
+        out.append(',');
       } else {
         nonfirst = true;
       }
-      buffer.append(e.getKey()).append('=').append(ModelUtils.makeMDCodeBlock(e.getValue()));
+      out.append(e.getKey()).append('=');
+      ModelUtils.writeMDCodeBlock(out, e.getValue());
     }
-
-    return buffer.toString();
   }
 
   @Nonnull
   public String packToString() {
     final StringWriter writer;
-    this.locker.lock();
+    this.locker.readLock().lock();
     try {
       writer = new StringWriter(16384);
       try {
@@ -415,43 +550,307 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
       }
     }
     finally {
-      locker.unlock();
+      this.locker.readLock().unlock();
     }
     return writer.toString();
   }
 
   @Nonnull
   public <T extends Writer> T write(@Nonnull final T out) throws IOException {
-    this.locker.lock();
+    this.locker.readLock().lock();
     try {
-      out.append("Mind Map generated by NB MindMap plugin").append(NEXT_PARAGRAPH); //NOI18N
-      this.attributes.put(GENERATOR_VERSION_NAME, FORMAT_VERSION);
-      if (!this.attributes.isEmpty()) {
-        out.append("> ").append(MindMap.allAttributesAsString(this.attributes)).append(NEXT_LINE); //NOI18N
-      }
-      out.append("---").append(NEXT_LINE); //NOI18N
+      writeHeader(out);
       final Topic rootTopic = this.root;
       if (rootTopic != null) {
         rootTopic.write(out);
       }
     }
     finally {
-      this.locker.unlock();
+      this.locker.readLock().unlock();
     }
     return out;
   }
+  private void writeHeader(@Nonnull final Writer out) throws IOException {
+    out.append("Mind Map generated by NB MindMap plugin").append(NEXT_PARAGRAPH); //NOI18N
+    Map<String, String> attributesToWrite = this.attributes;
+    if (!FORMAT_VERSION.equals(attributesToWrite.get(GENERATOR_VERSION_NAME))) {
+      // the map is read locked so that attributes are not changed in place
+      attributesToWrite = new TreeMap<String, String>(ModelUtils.STRING_COMPARATOR);
+      attributesToWrite.putAll(this.attributes);
+      attributesToWrite.put(GENERATOR_VERSION_NAME, FORMAT_VERSION);
+    }
+    out.append("> "); //NOI18N
+    MindMap.writeAttributes(out, attributesToWrite);
+    out.append(NEXT_LINE);
+    out.append("---").append(NEXT_LINE); //NOI18N
+  }
+
+  /**
+   * Save mind map into file in UTF-8. Byte regions of topics in the written
+   * file are remembered with their checksums, so that next save into the same
+   * file serializes only topics changed since the previous save and copies
+   * blocks of other topics from the old file. If a copied block doesn't match
+   * its checksum then the file has been changed outside and the whole map is
+   * written. The result is always the same as for {@link #write(Writer)}. Data
+   * is written into unique temporary file which replaces the target file
+   * atomically if the platform supports that, symbolic link to the target is
+   * kept. The map is locked for modification during saving.
+   *
+   * @param file target file, must not be null
+   * @throws IOException if any error during writing
+   * @since 1.4.4
+   */
+  public void save(@Nonnull final File file) throws IOException {
+    final File target = file.getCanonicalFile();
+    final File tempFile = ModelUtils.makeTempFileFor(target, ".saving"); //NOI18N
+
+    // saved regions of topics are changed during writing
+    lock();
+    try {
+      final boolean incremental = target.equals(this.savedFile)
+          && target.isFile()
+          && target.length() == this.savedFileLength
+          && target.lastModified() == this.savedFileLastModified;
+      this.savedFile = null;
+
+      if (!(incremental && writeFile(tempFile, target))) {
+        writeFile(tempFile, null);
+      }
+
+      // new file gets default permissions instead of ones of the temp file
+      if (!target.exists() && !target.createNewFile()) {
+        LOGGER.warn("Can't create file " + target); //NOI18N
+      }
+      ModelUtils.replaceFile(tempFile, target);
+
+      this.savedFile = target;
+      this.savedFileLength = target.length();
+      this.savedFileLastModified = target.lastModified();
+    }
+    finally {
+      unlock();
+      if (tempFile.isFile() && !tempFile.delete()) {
+        LOGGER.warn("Can't delete temp file " + tempFile); //NOI18N
+      }
+    }
+  }
+
+  private boolean writeFile(@Nonnull final File file, @Nullable final File previous) throws IOException {
+    RandomAccessFile source = null;
+    FileOutputStream out = null;
+    try {
+      source = previous == null ? null : new RandomAccessFile(previous, "r"); //NOI18N
+      final FileChannel sourceChannel = source == null ? null : source.getChannel();
+      out = new FileOutputStream(file, false);
+
+      final Utf8ChannelWriter writer = new Utf8ChannelWriter(out.getChannel());
+      writeHeader(writer);
+      final Topic rootTopic = this.root;
+      if (rootTopic != null) {
+        final Topic.TreeIterator iterator = new Topic.TreeIterator(rootTopic, true);
+        while (iterator.hasNext()) {
+          final Topic topic = iterator.next();
+          final int level = iterator.getDepth() + 1;
+          final long offset = writer.getPosition();
+          writer.resetChecksum();
+          if (sourceChannel != null && topic.hasSavedRegion(level)) {
+            if (!writer.copyRegion(sourceChannel, topic.getSavedOffset(), topic.getSavedLength(), topic.getSavedChecksum())) {
+              LOGGER.warn("Detected external change of file, whole map will be written : " + previous); //NOI18N
+              return false;
+            }
+          } else {
+            topic.write(level, writer);
+          }
+          topic.setSavedRegion(offset, (int) (writer.getPosition() - offset), level, writer.getChecksum());
+        }
+      }
+      writer.close();
+      return true;
+    }
+    finally {
+      IOUtils.closeQuietly(source);
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  /**
+   * Write mind map in UTF-8 directly into output stream. Text is encoded
+   * through fixed size buffers so that the whole document is never presented
+   * in memory. The stream is not closed.
+   *
+   * @param out output stream, must not be null
+   * @throws IOException if any error in the stream
+   * @since 1.4.4
+   */
+  public void write(@Nonnull final OutputStream out) throws IOException {
+    final Utf8ChannelWriter writer = new Utf8ChannelWriter(out);
+    write(writer);
+    writer.close();
+  }
+
+  /**
+   * Write mind map in UTF-8 directly into byte channel. The channel is not
+   * closed.
+   *
+   * @param channel channel, must not be null
+   * @throws IOException if any error in the channel
+   * @since 1.4.4
+   */
+  public void write(@Nonnull final WritableByteChannel channel) throws IOException {
+    final Utf8ChannelWriter writer = new Utf8ChannelWriter(channel);
+    write(writer);
+    writer.close();
+  }
 
+
+  /**
+   * Lock the map for modification, the lock is exclusive and reentrant.
+   */
   public void lock() {
-    this.locker.lock();
+    this.locker.writeLock().lock();
   }
 
   public void unlock() {
-    this.locker.unlock();
+    this.locker.writeLock().unlock();
+  }
+
+  /**
+   * Lock the map for reading, several threads can hold the lock in the same
+   * time and they are blocked only by modification lock. Thread which holds
+   * read lock must not try to get modification lock.
+   *
+   * @since 1.4.4
+   */
+  public void lockRead() {
+    this.locker.readLock().lock();
+  }
+
+  /**
+   * Release read lock.
+   *
+   * @since 1.4.4
+   */
+  public void unlockRead() {
+    this.locker.readLock().unlock();
+  }
+
+  /**
+   * Start batch of modifications. The map is locked for modification until
+   * the pair call of {@link #endBatch()}, tree model notifications made inside
+   * the batch are not sent immediately but collected and sent as one
+   * coalesced change set when the outermost batch is ended. Batches can be
+   * nested.
+   *
+   * @since 1.4.4
+   */
+  public void beginBatch() {
+    lock();
+    this.batchDepth++;
+  }
+
+  /**
+   * End batch of modifications started by {@link #beginBatch()} and release
+   * modification lock. If it is the outermost batch then listeners get either
+   * single structure change event, if the topic tree has been changed, or
+   * single node change event for every parent of changed topics.
+   *
+   * @throws IllegalStateException if the current thread has not started batch
+   * @since 1.4.4
+   */
+  public void endBatch() {
+    if (!isBatchActive()) {
+      throw new IllegalStateException("Batch is not started"); //NOI18N
+    }
+
+    boolean structureChanged = false;
+    List<TreeModelEvent> changeEvents = null;
+
+    if (--this.batchDepth == 0) {
+      structureChanged = this.batchStructureChanged;
+      if (!structureChanged && this.batchChangedTopics != null) {
+        changeEvents = makeNodesChangedEvents(this.batchChangedTopics);
+      }
+      this.batchStructureChanged = false;
+      this.batchChangedTopics = null;
+    }
+    unlock();
+
+    if (structureChanged) {
+      fireModelChanged();
+    } else if (changeEvents != null) {
+      for (final TreeModelEvent e : changeEvents) {
+        for (final TreeModelListener l : this.treeListeners) {
+          l.treeNodesChanged(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Execute action as batch of modifications.
+   *
+   * @param action action to be executed, must not be null
+   * @see #beginBatch()
+   * @since 1.4.4
+   */
+  public void batch(@Nonnull final Runnable action) {
+    Assertions.assertNotNull(action);
+    beginBatch();
+    try {
+      action.run();
+    }
+    finally {
+      endBatch();
+    }
+  }
+
+  @Nonnull
+  @MustNotContainNull
+  private List<TreeModelEvent> makeNodesChangedEvents(@Nonnull @MustNotContainNull final Set<Topic> topics) {
+    final List<TreeModelEvent> result = new ArrayList<TreeModelEvent>();
+    final Map<Topic, List<Topic>> groupedByParent = new LinkedHashMap<Topic, List<Topic>>();
+    for (final Topic t : topics) {
+      final Topic parent = t.getParent();
+      if (parent == null) {
+        if (t == this.root) {
+          result.add(new TreeModelEvent(this, t.getPath()));
+        }
+      } else {
+        List<Topic> group = groupedByParent.get(parent);
+        if (group == null) {
+          group = new ArrayList<Topic>();
+          groupedByParent.put(parent, group);
+        }
+        group.add(t);
+      }
+    }
+
+    for (final Map.Entry<Topic, List<Topic>> e : groupedByParent.entrySet()) {
+      final Topic parent = e.getKey();
+      final int[] indices = new int[e.getValue().size()];
+      int counter = 0;
+      for (final Topic t : e.getValue()) {
+        final int index = parent.indexOfChild(t);
+        if (index >= 0) {
+          indices[counter++] = index;
+        }
+      }
+      if (counter > 0) {
+        final int[] sorted = Arrays.copyOf(indices, counter);
+        Arrays.sort(sorted);
+        final Object[] children = new Object[counter];
+        for (int i = 0; i < counter; i++) {
+          children[i] = parent.getChildren().get(sorted[i]);
+        }
+        result.add(new TreeModelEvent(this, parent.getPath(), sorted, children));
+      }
+    }
+    return result;
   }
 
   @Nullable
   public Topic cloneTopic(@Nullable final Topic topic, final boolean cloneFullTree) {
-    this.locker.lock();
+    lock();
     try {
       if (topic == null || topic == this.root) {
         return null;
@@ -469,12 +868,12 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
       return clonedtopic;
     }
     finally {
-      this.locker.unlock();
+      unlock();
     }
   }
 
   public boolean removeTopic(@Nullable final Topic topic) {
-    this.locker.lock();
+    lock();
     try {
       final boolean result;
       final Topic rootTopic = this.root;
@@ -497,7 +896,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
       return result;
     }
     finally {
-      this.locker.unlock();
+      unlock();
     }
   }
 
@@ -507,44 +906,203 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     if (link != null) {
       final Topic rootTopic = this.root;
       if (rootTopic != null) {
-        this.locker.lock();
+        this.locker.readLock().lock();
         try {
-          result = rootTopic.findForAttribute(ExtraTopic.TOPIC_UID_ATTR, link.getValue());
+          result = findTopicForUid(link.getValue());
         }
         finally {
-          this.locker.unlock();
+          this.locker.readLock().unlock();
         }
       }
     }
     return result;
   }
 
+  /**
+   * Mark indexes of topic UIDs and extra types as invalid, they will be
+   * rebuilt during next search. Must be called for any structural change of
+   * the topic tree.
+   */
+  void invalidateIndexes() {
+    this.topicUidIndexValid = false;
+    this.extraTypeIndexValid = false;
+    this.searchIndex = null;
+  }
+
+  /**
+   * Drop search index because order of topics has been changed.
+   */
+  void invalidateSearchIndex() {
+    this.searchIndex = null;
+  }
+
+  /**
+   * Update search index for changed text or extras of a topic.
+   *
+   * @param topic topic which searchable content has been changed
+   */
+  void onTopicContentChanged(@Nonnull final Topic topic) {
+    final MindMapSearchIndex index = this.searchIndex;
+    if (index != null && !index.markChanged(topic)) {
+      this.searchIndex = null;
+    }
+  }
+
+  /**
+   * Update index of extra types for added or removed extra of a topic.
+   *
+   * @param topic topic which extras have been changed
+   * @param type type of changed extra
+   * @param presented true if the topic has extra of the type now, false if it
+   * has been removed
+   */
+  void onTopicExtraChanged(@Nonnull final Topic topic, @Nonnull final Extra.ExtraType type, final boolean presented) {
+    onTopicContentChanged(topic);
+    synchronized (this.extraTypeIndex) {
+      if (this.extraTypeIndexValid) {
+        Set<Topic> topics = this.extraTypeIndex.get(type);
+        if (presented) {
+          if (isAttached(topic)) {
+            if (topics == null) {
+              topics = new LinkedHashSet<Topic>();
+              this.extraTypeIndex.put(type, topics);
+            }
+            topics.add(topic);
+          }
+        } else if (topics != null) {
+          topics.remove(topic);
+        }
+      }
+    }
+  }
+
+  /**
+   * Update index of topic UIDs for changed UID attribute of a topic.
+   *
+   * @param topic topic which attribute has been changed
+   * @param oldUid previous value, can be null
+   * @param newUid new value, can be null
+   */
+  void onTopicUidChanged(@Nonnull final Topic topic, @Nullable final String oldUid, @Nullable final String newUid) {
+    synchronized (this.topicUidIndex) {
+      if (this.topicUidIndexValid) {
+        if (oldUid != null && this.topicUidIndex.get(oldUid) == topic) {
+          this.topicUidIndex.remove(oldUid);
+        }
+        if (newUid != null) {
+          final Topic registered = this.topicUidIndex.get(newUid);
+          if (registered == null) {
+            this.topicUidIndex.put(newUid, topic);
+          } else if (registered != topic) {
+            // duplicated UID, the first topic in the tree order must be found
+            this.topicUidIndexValid = false;
+          }
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private Topic findTopicForUid(@Nonnull final String uid) {
+    synchronized (this.topicUidIndex) {
+      if (!this.topicUidIndexValid) {
+        rebuildTopicUidIndex();
+      }
+      Topic result = this.topicUidIndex.get(uid);
+      if (result != null && !(uid.equals(result.getAttribute(ExtraTopic.TOPIC_UID_ATTR)) && isAttached(result))) {
+        rebuildTopicUidIndex();
+        result = this.topicUidIndex.get(uid);
+      }
+      return result;
+    }
+  }
+
+  private boolean isAttached(@Nonnull final Topic topic) {
+    Topic current = topic;
+    while (current.getParent() != null) {
+      current = current.getParent();
+    }
+    return current == this.root;
+  }
+
+  private void rebuildTopicUidIndex() {
+    this.topicUidIndex.clear();
+    final Topic rootTopic = this.root;
+    if (rootTopic != null) {
+      fillTopicUidIndex(rootTopic);
+    }
+    this.topicUidIndexValid = true;
+  }
+
+  private void fillTopicUidIndex(@Nonnull final Topic topic) {
+    final Iterator<Topic> iterator = new Topic.TreeIterator(topic, true);
+    while (iterator.hasNext()) {
+      final Topic t = iterator.next();
+      final String uid = t.getAttribute(ExtraTopic.TOPIC_UID_ATTR);
+      if (uid != null && !this.topicUidIndex.containsKey(uid)) {
+        this.topicUidIndex.put(uid, t);
+      }
+    }
+  }
+
+
+  /**
+   * Find all topics which have extra of the type. Result is provided from
+   * cached index, so that its order is not the tree order for topics which
+   * got the extra after the index has been built.
+   *
+   * @param type type of extra
+   * @return list of found topics, must not be null
+   */
   @Nonnull
   @MustNotContainNull
   public List<Topic> findAllTopicsForExtraType(@Nonnull final Extra.ExtraType type) {
-    final List<Topic> result = new ArrayList<Topic>();
     final Topic rootTopic = this.root;
     if (rootTopic != null) {
-      this.locker.lock();
+      this.locker.readLock().lock();
       try {
-        _findAllTopicsForExtraType(rootTopic, type, result);
+        synchronized (this.extraTypeIndex) {
+          if (!this.extraTypeIndexValid) {
+            rebuildExtraTypeIndex();
+          }
+          final Set<Topic> topics = this.extraTypeIndex.get(type);
+          if (topics != null) {
+            return new ArrayList<Topic>(topics);
+          }
+        }
       }
       finally {
-        this.locker.unlock();
+        this.locker.readLock().unlock();
       }
     }
-    return result;
+    return new ArrayList<Topic>();
   }
 
-  private void _findAllTopicsForExtraType(@Nonnull final Topic topic, @Nonnull final Extra.ExtraType type, @Nonnull @MustNotContainNull final List<Topic> result) {
-    if (topic.getExtras().containsKey(type)) {
-      result.add(topic);
+  private void rebuildExtraTypeIndex() {
+    this.extraTypeIndex.clear();
+    final Topic rootTopic = this.root;
+    if (rootTopic != null) {
+      fillExtraTypeIndex(rootTopic);
     }
-    for (final Topic c : topic.getChildren()) {
-      _findAllTopicsForExtraType(c, type, result);
+    this.extraTypeIndexValid = true;
+  }
+
+  private void fillExtraTypeIndex(@Nonnull final Topic topic) {
+    final Iterator<Topic> iterator = new Topic.TreeIterator(topic, true);
+    while (iterator.hasNext()) {
+      final Topic t = iterator.next();
+      for (final Extra.ExtraType type : t.getExtras().keySet()) {
+        Set<Topic> topics = this.extraTypeIndex.get(type);
+        if (topics == null) {
+          topics = new LinkedHashSet<Topic>();
+          this.extraTypeIndex.put(type, topics);
+        }
+        topics.add(t);
+      }
     }
   }
 
+
   @Override
   @Nonnull
   public Object getChild(@Nonnull final Object parent, final int index) {
@@ -573,7 +1131,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
 
   @Override
   public int getIndexOfChild(@Nonnull final Object parent, @Nullable final Object child) {
-    return ((Topic) parent).getChildren().indexOf(child);
+    return child instanceof Topic ? ((Topic) parent).indexOfChild((Topic) child) : -1;
   }
 
   @Override
@@ -590,12 +1148,12 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     boolean result = false;
     final Topic rootTopic = this.root;
     if (rootTopic != null) {
-      this.locker.lock();
+      this.locker.readLock().lock();
       try {
         return rootTopic.doesContainFileLink(baseFolder, file);
       }
       finally {
-        this.locker.unlock();
+        this.locker.readLock().unlock();
       }
     }
     return result;
@@ -605,12 +1163,12 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     boolean changed = false;
     final Topic rootTopic = this.root;
     if (rootTopic != null) {
-      this.locker.lock();
+      lock();
       try {
         changed = rootTopic.deleteLinkToFileIfPresented(baseFolder, file);
       }
       finally {
-        this.locker.unlock();
+        unlock();
       }
       if (changed) {
         fireModelChanged();
@@ -623,12 +1181,12 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
     boolean changed = false;
     final Topic rootTopic = this.root;
     if (rootTopic != null) {
-      this.locker.lock();
+      lock();
       try {
         changed = rootTopic.replaceLinkToFileIfPresented(baseFolder, oldFile, newFile);
       }
       finally {
-        this.locker.unlock();
+        unlock();
       }
       if (changed) {
         fireModelChanged();
@@ -640,7 +1198,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
   @Nonnull
   @MustNotContainNull
   public List<Topic> makePlainList() {
-    this.locker.lock();
+    this.locker.readLock().lock();
     try {
       final List<Topic> result = new ArrayList<Topic>();
       for (final Topic t : this) {
@@ -649,7 +1207,7 @@ public final class MindMap implements Serializable, Constants, TreeModel, Iterab
       return result;
     }
     finally {
-      this.locker.unlock();
+      this.locker.readLock().unlock();
     }
   }
 
@@ -0,0 +1,515 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
+import com.igormaznitsa.meta.common.utils.Assertions;
+import com.igormaznitsa.mindmap.model.logger.Logger;
+import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
+
+/**
+ * Cache of parsed mind maps in compact binary format. Each source file has
+ * single cache file named by SHA-1 digest of the source file path, SHA-1
+ * digest of the source content is kept inside, so that a cached map is used
+ * only if the source file has exactly the same content and the cache entry is
+ * replaced when the content is changed. Number of cache files is limited, least
+ * recently used files are removed first. The binary
+ * format contains table of unique strings followed by pre-order tree where all
+ * numbers are written as var-ints, so that restoring of a map doesn't need any
+ * lexing or unescaping.
+ *
+ * @since 1.4.4
+ */
+public final class MindMapBinaryCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MindMapBinaryCache.class);
+
+  private static final int MAGIC = 0x4D4D4243;
+  private static final int VERSION = 1;
+  private static final String CACHE_FILE_EXTENSION = ".mmdc"; //NOI18N
+  private static final Extra.ExtraType[] EXTRA_TYPES = Extra.ExtraType.values();
+
+  /**
+   * Default max number of cache files.
+   */
+  public static final int DEFAULT_MAX_FILES = 256;
+
+  private final File cacheFolder;
+  private final int maxFiles;
+
+  /**
+   * Create cache with default limit of files.
+   *
+   * @param cacheFolder folder to keep cache files, it will be created if not
+   * exist, must not be null
+   */
+  public MindMapBinaryCache(@Nonnull final File cacheFolder) {
+    this(cacheFolder, DEFAULT_MAX_FILES);
+  }
+
+  /**
+   * Create cache.
+   *
+   * @param cacheFolder folder to keep cache files, it will be created if not
+   * exist, must not be null
+   * @param maxFiles max number of cache files, must be positive
+   */
+  public MindMapBinaryCache(@Nonnull final File cacheFolder, final int maxFiles) {
+    this.cacheFolder = Assertions.assertNotNull(cacheFolder);
+    if (maxFiles <= 0) {
+      throw new IllegalArgumentException("Max number of files must be positive : " + maxFiles); //NOI18N
+    }
+    this.maxFiles = maxFiles;
+  }
+
+  @Nonnull
+  public File getCacheFolder() {
+    return this.cacheFolder;
+  }
+
+  /**
+   * Load mind map from file. If there is cached map for the file content then
+   * it is restored from the cache, otherwise the file is parsed and the parsed
+   * map is placed into the cache.
+   *
+   * @param controller controller for the loaded map, can be null
+   * @param file mind map file, must not be null
+   * @return loaded mind map
+   * @throws IOException if the file can't be read or parsed
+   */
+  @Nonnull
+  public MindMap load(@Nullable final MindMapController controller, @Nonnull final File file) throws IOException {
+    final byte[] content = FileUtils.readFileToByteArray(file);
+    final byte[] digest = makeDigest(content);
+    final File cacheFile = makeCacheFile(file);
+
+    if (cacheFile.isFile()) {
+      InputStream in = null;
+      try {
+        in = new BufferedInputStream(new FileInputStream(cacheFile), 65536);
+        final MindMap result = read(controller, in, digest, cacheFile.length());
+        if (result != null) {
+          // modification time of cache file is used as last access time
+          if (!cacheFile.setLastModified(System.currentTimeMillis())) {
+            LOGGER.warn("Can't update time of cache file " + cacheFile); //NOI18N
+          }
+          return result;
+        }
+      }
+      catch (Exception ex) {
+        LOGGER.warn("Can't restore cached mind map " + cacheFile + " : " + ex.getMessage()); //NOI18N
+      }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+      FileUtils.deleteQuietly(cacheFile);
+    }
+
+    final MindMap result = new MindMap(controller, new InputStreamReader(new ByteArrayInputStream(content), "UTF-8")); //NOI18N
+    try {
+      store(result, digest, cacheFile);
+    }
+    catch (IOException ex) {
+      LOGGER.warn("Can't write mind map cache " + cacheFile + " : " + ex.getMessage()); //NOI18N
+    }
+    return result;
+  }
+
+  /**
+   * Place map into the cache for current content of its file. It should be
+   * called after saving of the map to avoid parsing during next loading. Cached
+   * map for previous content of the file is replaced.
+   *
+   * @param file file contains the saved map, must not be null
+   * @param map the saved map, must not be null
+   * @throws IOException if any error during reading of the file or writing of
+   * the cache
+   */
+  public void put(@Nonnull final File file, @Nonnull final MindMap map) throws IOException {
+    final byte[] digest = makeDigest(FileUtils.readFileToByteArray(file));
+    store(map, digest, makeCacheFile(file));
+  }
+
+  /**
+   * Remove all cache files.
+   */
+  public void clear() {
+    for (final File f : listCacheFiles()) {
+      FileUtils.deleteQuietly(f);
+    }
+  }
+
+  @Nonnull
+  @MustNotContainNull
+  private List<File> listCacheFiles() {
+    final File[] files = this.cacheFolder.listFiles();
+    final List<File> result = new ArrayList<File>();
+    if (files != null) {
+      for (final File f : files) {
+        if (f.isFile() && f.getName().endsWith(CACHE_FILE_EXTENSION)) {
+          result.add(f);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void removeLeastRecentlyUsed(@Nonnull final File keep) {
+    final List<File> files = listCacheFiles();
+    files.remove(keep);
+    if (files.size() >= this.maxFiles) {
+      final Map<File, Long> times = new HashMap<File, Long>();
+      for (final File f : files) {
+        times.put(f, f.lastModified());
+      }
+      Collections.sort(files, new Comparator<File>() {
+        @Override
+        public int compare(@Nonnull final File o1, @Nonnull final File o2) {
+          return times.get(o1).compareTo(times.get(o2));
+        }
+      });
+      for (final File f : files.subList(0, files.size() - this.maxFiles + 1)) {
+        FileUtils.deleteQuietly(f);
+      }
+    }
+  }
+
+  private void store(@Nonnull final MindMap map, @Nonnull final byte[] digest, @Nonnull final File cacheFile) throws IOException {
+    FileUtils.forceMkdir(this.cacheFolder);
+    final File tempFile = ModelUtils.makeTempFileFor(cacheFile, ".tmp"); //NOI18N
+    OutputStream out = null;
+    try {
+      out = new BufferedOutputStream(new FileOutputStream(tempFile, false), 65536);
+      write(map, out, digest);
+      out.close();
+      out = null;
+      ModelUtils.replaceFile(tempFile, cacheFile);
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+      FileUtils.deleteQuietly(tempFile);
+    }
+    removeLeastRecentlyUsed(cacheFile);
+  }
+
+  @Nonnull
+  private File makeCacheFile(@Nonnull final File source) throws IOException {
+    final byte[] digest = makeDigest(source.getCanonicalPath().getBytes("UTF-8")); //NOI18N
+    final StringBuilder name = new StringBuilder(digest.length * 2 + CACHE_FILE_EXTENSION.length());
+    for (final byte b : digest) {
+      name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return new File(this.cacheFolder, name.append(CACHE_FILE_EXTENSION).toString());
+  }
+
+  @Nonnull
+  private static byte[] makeDigest(@Nonnull final byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-1").digest(content); //NOI18N
+    }
+    catch (NoSuchAlgorithmException ex) {
+      throw new Error("Can't find SHA-1", ex); //NOI18N
+    }
+  }
+
+  /**
+   * Write mind map in binary format.
+   *
+   * @param map map to be written, must not be null
+   * @param out output stream, it is not closed
+   * @param digest digest of source content to be saved in header, can be null
+   * @throws IOException if any error in the stream
+   */
+  public static void write(@Nonnull final MindMap map, @Nonnull final OutputStream out, @Nullable final byte[] digest) throws IOException {
+    final DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    writeVarInt(data, VERSION);
+    final byte[] theDigest = digest == null ? new byte[0] : digest;
+    writeVarInt(data, theDigest.length);
+    data.write(theDigest);
+
+    map.lockRead();
+    try {
+      final Map<String, Integer> strings = new HashMap<String, Integer>();
+      final List<String> stringTable = new ArrayList<String>();
+
+      final Map<String, String> mapAttributes = map.getAttributes();
+      addStrings(strings, stringTable, mapAttributes);
+      final Topic root = map.getRoot();
+      if (root != null) {
+        final Iterator<Topic> iterator = new Topic.TreeIterator(root, true);
+        while (iterator.hasNext()) {
+          final Topic t = iterator.next();
+          addString(strings, stringTable, t.getText());
+          addStrings(strings, stringTable, t.getAttributes());
+          addStrings(strings, stringTable, t.getCodeSnippets());
+          for (final Extra<?> e : t.getExtras().values()) {
+            addString(strings, stringTable, e.provideAsStringForSave());
+          }
+        }
+      }
+
+      writeVarInt(data, stringTable.size());
+      for (final String s : stringTable) {
+        final byte[] bytes = s.getBytes("UTF-8"); //NOI18N
+        writeVarInt(data, bytes.length);
+        data.write(bytes);
+      }
+
+      writeStrings(data, strings, mapAttributes);
+      data.writeBoolean(root != null);
+      if (root != null) {
+        final Iterator<Topic> iterator = new Topic.TreeIterator(root, true);
+        while (iterator.hasNext()) {
+          final Topic t = iterator.next();
+          writeVarInt(data, strings.get(t.getText()));
+          writeStrings(data, strings, t.getAttributes());
+          writeStrings(data, strings, t.getCodeSnippets());
+          final Map<Extra.ExtraType, Extra<?>> extras = t.getExtras();
+          writeVarInt(data, extras.size());
+          for (final Extra<?> e : extras.values()) {
+            writeVarInt(data, e.getType().ordinal());
+            writeVarInt(data, strings.get(e.provideAsStringForSave()));
+          }
+          writeVarInt(data, t.getChildren().size());
+        }
+      }
+    }
+    finally {
+      map.unlockRead();
+    }
+    data.flush();
+  }
+
+  /**
+   * Read mind map written in binary format.
+   *
+   * @param controller controller for the map, can be null
+   * @param in input stream, it is not closed
+   * @param expectedDigest if not null then digest in header must be the same
+   * @return restored map or null if the data has another digest
+   * @throws IOException if wrong format or any error in the stream
+   * @see #read(MindMapController, InputStream, byte[], long)
+   */
+  @Nullable
+  public static MindMap read(@Nullable final MindMapController controller, @Nonnull final InputStream in, @Nullable final byte[] expectedDigest) throws IOException {
+    return read(controller, in, expectedDigest, Long.MAX_VALUE);
+  }
+
+  /**
+   * Read mind map written in binary format from data of known length. Sizes of
+   * tables in the data are checked against the number of bytes left, so that
+   * corrupted data can't force allocation of huge arrays.
+   *
+   * @param controller controller for the map, can be null
+   * @param in input stream, it is not closed
+   * @param expectedDigest if not null then digest in header must be the same
+   * @param dataLength number of bytes available in the stream
+   * @return restored map or null if the data has another digest
+   * @throws IOException if wrong format or any error in the stream
+   * @since 1.4.4
+   */
+  @Nullable
+  public static MindMap read(@Nullable final MindMapController controller, @Nonnull final InputStream in, @Nullable final byte[] expectedDigest, final long dataLength) throws IOException {
+    final CountingInputStream counter = new CountingInputStream(in);
+    final DataInputStream data = new DataInputStream(counter);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Wrong magic number"); //NOI18N
+    }
+    final int version = readVarInt(data);
+    if (version != VERSION) {
+      throw new IOException("Unsupported version " + version); //NOI18N
+    }
+    final byte[] digest = new byte[readSize(data, counter, dataLength)];
+    data.readFully(digest);
+    if (expectedDigest != null && !Arrays.equals(expectedDigest, digest)) {
+      return null;
+    }
+
+    // every string takes at least one byte for its length
+    final String[] strings = new String[readSize(data, counter, dataLength)];
+    byte[] buffer = new byte[256];
+    for (int i = 0; i < strings.length; i++) {
+      final int length = readSize(data, counter, dataLength);
+      if (buffer.length < length) {
+        buffer = new byte[Math.max(length, buffer.length * 2)];
+      }
+      data.readFully(buffer, 0, length);
+      strings[i] = new String(buffer, 0, length, "UTF-8"); //NOI18N
+    }
+
+    final MindMap result = new MindMap(controller, false);
+    for (int i = readVarInt(data); i > 0; i--) {
+      result.setAttribute(strings[readVarInt(data)], strings[readVarInt(data)]);
+    }
+
+    if (data.readBoolean()) {
+      // explicit stack of parents with number of not read children
+      final List<Topic> parents = new ArrayList<Topic>();
+      final List<Integer> childrenLeft = new ArrayList<Integer>();
+      Topic root = null;
+      do {
+        final Topic parent = parents.isEmpty() ? null : parents.get(parents.size() - 1);
+        final Topic topic = readTopic(result, parent, data, counter, dataLength, strings);
+        if (root == null) {
+          root = topic;
+        }
+        if (parent != null) {
+          final int last = childrenLeft.size() - 1;
+          final int left = childrenLeft.get(last) - 1;
+          if (left == 0) {
+            parents.remove(last);
+            childrenLeft.remove(last);
+          } else {
+            childrenLeft.set(last, left);
+          }
+        }
+        final int children = readVarInt(data);
+        if (children > 0) {
+          parents.add(topic);
+          childrenLeft.add(children);
+        }
+      }
+      while (!parents.isEmpty());
+      result.setRoot(root, false);
+    }
+    return result;
+  }
+
+  @Nonnull
+  private static Topic readTopic(@Nonnull final MindMap map, @Nullable final Topic parent, @Nonnull final DataInputStream data, @Nonnull final CountingInputStream counter, final long dataLength, @Nonnull @MustNotContainNull final String[] strings) throws IOException {
+    final String text = strings[readVarInt(data)];
+    final int attributes = readSize(data, counter, dataLength);
+    final String[] attributeValues = new String[attributes * 2];
+    for (int i = 0; i < attributeValues.length; i++) {
+      attributeValues[i] = strings[readVarInt(data)];
+    }
+    final int snippets = readSize(data, counter, dataLength);
+    final String[] snippetValues = new String[snippets * 2];
+    for (int i = 0; i < snippetValues.length; i++) {
+      snippetValues[i] = strings[readVarInt(data)];
+    }
+    final Extra<?>[] extras = new Extra<?>[readSize(data, counter, dataLength)];
+    for (int i = 0; i < extras.length; i++) {
+      final int type = readVarInt(data);
+      final String value = strings[readVarInt(data)];
+      if (type >= EXTRA_TYPES.length) {
+        throw new IOException("Unknown extra type " + type); //NOI18N
+      }
+      try {
+        extras[i] = EXTRA_TYPES[type].makeFromSaved(value);
+      }
+      catch (URISyntaxException ex) {
+        throw new IOException("Wrong URI in cached extra : " + value, ex); //NOI18N
+      }
+    }
+
+    final Topic result = new Topic(map, parent, text, extras);
+    for (int i = 0; i < attributeValues.length; i += 2) {
+      result.setAttribute(attributeValues[i], attributeValues[i + 1]);
+    }
+    for (int i = 0; i < snippetValues.length; i += 2) {
+      result.setCodeSnippet(snippetValues[i], snippetValues[i + 1]);
+    }
+    return result;
+  }
+
+  private static void addString(@Nonnull final Map<String, Integer> strings, @Nonnull @MustNotContainNull final List<String> table, @Nonnull final String str) {
+    if (!strings.containsKey(str)) {
+      strings.put(str, table.size());
+      table.add(str);
+    }
+  }
+
+  private static void addStrings(@Nonnull final Map<String, Integer> strings, @Nonnull @MustNotContainNull final List<String> table, @Nonnull final Map<String, String> map) {
+    for (final Map.Entry<String, String> e : map.entrySet()) {
+      addString(strings, table, e.getKey());
+      addString(strings, table, e.getValue());
+    }
+  }
+
+  private static void writeStrings(@Nonnull final DataOutputStream out, @Nonnull final Map<String, Integer> strings, @Nonnull final Map<String, String> map) throws IOException {
+    writeVarInt(out, map.size());
+    for (final Map.Entry<String, String> e : map.entrySet()) {
+      writeVarInt(out, strings.get(e.getKey()));
+      writeVarInt(out, strings.get(e.getValue()));
+    }
+  }
+
+  private static void writeVarInt(@Nonnull final DataOutputStream out, final int value) throws IOException {
+    int rest = value;
+    while ((rest & ~0x7F) != 0) {
+      out.write((rest & 0x7F) | 0x80);
+      rest >>>= 7;
+    }
+    out.write(rest);
+  }
+
+  private static int readSize(@Nonnull final DataInputStream in, @Nonnull final CountingInputStream counter, final long dataLength) throws IOException {
+    final int size = readVarInt(in);
+    if (size < 0 || size > Math.min(dataLength - counter.getByteCount(), Integer.MAX_VALUE / 2)) {
+      throw new IOException("Wrong size in cached data : " + size); //NOI18N
+    }
+    return size;
+  }
+
+  private static int readVarInt(@Nonnull final DataInputStream in) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      final int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("Wrong var-int"); //NOI18N
+  }
+}
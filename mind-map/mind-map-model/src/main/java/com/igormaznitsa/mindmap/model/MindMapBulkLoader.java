@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.IOUtils;
+
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
+import com.igormaznitsa.meta.common.utils.Assertions;
+
+/**
+ * Loader to read and parse set of mind map files in parallel on bounded pool
+ * of threads. Loaded maps are provided through callback called in worker
+ * threads, so that processing of maps is also made in parallel.
+ *
+ * @since 1.4.4
+ */
+public final class MindMapBulkLoader {
+
+  private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+  private static volatile MindMapBulkLoader defaultLoader;
+
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * Callback to get results of loading. Methods are called from worker threads
+   * concurrently, so that implementation must be thread safe.
+   */
+  public interface Callback {
+
+    /**
+     * Called for successfully loaded mind map.
+     *
+     * @param file source file
+     * @param map loaded mind map, controller is null
+     * @throws Exception any exception will be passed to
+     * {@link #onError(File, Exception)}
+     */
+    void onLoaded(@Nonnull File file, @Nonnull MindMap map) throws Exception;
+
+    /**
+     * Called if file can't be loaded or processed.
+     *
+     * @param file source file
+     * @param error detected error
+     */
+    void onError(@Nonnull File file, @Nonnull Exception error);
+  }
+
+  /**
+   * Handle of started loading job.
+   */
+  public static final class Job {
+
+    private final List<FutureTask<Void>> tasks;
+    private final CountDownLatch latch;
+    private volatile boolean cancelled;
+
+    private Job(final int size) {
+      this.tasks = new ArrayList<FutureTask<Void>>(size);
+      this.latch = new CountDownLatch(size);
+    }
+
+    /**
+     * Cancel the job, files which are not started yet will not be loaded.
+     */
+    public void cancel() {
+      this.cancelled = true;
+      for (final FutureTask<Void> t : this.tasks) {
+        t.cancel(false);
+      }
+    }
+
+    public boolean isCancelled() {
+      return this.cancelled;
+    }
+
+    public boolean isDone() {
+      return this.latch.getCount() == 0L;
+    }
+
+    /**
+     * Wait until all files are processed or cancelled.
+     *
+     * @throws InterruptedException if thread has been interrupted, the job is
+     * cancelled in the case
+     */
+    public void await() throws InterruptedException {
+      try {
+        this.latch.await();
+      }
+      catch (InterruptedException ex) {
+        cancel();
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * Create loader with number of threads equals to number of processors.
+   */
+  public MindMapBulkLoader() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create loader.
+   *
+   * @param threads max number of worker threads, must be greater than zero.
+   * Idle threads are stopped automatically.
+   */
+  public MindMapBulkLoader(final int threads) {
+    Assertions.assertTrue("Number of threads must be positive", threads > 0); //NOI18N
+    final int poolId = POOL_COUNTER.incrementAndGet();
+    this.executor = new ThreadPoolExecutor(threads, threads, 5L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      private final AtomicInteger threadCounter = new AtomicInteger();
+
+      @Override
+      @Nonnull
+      public Thread newThread(@Nonnull final Runnable r) {
+        final Thread result = new Thread(r, "mmd-bulk-loader-" + poolId + '-' + threadCounter.incrementAndGet()); //NOI18N
+        result.setDaemon(true);
+        return result;
+      }
+    });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Get shared loader, its threads are daemons and stopped if idle.
+   *
+   * @return shared loader instance
+   */
+  @Nonnull
+  public static MindMapBulkLoader getDefault() {
+    MindMapBulkLoader result = defaultLoader;
+    if (result == null) {
+      synchronized (MindMapBulkLoader.class) {
+        result = defaultLoader;
+        if (result == null) {
+          result = new MindMapBulkLoader();
+          defaultLoader = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Start loading of files. Files are read as UTF-8 and parsed in stream mode.
+   *
+   * @param files files to be loaded, must not be null
+   * @param callback callback to process results, must not be null
+   * @return handle of started job
+   */
+  @Nonnull
+  public Job load(@Nonnull @MustNotContainNull final Collection<File> files, @Nonnull final Callback callback) {
+    Assertions.assertNotNull(callback);
+    final Job job = new Job(files.size());
+    for (final File f : Assertions.assertDoesntContainNull(files)) {
+      final FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+        @Override
+        public void run() {
+          if (!job.cancelled) {
+            processFile(f, callback);
+          }
+        }
+      }, null) {
+        @Override
+        protected void done() {
+          job.latch.countDown();
+        }
+      };
+      job.tasks.add(task);
+    }
+    for (final FutureTask<Void> t : job.tasks) {
+      this.executor.execute(t);
+    }
+    return job;
+  }
+
+  /**
+   * Load files and wait for completion.
+   *
+   * @param files files to be loaded, must not be null
+   * @param callback callback to process results, must not be null
+   * @throws InterruptedException if thread has been interrupted, the job is
+   * cancelled in the case
+   */
+  public void loadAndWait(@Nonnull @MustNotContainNull final Collection<File> files, @Nonnull final Callback callback) throws InterruptedException {
+    load(files, callback).await();
+  }
+
+  /**
+   * Stop worker threads, not started tasks are cancelled.
+   */
+  public void shutdown() {
+    for (final Runnable r : this.executor.shutdownNow()) {
+      ((FutureTask<?>) r).cancel(false);
+    }
+  }
+
+  private static void processFile(@Nonnull final File file, @Nonnull final Callback callback) {
+    Reader reader = null;
+    try {
+      reader = new InputStreamReader(new FileInputStream(file), "UTF-8"); //NOI18N
+      final MindMap map = new MindMap(null, reader);
+      reader.close();
+      reader = null;
+      callback.onLoaded(file, map);
+    }
+    catch (Exception ex) {
+      callback.onError(file, ex);
+    }
+    finally {
+      IOUtils.closeQuietly(reader);
+    }
+  }
+}
@@ -0,0 +1,519 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
+import com.igormaznitsa.meta.common.utils.Assertions;
+import com.igormaznitsa.mindmap.model.logger.Logger;
+import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
+
+/**
+ * Incremental index of links contained in mind map files of a project folder.
+ * For every map it keeps outgoing file links, URL links, jump targets and
+ * topic UIDs. Entries are keyed by file path and checked by modification time
+ * and size, so that only changed maps are parsed during update. The index can
+ * be persisted into a file to be reused between sessions.
+ *
+ * @since 1.4.4
+ */
+public final class MindMapLinkIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MindMapLinkIndex.class);
+
+  private static final int MAGIC = 0x4D4D4C49;
+  private static final int FORMAT_VERSION = 2;
+
+  /**
+   * Flag shows that files are compared ignoring case on the platform, so that
+   * keys of file links must be compared in the same manner as files.
+   */
+  private static final boolean CASE_INSENSITIVE_FILES = new File("a").equals(new File("A")); //NOI18N
+
+  private final File projectFolder;
+  private final File indexFile;
+
+  private final Map<File, Entry> entries = new HashMap<File, Entry>();
+  private final TreeMap<String, Set<File>> reverseFileLinks = new TreeMap<String, Set<File>>();
+
+  /**
+   * Indexed information about one mind map file.
+   */
+  public static final class Entry {
+
+    private final File file;
+    private final long lastModified;
+    private final long length;
+    private final List<MMapURI> fileLinks;
+    private final List<String> urlLinks;
+    private final List<String> jumpTargets;
+    private final List<String> topicUids;
+
+    private Entry(@Nonnull final File file, final long lastModified, final long length, @Nonnull @MustNotContainNull final List<MMapURI> fileLinks, @Nonnull @MustNotContainNull final List<String> urlLinks, @Nonnull @MustNotContainNull final List<String> jumpTargets, @Nonnull @MustNotContainNull final List<String> topicUids) {
+      this.file = file;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.fileLinks = Collections.unmodifiableList(fileLinks);
+      this.urlLinks = Collections.unmodifiableList(urlLinks);
+      this.jumpTargets = Collections.unmodifiableList(jumpTargets);
+      this.topicUids = Collections.unmodifiableList(topicUids);
+    }
+
+    @Nonnull
+    private static Entry makeForMap(@Nonnull final File file, final long lastModified, final long length, @Nonnull final MindMap map) {
+      final List<MMapURI> fileLinks = new ArrayList<MMapURI>();
+      final List<String> urlLinks = new ArrayList<String>();
+      final List<String> jumpTargets = new ArrayList<String>();
+      final List<String> topicUids = new ArrayList<String>();
+
+      for (final Topic t : map) {
+        final ExtraFile extraFile = (ExtraFile) t.getExtras().get(Extra.ExtraType.FILE);
+        if (extraFile != null) {
+          fileLinks.add(extraFile.getAsURI());
+        }
+        final ExtraLink extraLink = (ExtraLink) t.getExtras().get(Extra.ExtraType.LINK);
+        if (extraLink != null) {
+          urlLinks.add(extraLink.provideAsStringForSave());
+        }
+        final ExtraTopic extraTopic = (ExtraTopic) t.getExtras().get(Extra.ExtraType.TOPIC);
+        if (extraTopic != null) {
+          jumpTargets.add(extraTopic.getValue());
+        }
+        final String uid = t.getAttribute(ExtraTopic.TOPIC_UID_ATTR);
+        if (uid != null) {
+          topicUids.add(uid);
+        }
+      }
+
+      return new Entry(file, lastModified, length, fileLinks, urlLinks, jumpTargets, topicUids);
+    }
+
+    @Nonnull
+    public File getFile() {
+      return this.file;
+    }
+
+    public long getLastModified() {
+      return this.lastModified;
+    }
+
+    public long getLength() {
+      return this.length;
+    }
+
+    @Nonnull
+    @MustNotContainNull
+    public List<MMapURI> getFileLinks() {
+      return this.fileLinks;
+    }
+
+    @Nonnull
+    @MustNotContainNull
+    public List<String> getUrlLinks() {
+      return this.urlLinks;
+    }
+
+    @Nonnull
+    @MustNotContainNull
+    public List<String> getJumpTargets() {
+      return this.jumpTargets;
+    }
+
+    @Nonnull
+    @MustNotContainNull
+    public List<String> getTopicUids() {
+      return this.topicUids;
+    }
+
+    private boolean isActual(@Nonnull final File file) {
+      return this.lastModified == file.lastModified() && this.length == file.length();
+    }
+  }
+
+  /**
+   * Create index.
+   *
+   * @param projectFolder folder of project, relative links are resolved
+   * against it, must not be null
+   * @param indexFile file to persist index, can be null for in-memory index
+   */
+  public MindMapLinkIndex(@Nonnull final File projectFolder, @Nullable final File indexFile) {
+    this.projectFolder = Assertions.assertNotNull(projectFolder);
+    this.indexFile = indexFile;
+  }
+
+  @Nonnull
+  public File getProjectFolder() {
+    return this.projectFolder;
+  }
+
+  @Nullable
+  public File getIndexFile() {
+    return this.indexFile;
+  }
+
+  @Nonnull
+  private static String makeKey(@Nonnull final File file) {
+    return makeKey(file, CASE_INSENSITIVE_FILES);
+  }
+
+  @Nonnull
+  static String makeKey(@Nonnull final File file, final boolean ignoreCase) {
+    final String path = file.getAbsolutePath();
+    final String normalized = FilenameUtils.normalizeNoEndSeparator(path);
+    final String result = normalized == null ? path : normalized;
+    return ignoreCase ? result.toLowerCase(Locale.ROOT) : result;
+  }
+
+  private void register(@Nonnull final Entry entry) {
+    final Entry old = this.entries.put(entry.file, entry);
+    if (old != null) {
+      unregisterLinks(old);
+    }
+    for (final MMapURI uri : entry.fileLinks) {
+      final String key = makeKey(uri.asFile(this.projectFolder));
+      Set<File> maps = this.reverseFileLinks.get(key);
+      if (maps == null) {
+        maps = new HashSet<File>();
+        this.reverseFileLinks.put(key, maps);
+      }
+      maps.add(entry.file);
+    }
+  }
+
+  private void unregisterLinks(@Nonnull final Entry entry) {
+    for (final MMapURI uri : entry.fileLinks) {
+      final String key = makeKey(uri.asFile(this.projectFolder));
+      final Set<File> maps = this.reverseFileLinks.get(key);
+      if (maps != null) {
+        maps.remove(entry.file);
+        if (maps.isEmpty()) {
+          this.reverseFileLinks.remove(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Load saved index from the index file. If the file is not found or can't be
+   * read then the index becomes empty.
+   */
+  public synchronized void load() {
+    this.entries.clear();
+    this.reverseFileLinks.clear();
+
+    if (this.indexFile == null || !this.indexFile.isFile()) {
+      return;
+    }
+
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.indexFile)));
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        LOGGER.warn("Unsupported format of link index, it will be rebuilt : " + this.indexFile); //NOI18N
+        return;
+      }
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        final File file = new File(readString(in));
+        final long lastModified = in.readLong();
+        final long length = in.readLong();
+
+        final List<String> fileLinkStrings = readStrings(in);
+        final List<MMapURI> fileLinks = new ArrayList<MMapURI>(fileLinkStrings.size());
+        for (final String s : fileLinkStrings) {
+          fileLinks.add(new MMapURI(s));
+        }
+
+        register(new Entry(file, lastModified, length, fileLinks, readStrings(in), readStrings(in), readStrings(in)));
+      }
+    }
+    catch (IOException ex) {
+      LOGGER.error("Can't read link index, it will be rebuilt : " + this.indexFile, ex); //NOI18N
+      this.entries.clear();
+      this.reverseFileLinks.clear();
+    }
+    catch (URISyntaxException ex) {
+      LOGGER.error("Detected wrong URI in link index, it will be rebuilt : " + this.indexFile, ex); //NOI18N
+      this.entries.clear();
+      this.reverseFileLinks.clear();
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Save index into the index file, does nothing for in-memory index. Data is
+   * written into temporary file which then replaces the index file.
+   *
+   * @throws IOException if it is impossible to write the file
+   */
+  public synchronized void save() throws IOException {
+    if (this.indexFile == null) {
+      return;
+    }
+
+    final File folder = this.indexFile.getAbsoluteFile().getParentFile();
+    if (folder != null && !folder.isDirectory() && !folder.mkdirs()) {
+      throw new IOException("Can't create folder for link index : " + folder); //NOI18N
+    }
+
+    final File tempFile = ModelUtils.makeTempFileFor(this.indexFile, ".tmp"); //NOI18N
+    try {
+      writeIndex(tempFile);
+      ModelUtils.replaceFile(tempFile, this.indexFile);
+    }
+    finally {
+      if (tempFile.isFile() && !tempFile.delete()) {
+        LOGGER.warn("Can't delete temporary link index file : " + tempFile); //NOI18N
+      }
+    }
+  }
+
+  private void writeIndex(@Nonnull final File file) throws IOException {
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(this.entries.size());
+      for (final Entry e : this.entries.values()) {
+        writeString(out, e.file.getPath());
+        out.writeLong(e.lastModified);
+        out.writeLong(e.length);
+        out.writeInt(e.fileLinks.size());
+        for (final MMapURI uri : e.fileLinks) {
+          writeString(out, uri.toString());
+        }
+        writeStrings(out, e.urlLinks);
+        writeStrings(out, e.jumpTargets);
+        writeStrings(out, e.topicUids);
+      }
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  @Nonnull
+  @MustNotContainNull
+  private static List<String> readStrings(@Nonnull final DataInputStream in) throws IOException {
+    final int size = in.readInt();
+    final List<String> result = new ArrayList<String>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(readString(in));
+    }
+    return result;
+  }
+
+  private static void writeStrings(@Nonnull final DataOutputStream out, @Nonnull @MustNotContainNull final List<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (final String s : strings) {
+      writeString(out, s);
+    }
+  }
+
+  @Nonnull
+  private static String readString(@Nonnull final DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Wrong string length : " + length); //NOI18N
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8"); //NOI18N
+  }
+
+  private static void writeString(@Nonnull final DataOutputStream out, @Nonnull final String str) throws IOException {
+    // writeUTF can't write strings longer than 65535 encoded bytes
+    final byte[] bytes = str.getBytes("UTF-8"); //NOI18N
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Scan project folder and update index for new and changed mind maps,
+   * entries of removed maps are removed. Changed maps are parsed in parallel
+   * by {@link MindMapBulkLoader}. The index is saved if it has been changed.
+   *
+   * @return number of changed entries
+   * @throws InterruptedException if thread has been interrupted during update
+   */
+  public int update() throws InterruptedException {
+    final Collection<File> files = this.projectFolder.isDirectory()
+        ? FileUtils.listFiles(this.projectFolder, new String[]{"mmd", "MMD"}, true) //NOI18N
+        : Collections.<File>emptyList();
+    return update(files, true);
+  }
+
+  /**
+   * Update index for listed mind map files.
+   *
+   * @param mapFiles all mind map files which should be presented in index
+   * @param removeOthers if true then entries for files not presented in the
+   * list are removed
+   * @return number of changed entries
+   * @throws InterruptedException if thread has been interrupted during update
+   */
+  public int update(@Nonnull @MustNotContainNull final Collection<File> mapFiles, final boolean removeOthers) throws InterruptedException {
+    final Map<File, long[]> changedFiles = new HashMap<File, long[]>();
+    final Set<File> existingFiles = new HashSet<File>();
+    int changes = 0;
+
+    synchronized (this) {
+      for (final File f : mapFiles) {
+        final File file = f.getAbsoluteFile();
+        existingFiles.add(file);
+        final Entry entry = this.entries.get(file);
+        if (entry == null || !entry.isActual(file)) {
+          changedFiles.put(file, new long[]{file.lastModified(), file.length()});
+        }
+      }
+
+      if (removeOthers) {
+        final Iterator<Map.Entry<File, Entry>> iterator = this.entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+          final Entry entry = iterator.next().getValue();
+          if (!existingFiles.contains(entry.file)) {
+            iterator.remove();
+            unregisterLinks(entry);
+            changes++;
+          }
+        }
+      }
+    }
+
+    if (!changedFiles.isEmpty()) {
+      final Map<File, Entry> loaded = new ConcurrentHashMap<File, Entry>();
+      MindMapBulkLoader.getDefault().loadAndWait(changedFiles.keySet(), new MindMapBulkLoader.Callback() {
+        @Override
+        public void onLoaded(@Nonnull final File file, @Nonnull final MindMap map) {
+          final long[] attrs = changedFiles.get(file);
+          loaded.put(file, Entry.makeForMap(file, attrs[0], attrs[1], map));
+        }
+
+        @Override
+        public void onError(@Nonnull final File file, @Nonnull final Exception error) {
+          // entry is not registered so that the file is loaded again during next update
+          LOGGER.error("Can't index mind map : " + file, error); //NOI18N
+        }
+      });
+
+      synchronized (this) {
+        for (final Entry e : loaded.values()) {
+          register(e);
+          changes++;
+        }
+      }
+    }
+
+    if (changes > 0 && this.indexFile != null) {
+      try {
+        save();
+      }
+      catch (IOException ex) {
+        LOGGER.error("Can't save link index : " + this.indexFile, ex); //NOI18N
+      }
+    }
+
+    return changes;
+  }
+
+  /**
+   * Get indexed information for mind map file.
+   *
+   * @param mapFile mind map file
+   * @return found entry or null if file is not indexed
+   */
+  @Nullable
+  public synchronized Entry getEntry(@Nonnull final File mapFile) {
+    return this.entries.get(mapFile.getAbsoluteFile());
+  }
+
+  /**
+   * Get all indexed mind map files.
+   *
+   * @return list of indexed files
+   */
+  @Nonnull
+  @MustNotContainNull
+  public synchronized List<File> getIndexedMaps() {
+    return new ArrayList<File>(this.entries.keySet());
+  }
+
+  /**
+   * Find mind maps which contain file links to file. If the file is folder
+   * then links to the folder and to all its content are taken into account.
+   *
+   * @param file file or folder
+   * @return set of found mind map files
+   */
+  @Nonnull
+  @MustNotContainNull
+  public synchronized Set<File> findMapsLinkingTo(@Nonnull final File file) {
+    final File target = file.isAbsolute() ? file : new File(this.projectFolder, file.getPath());
+    final String key = makeKey(target);
+
+    final Set<File> result = new LinkedHashSet<File>();
+    final Set<File> exact = this.reverseFileLinks.get(key);
+    if (exact != null) {
+      result.addAll(exact);
+    }
+
+    if (target.isDirectory()) {
+      final String prefix = key.endsWith(File.separator) ? key : key + File.separator;
+      final SortedMap<String, Set<File>> tail = this.reverseFileLinks.tailMap(prefix);
+      for (final Map.Entry<String, Set<File>> e : tail.entrySet()) {
+        if (!e.getKey().startsWith(prefix)) {
+          break;
+        }
+        result.addAll(e.getValue());
+      }
+    }
+
+    return result;
+  }
+}
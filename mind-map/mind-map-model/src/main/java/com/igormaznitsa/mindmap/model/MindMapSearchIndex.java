@@ -0,0 +1,505 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
+
+/**
+ * Inverted index of trigrams of topic texts, notes, links and file paths. The
+ * index keeps topics in the tree order and for every trigram it keeps sorted
+ * positions of topics which contain it, so that next or previous candidate
+ * after a topic is found by binary search. Candidates are always checked by
+ * the search pattern, the index only allows to skip topics which can't contain
+ * literal parts of the pattern.
+ * <p>
+ * The index is built for the current tree structure and must be dropped for
+ * any structural change. Changed content of a topic is processed by marking
+ * the topic as changed, such topics are checked for every search. Methods
+ * which work with changed topics are synchronized because search can be made
+ * by several readers.
+ *
+ * @since 1.4.4
+ */
+final class MindMapSearchIndex {
+
+  /**
+   * Max number of changed topics, the index should be rebuilt if there are more
+   * changed ones.
+   */
+  private static final int MAX_CHANGED_TOPICS = 512;
+
+  private static final int[] NO_POSITIONS = new int[0];
+
+  private final Topic[] topics;
+  private final Map<Topic, Integer> positions;
+  private final Map<Long, int[]> postings;
+  /**
+   * Positions of topics which content is not presented in postings, they must
+   * be checked for every search.
+   */
+  private final TreeSet<Integer> unindexed = new TreeSet<Integer>();
+  private int changedCounter;
+
+  private MindMapSearchIndex(@Nonnull @MustNotContainNull final Topic[] topics, @Nonnull final Map<Topic, Integer> positions, @Nonnull final Map<Long, int[]> postings) {
+    this.topics = topics;
+    this.positions = positions;
+    this.postings = postings;
+  }
+
+  /**
+   * Build index for the topic and its descendants.
+   *
+   * @param root root topic
+   * @return built index
+   */
+  @Nonnull
+  static MindMapSearchIndex build(@Nonnull final Topic root) {
+    final List<Topic> list = new ArrayList<Topic>();
+    final Iterator<Topic> iterator = new Topic.TreeIterator(root, true);
+    while (iterator.hasNext()) {
+      list.add(iterator.next());
+    }
+
+    final Topic[] topics = list.toArray(new Topic[list.size()]);
+    final Map<Topic, Integer> positions = new IdentityHashMap<Topic, Integer>(topics.length);
+    final Map<Long, PositionList> collected = new HashMap<Long, PositionList>();
+    final List<Integer> unindexed = new ArrayList<Integer>();
+
+    for (int i = 0; i < topics.length; i++) {
+      final Topic topic = topics[i];
+      positions.put(topic, i);
+      addTrigrams(collected, topic.getText(), i);
+      for (final Extra<?> extra : topic.getExtras().values()) {
+        final String text = makeSearchableText(extra);
+        if (text == null) {
+          if (extra.getType() == Extra.ExtraType.FILE) {
+            unindexed.add(i);
+          }
+        } else {
+          addTrigrams(collected, text, i);
+        }
+      }
+    }
+
+    final Map<Long, int[]> postings = new HashMap<Long, int[]>(collected.size() * 4 / 3 + 1);
+    for (final Map.Entry<Long, PositionList> e : collected.entrySet()) {
+      postings.put(e.getKey(), e.getValue().toArray());
+    }
+
+    final MindMapSearchIndex result = new MindMapSearchIndex(topics, positions, postings);
+    result.unindexed.addAll(unindexed);
+    return result;
+  }
+
+  /**
+   * Get text of extra which is matched by its containsPattern method.
+   *
+   * @param extra extra to be processed
+   * @return text or null if the text can't be known without base folder or if
+   * the extra is not searchable
+   */
+  @Nullable
+  private static String makeSearchableText(@Nonnull final Extra<?> extra) {
+    switch (extra.getType()) {
+      case NOTE:
+        return ((ExtraNote) extra).getValue();
+      case LINK:
+        return ((ExtraLink) extra).getValue().toString();
+      case FILE: {
+        final ExtraFile file = (ExtraFile) extra;
+        return file.isAbsolute() ? file.getNormalizedPath(null) : null;
+      }
+      default:
+        return null;
+    }
+  }
+
+  private static char fold(final char c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  private static long makeTrigram(final char a, final char b, final char c) {
+    return ((long) a << 32) | ((long) b << 16) | c;
+  }
+
+  private static void addTrigrams(@Nonnull final Map<Long, PositionList> collected, @Nonnull final String text, final int position) {
+    if (text.length() >= 3) {
+      char a = fold(text.charAt(0));
+      char b = fold(text.charAt(1));
+      for (int i = 2; i < text.length(); i++) {
+        final char c = fold(text.charAt(i));
+        final Long key = makeTrigram(a, b, c);
+        PositionList list = collected.get(key);
+        if (list == null) {
+          list = new PositionList();
+          collected.put(key, list);
+        }
+        list.add(position);
+        a = b;
+        b = c;
+      }
+    }
+  }
+
+  int size() {
+    return this.topics.length;
+  }
+
+  /**
+   * Get position of topic in the tree order.
+   *
+   * @param topic topic to find
+   * @return position or -1 if the topic is not indexed
+   */
+  int positionOf(@Nonnull final Topic topic) {
+    final Integer result = this.positions.get(topic);
+    return result == null ? -1 : result;
+  }
+
+  /**
+   * Register changed content of indexed topic.
+   *
+   * @param topic changed topic
+   * @return false if the index can't be used anymore and must be rebuilt
+   */
+  synchronized boolean markChanged(@Nonnull final Topic topic) {
+    final int position = positionOf(topic);
+    if (position < 0 || ++this.changedCounter > MAX_CHANGED_TOPICS) {
+      return false;
+    }
+    this.unindexed.add(position);
+    return true;
+  }
+
+  /**
+   * Find first topic in the tree order starting from position which contains
+   * the pattern.
+   *
+   * @param position start position, inclusive
+   * @param forward true to search forward, false to search backward
+   * @param baseFolder base folder for file links
+   * @param pattern pattern to find
+   * @param findInTopicText search in topic texts
+   * @param extrasToFind types of extras to search in
+   * @return found topic or null
+   */
+  @Nullable
+  synchronized Topic find(final int position, final boolean forward, @Nullable final File baseFolder, @Nonnull final Pattern pattern, final boolean findInTopicText, @Nullable final Set<Extra.ExtraType> extrasToFind) {
+    final long[] trigrams = makeQueryTrigrams(pattern);
+    if (trigrams == null) {
+      return scan(position, forward, baseFolder, pattern, findInTopicText, extrasToFind);
+    }
+
+    final int[][] lists = new int[trigrams.length][];
+    int driver = 0;
+    for (int i = 0; i < trigrams.length; i++) {
+      final int[] list = this.postings.get(trigrams[i]);
+      lists[i] = list == null ? NO_POSITIONS : list;
+      if (lists[i].length < lists[driver].length) {
+        driver = i;
+      }
+    }
+    final int[] driverList = lists[driver];
+
+    int listIndex = Arrays.binarySearch(driverList, position);
+    if (listIndex < 0) {
+      listIndex = forward ? -listIndex - 1 : -listIndex - 2;
+    }
+    Integer unindexedPosition = forward ? this.unindexed.ceiling(position) : this.unindexed.floor(position);
+
+    while (true) {
+      final int listPosition = listIndex >= 0 && listIndex < driverList.length ? driverList[listIndex] : -1;
+      final int candidate;
+      if (listPosition < 0) {
+        if (unindexedPosition == null) {
+          break;
+        }
+        candidate = unindexedPosition;
+      } else if (unindexedPosition == null) {
+        candidate = listPosition;
+      } else {
+        candidate = forward ? Math.min(listPosition, unindexedPosition) : Math.max(listPosition, unindexedPosition);
+      }
+
+      if (candidate == listPosition) {
+        listIndex += forward ? 1 : -1;
+      }
+      final boolean wasUnindexed = unindexedPosition != null && candidate == unindexedPosition;
+      if (wasUnindexed) {
+        unindexedPosition = forward ? this.unindexed.higher(candidate) : this.unindexed.lower(candidate);
+      }
+
+      boolean candidateHasAllTrigrams = true;
+      if (!wasUnindexed) {
+        for (int i = 0; i < lists.length && candidateHasAllTrigrams; i++) {
+          candidateHasAllTrigrams = i == driver || Arrays.binarySearch(lists[i], candidate) >= 0;
+        }
+      }
+      if (candidateHasAllTrigrams && this.topics[candidate].containsPattern(baseFolder, pattern, findInTopicText, extrasToFind)) {
+        return this.topics[candidate];
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private Topic scan(final int position, final boolean forward, @Nullable final File baseFolder, @Nonnull final Pattern pattern, final boolean findInTopicText, @Nullable final Set<Extra.ExtraType> extrasToFind) {
+    final int step = forward ? 1 : -1;
+    for (int i = position; i >= 0 && i < this.topics.length; i += step) {
+      if (this.topics[i].containsPattern(baseFolder, pattern, findInTopicText, extrasToFind)) {
+        return this.topics[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Make trigrams of literal parts which must be presented in any text matched
+   * by the pattern.
+   *
+   * @param pattern pattern to be analyzed
+   * @return array of trigrams or null if the pattern doesn't have literal part
+   * long enough or it can't be analyzed
+   */
+  @Nullable
+  static long[] makeQueryTrigrams(@Nonnull final Pattern pattern) {
+    final List<String> literals = extractLiterals(pattern);
+    if (literals == null) {
+      return null;
+    }
+    final Set<Long> result = new TreeSet<Long>();
+    for (final String s : literals) {
+      for (int i = 2; i < s.length(); i++) {
+        result.add(makeTrigram(fold(s.charAt(i - 2)), fold(s.charAt(i - 1)), fold(s.charAt(i))));
+      }
+    }
+    if (result.isEmpty()) {
+      return null;
+    }
+    final long[] array = new long[result.size()];
+    int index = 0;
+    for (final Long l : result) {
+      array[index++] = l;
+    }
+    return array;
+  }
+
+  /**
+   * Extract literal parts of pattern which must be presented in any matched
+   * text. Characters, escaped characters, unicode and hex escapes and quoted
+   * blocks are recognized, other constructions split literals; alternations,
+   * groups and character classes are not supported.
+   *
+   * @param pattern pattern to be analyzed
+   * @return list of literals or null if the pattern is not supported
+   */
+  @Nullable
+  @MustNotContainNull
+  static List<String> extractLiterals(@Nonnull final Pattern pattern) {
+    final String text = pattern.pattern();
+    final int flags = pattern.flags();
+    final List<String> result = new ArrayList<String>();
+
+    if ((flags & Pattern.LITERAL) != 0) {
+      result.add(text);
+      return result;
+    }
+    if ((flags & (Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) {
+      return null;
+    }
+
+    final StringBuilder current = new StringBuilder();
+    int i = 0;
+    while (i < text.length()) {
+      final char c = text.charAt(i);
+      switch (c) {
+        case '\\': {
+          if (i + 1 >= text.length()) {
+            return null;
+          }
+          final char next = text.charAt(i + 1);
+          switch (next) {
+            case 'Q': {
+              final int end = text.indexOf("\\E", i + 2); //NOI18N
+              current.append(text, i + 2, end < 0 ? text.length() : end);
+              i = end < 0 ? text.length() : end + 2;
+            }
+            break;
+            case 'u': {
+              if (i + 6 > text.length()) {
+                return null;
+              }
+              try {
+                current.append((char) Integer.parseInt(text.substring(i + 2, i + 6), 16));
+              }
+              catch (NumberFormatException ex) {
+                return null;
+              }
+              i += 6;
+            }
+            break;
+            case 'x': {
+              if (i + 4 > text.length() || text.charAt(i + 2) == '{') {
+                return null;
+              }
+              try {
+                current.append((char) Integer.parseInt(text.substring(i + 2, i + 4), 16));
+              }
+              catch (NumberFormatException ex) {
+                return null;
+              }
+              i += 4;
+            }
+            break;
+            case 't':
+              current.append('\t');
+              i += 2;
+              break;
+            case 'n':
+              current.append('\n');
+              i += 2;
+              break;
+            case 'r':
+              current.append('\r');
+              i += 2;
+              break;
+            case 'f':
+              current.append('\f');
+              i += 2;
+              break;
+            case 'p':
+            case 'P':
+            case 'k':
+            case 'N':
+            case 'c':
+            case '0':
+              return null;
+            default: {
+              if (Character.isLetterOrDigit(next)) {
+                // predefined class, boundary or back reference
+                flushLiteral(current, result);
+              } else {
+                current.append(next);
+              }
+              i += 2;
+            }
+            break;
+          }
+        }
+        break;
+        case '?':
+        case '*':
+        case '+':
+        case '{': {
+          // quantifier makes the last char optional or repeated
+          if (current.length() > 0) {
+            current.setLength(current.length() - 1);
+          }
+          flushLiteral(current, result);
+          if (c == '{') {
+            final int end = text.indexOf('}', i);
+            if (end < 0) {
+              return null;
+            }
+            i = end;
+          }
+          i++;
+          if (i < text.length() && (text.charAt(i) == '?' || text.charAt(i) == '+')) {
+            i++;
+          }
+        }
+        break;
+        case '.':
+        case '^':
+        case '$': {
+          flushLiteral(current, result);
+          i++;
+        }
+        break;
+        case '|':
+        case '(':
+        case ')':
+        case '[':
+        case ']':
+          return null;
+        default: {
+          current.append(c);
+          i++;
+        }
+        break;
+      }
+    }
+    flushLiteral(current, result);
+    return result;
+  }
+
+  private static void flushLiteral(@Nonnull final StringBuilder buffer, @Nonnull @MustNotContainNull final List<String> result) {
+    if (buffer.length() > 0) {
+      result.add(buffer.toString());
+      buffer.setLength(0);
+    }
+  }
+
+  synchronized long estimateRetainedBytes() {
+    long result = RetainedSizeEstimator.shallowSizeOf(MindMapSearchIndex.class)
+        + RetainedSizeEstimator.sizeOfArray(this.topics.length, RetainedSizeEstimator.REFERENCE)
+        + RetainedSizeEstimator.sizeOfArray(this.topics.length * 2, RetainedSizeEstimator.REFERENCE)
+        + (long) this.topics.length * 16L
+        + (long) this.unindexed.size() * RetainedSizeEstimator.TREE_ENTRY;
+    for (final int[] list : this.postings.values()) {
+      result += RetainedSizeEstimator.HASH_ENTRY + 24L + RetainedSizeEstimator.sizeOfArray(list.length, 4);
+    }
+    return result;
+  }
+
+  /**
+   * Growable list of increasing positions without duplicates.
+   */
+  private static final class PositionList {
+
+    private int[] data = new int[4];
+    private int size;
+
+    void add(final int position) {
+      if (this.size == 0 || this.data[this.size - 1] != position) {
+        if (this.size == this.data.length) {
+          this.data = Arrays.copyOf(this.data, this.size << 1);
+        }
+        this.data[this.size++] = position;
+      }
+    }
+
+    @Nonnull
+    int[] toArray() {
+      return this.size == this.data.length ? this.data : Arrays.copyOf(this.data, this.size);
+    }
+  }
+}
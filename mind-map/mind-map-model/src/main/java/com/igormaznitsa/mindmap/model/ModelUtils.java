@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
@@ -55,6 +56,7 @@ public final class ModelUtils {
   private static final Pattern UNESCAPE_BR = Pattern.compile("(?i)\\<\\s*?br\\s*?\\/?\\>"); //NOI18N
   private static final Pattern MD_ESCAPED_PATTERN = Pattern.compile("(\\\\[\\\\`*_{}\\[\\]()#<>+-.!])"); //NOI18N
   private static final String MD_ESCAPED_CHARS = "\\`*_{}[]()#<>+-.!"; //NOI18N
+  private static final String MD_UNESCAPED_CHARS = MD_ESCAPED_CHARS + ','; // MD_ESCAPED_PATTERN contains range +-. which includes comma
   private static final Pattern URI_QUERY_PARAMETERS = Pattern.compile("\\&?([^=]+)=([^&]*)"); //NOI18N
 
   private static final class StringComparator implements Comparator<String>,Serializable {
@@ -81,6 +83,18 @@ public final class ModelUtils {
     return result;
   }
 
+  public static int calcCharsOnStart(final char chr, @Nonnull final CharSequence text, final int start, final int end) {
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      if (text.charAt(i) == chr) {
+        result++;
+      } else {
+        break;
+      }
+    }
+    return result;
+  }
+
   public static boolean onlyFromChar(@Nonnull final String line, final char chr) {
     if (line.isEmpty()) {
       return false;
@@ -116,34 +130,83 @@ public final class ModelUtils {
     return "<pre>" + StringEscapeUtils.escapeHtml(text) + "</pre>"; //NOI18N
   }
 
+  /**
+   * Write text as HTML escaped PRE block directly into writer.
+   *
+   * @param out target writer
+   * @param text text to be written
+   * @throws IOException if any error in the writer
+   * @see #makePreBlock(String)
+   * @since 1.4.4
+   */
+  public static void writePreBlock(@Nonnull final Writer out, @Nonnull final String text) throws IOException {
+    out.write("<pre>"); //NOI18N
+    StringEscapeUtils.escapeHtml(out, text);
+    out.write("</pre>"); //NOI18N
+  }
+
   @Nonnull
   public static String makeMDCodeBlock(@Nonnull final String text) throws IOException {
-    final int maxQuotes = calcMaxLengthOfBacktickQuotesSubstr(text) + 1;
     final StringBuilder result = new StringBuilder(text.length() + 16);
-    writeChar(result, '`', maxQuotes);
-    result.append(text);
-    writeChar(result, '`', maxQuotes);
+    writeMDCodeBlock(result, text);
     return result.toString();
   }
 
+  /**
+   * Write text as markdown code block directly into appendable.
+   *
+   * @param out target appendable
+   * @param text text to be written
+   * @throws IOException if any error in the appendable
+   * @see #makeMDCodeBlock(String)
+   * @since 1.4.4
+   */
+  public static void writeMDCodeBlock(@Nonnull final Appendable out, @Nonnull final String text) throws IOException {
+    final int maxQuotes = calcMaxLengthOfBacktickQuotesSubstr(text) + 1;
+    writeChar(out, '`', maxQuotes);
+    out.append(text);
+    writeChar(out, '`', maxQuotes);
+  }
+
   @Nonnull
   public static String escapeMarkdownStr(@Nonnull final String text) {
     final StringBuilder buffer = new StringBuilder(text.length() * 2);
-    for (final char c : text.toCharArray()) {
+    try {
+      writeEscapedMarkdownStr(buffer, text);
+    }
+    catch (IOException ex) {
+      throw new Error("Unexpected exception", ex); //NOI18N
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * Escape markdown text directly into appendable, unchanged runs of chars are
+   * appended as ranges of the source string without intermediate buffers.
+   *
+   * @param out target appendable
+   * @param text text to be escaped
+   * @throws IOException if any error in the appendable
+   * @see #escapeMarkdownStr(String)
+   * @since 1.4.4
+   */
+  public static void writeEscapedMarkdownStr(@Nonnull final Appendable out, @Nonnull final String text) throws IOException {
+    final int length = text.length();
+    int runStart = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = text.charAt(i);
       if (c == '\n') {
-        buffer.append("<br/>"); //NOI18N
-        continue;
-      }
-      else if (Character.isISOControl(c)) {
-        continue;
+        out.append(text, runStart, i).append("<br/>"); //NOI18N
+        runStart = i + 1;
+      } else if (Character.isISOControl(c)) {
+        out.append(text, runStart, i);
+        runStart = i + 1;
+      } else if (MD_ESCAPED_CHARS.indexOf(c) >= 0) {
+        out.append(text, runStart, i).append('\\');
+        runStart = i;
       }
-      else if (MD_ESCAPED_CHARS.indexOf(c) >= 0) {
-        buffer.append('\\');
-      }
-
-      buffer.append(c);
     }
-    return buffer.toString();
+    out.append(text, runStart, length);
   }
 
   public static int calcMaxLengthOfBacktickQuotesSubstr(@Nullable final String text) {
@@ -184,6 +247,87 @@ public final class ModelUtils {
     return result.toString();
   }
 
+  /**
+   * Remove ISO control chars and unescape markdown in a region of char
+   * sequence in one pass. Result is the same as for
+   * {@code unescapeMarkdownStr(removeISOControls(text))} but only the result
+   * string is allocated.
+   *
+   * @param text source char sequence
+   * @param start start offset of region, inclusive
+   * @param end end offset of region, exclusive
+   * @param buffer buffer to be reused for result, it will be cleared
+   * @return unescaped text without ISO control chars
+   * @since 1.4.4
+   */
+  @Nonnull
+  public static String unescapeMarkdownStrAndRemoveISOControls(@Nonnull final CharSequence text, final int start, final int end, @Nonnull final StringBuilder buffer) {
+    buffer.setLength(0);
+    int index = start;
+    while (index < end) {
+      final char chr = text.charAt(index);
+      if (Character.isISOControl(chr)) {
+        index++;
+      } else if (chr == '<') {
+        final int tagEnd = findEndOfBrTag(text, index, end);
+        if (tagEnd < 0) {
+          buffer.append(chr);
+          index++;
+        } else {
+          buffer.append('\n');
+          index = tagEnd;
+        }
+      } else if (chr == '\\') {
+        final int next = skipISOControls(text, index + 1, end);
+        if (next < end) {
+          final char nextChr = text.charAt(next);
+          if (MD_UNESCAPED_CHARS.indexOf(nextChr) >= 0 && !(nextChr == '<' && findEndOfBrTag(text, next, end) >= 0)) {
+            buffer.append(nextChr);
+            index = next + 1;
+            continue;
+          }
+        }
+        buffer.append(chr);
+        index++;
+      } else {
+        buffer.append(chr);
+        index++;
+      }
+    }
+    return buffer.toString();
+  }
+
+  private static int skipISOControls(@Nonnull final CharSequence text, int index, final int end) {
+    while (index < end && Character.isISOControl(text.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  private static int skipSpaces(@Nonnull final CharSequence text, int index, final int end) {
+    index = skipISOControls(text, index, end);
+    while (index < end && text.charAt(index) == ' ') {
+      index = skipISOControls(text, index + 1, end);
+    }
+    return index;
+  }
+
+  private static int findEndOfBrTag(@Nonnull final CharSequence text, final int tagStart, final int end) {
+    int index = skipSpaces(text, tagStart + 1, end);
+    if (index >= end || (text.charAt(index) != 'b' && text.charAt(index) != 'B')) {
+      return -1;
+    }
+    index = skipISOControls(text, index + 1, end);
+    if (index >= end || (text.charAt(index) != 'r' && text.charAt(index) != 'R')) {
+      return -1;
+    }
+    index = skipSpaces(text, index + 1, end);
+    if (index < end && text.charAt(index) == '/') {
+      index = skipISOControls(text, index + 1, end);
+    }
+    return index < end && text.charAt(index) == '>' ? index + 1 : -1;
+  }
+
   @Nonnull
   public static String makeShortTextVersion(@Nonnull String text, final int maxLength) {
     if (text.length() > maxLength) {
@@ -431,4 +575,48 @@ public final class ModelUtils {
     return Paths.get(fullArray[0], next).toFile();
   }
 
+  /**
+   * Create new unique temporary file in the folder of a target file, it can be
+   * used to write new content which then replaces the target.
+   *
+   * @param target target file, must not be null
+   * @param suffix suffix of the temporary file, must not be null
+   * @return created empty temporary file
+   * @throws IOException if the file can't be created
+   * @see #replaceFile(File, File)
+   * @since 1.4.4
+   */
+  @Nonnull
+  public static File makeTempFileFor(@Nonnull final File target, @Nonnull final String suffix) throws IOException {
+    final StringBuilder prefix = new StringBuilder(target.getName());
+    while (prefix.length() < 3) {
+      prefix.append('_');
+    }
+    return File.createTempFile(prefix.append('.').toString(), suffix, target.getAbsoluteFile().getParentFile());
+  }
+
+  /**
+   * Replace target file by source file. The file is replaced atomically
+   * through path service if it is supported, otherwise the source is renamed
+   * and the target can be deleted before renaming if the platform doesn't
+   * allow to rename over existing file.
+   *
+   * @param source source file, must not be null
+   * @param target target file, must not be null
+   * @throws IOException if the file can't be replaced
+   * @since 1.4.4
+   */
+  public static void replaceFile(@Nonnull final File source, @Nonnull final File target) throws IOException {
+    boolean replaced;
+    try {
+      replaced = Paths.replaceFile(source, target);
+    }
+    catch (LinkageError ex) {
+      // file API of Java 7 is not presented
+      replaced = false;
+    }
+    if (!replaced && !source.renameTo(target) && !(target.delete() && source.renameTo(target))) {
+      throw new IOException("Can't replace file " + target + " by " + source); //NOI18N
+    }
+  }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Utility methods to estimate heap size of model objects. Estimation supposes
+ * 64 bit JVM with compressed references and 8 bytes alignment (default for
+ * heaps less than 32 GB), field gaps and JDK specific internals are ignored.
+ * Shallow sizes of classes are calculated through reflection and cached. Layout
+ * of strings is detected through type of their value field, so that compact
+ * strings of Java 9+ (one byte per char for Latin-1 text) are taken into
+ * account if they are not disabled by JVM option. Internals of
+ * {@link java.net.URI} and {@link Properties} are estimated by Java 8 layout,
+ * on Java 9+ the estimation for file and link extras can be about 10% bigger
+ * than their real size.
+ *
+ * @since 1.4.4
+ */
+final class RetainedSizeEstimator {
+
+  static final int OBJECT_HEADER = 12;
+  static final int ARRAY_HEADER = 16;
+  static final int REFERENCE = 4;
+
+  /**
+   * Approximate size of entry of hash map together with its slot in table.
+   */
+  static final int HASH_ENTRY = 32 + REFERENCE * 2;
+  /**
+   * Approximate size of entry of linked hash map together with its slot in
+   * table.
+   */
+  static final int LINKED_HASH_ENTRY = 40 + REFERENCE * 2;
+  /**
+   * Approximate size of entry of tree map.
+   */
+  static final int TREE_ENTRY = 40;
+
+  private static final ConcurrentMap<Class<?>, Long> SHALLOW_SIZES = new ConcurrentHashMap<Class<?>, Long>();
+
+  private static final long STRING_SIZE = shallowSizeOf(String.class);
+  private static final boolean COMPACT_STRINGS = isStringValueByteArray();
+  private static final long ARRAY_LIST_SIZE = shallowSizeOf(ArrayList.class);
+  private static final long UNMODIFIABLE_LIST_SIZE = shallowSizeOf(Collections.unmodifiableList(new ArrayList<Object>()).getClass());
+  private static final long UNMODIFIABLE_MAP_SIZE = shallowSizeOf(Collections.unmodifiableMap(new HashMap<Object, Object>()).getClass());
+  private static final long EXTRAS_MAP_SIZE = shallowSizeOf(EnumMap.class) + sizeOfArray(Extra.ExtraType.values().length, REFERENCE) + UNMODIFIABLE_MAP_SIZE;
+  private static final long PROPERTIES_SIZE = shallowSizeOf(Properties.class) + sizeOfArray(11, REFERENCE);
+
+  private RetainedSizeEstimator() {
+  }
+
+  static long align(final long size) {
+    return (size + 7L) & ~7L;
+  }
+
+  static long sizeOfArray(final int length, final int elementSize) {
+    return align(ARRAY_HEADER + (long) length * elementSize);
+  }
+
+  static long sizeOfString(@Nullable final String str) {
+    if (str == null) {
+      return 0L;
+    }
+    return STRING_SIZE + sizeOfArray(str.length(), COMPACT_STRINGS && isLatin1(str) ? 1 : 2);
+  }
+
+  private static boolean isLatin1(@Nonnull final String str) {
+    for (int i = 0; i < str.length(); i++) {
+      if (str.charAt(i) > 0xFF) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isStringValueByteArray() {
+    try {
+      return String.class.getDeclaredField("value").getType() == byte[].class; //NOI18N
+    }
+    catch (NoSuchFieldException ex) {
+      return false;
+    }
+    catch (SecurityException ex) {
+      return false;
+    }
+  }
+
+  static long sizeOfArrayList(final int size) {
+    // array list allocates 10 elements for the first one and grows by half
+    int capacity = 10;
+    while (capacity < size) {
+      capacity += capacity >> 1;
+    }
+    return ARRAY_LIST_SIZE + (size == 0 ? 0L : sizeOfArray(capacity, REFERENCE));
+  }
+
+  static long sizeOfUnmodifiableList() {
+    return UNMODIFIABLE_LIST_SIZE;
+  }
+
+  static long sizeOfExtrasMap() {
+    return EXTRAS_MAP_SIZE;
+  }
+
+  static long sizeOfExtra(@Nonnull final Extra<?> extra) {
+    long result = shallowSizeOf(extra.getClass());
+    switch (extra.getType()) {
+      case FILE: {
+        final ExtraFile file = (ExtraFile) extra;
+        result += file.getValue().estimateRetainedBytes();
+        if (!file.getLCFileExtension().isEmpty()) {
+          result += sizeOfString(file.getLCFileExtension());
+        }
+      }
+      break;
+      case LINK: {
+        result += ((ExtraLink) extra).getValue().estimateRetainedBytes();
+      }
+      break;
+      default: {
+        result += sizeOfString(extra.provideAsStringForSave());
+      }
+      break;
+    }
+    return result;
+  }
+
+  static long sizeOfProperties(@Nonnull final Properties properties) {
+    long result = PROPERTIES_SIZE;
+    for (final String name : properties.stringPropertyNames()) {
+      result += HASH_ENTRY + sizeOfString(name) + sizeOfString(properties.getProperty(name));
+    }
+    return result;
+  }
+
+  static long shallowSizeOf(@Nonnull final Class<?> klazz) {
+    Long result = SHALLOW_SIZES.get(klazz);
+    if (result == null) {
+      long size = OBJECT_HEADER;
+      Class<?> current = klazz;
+      while (current != null) {
+        for (final Field f : current.getDeclaredFields()) {
+          if (!Modifier.isStatic(f.getModifiers())) {
+            size += sizeOfField(f.getType());
+          }
+        }
+        current = current.getSuperclass();
+      }
+      result = align(size);
+      SHALLOW_SIZES.put(klazz, result);
+    }
+    return result;
+  }
+
+  private static int sizeOfField(@Nonnull final Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else if (type == byte.class || type == boolean.class) {
+      return 1;
+    } else {
+      return REFERENCE;
+    }
+  }
+}
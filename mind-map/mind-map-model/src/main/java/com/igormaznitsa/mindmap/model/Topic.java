@@ -53,17 +53,27 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
   private static final AtomicLong LOCALUID_GENERATOR = new AtomicLong();
 
+  private static final Extra.ExtraType[] EXTRA_TYPES = Extra.ExtraType.values();
+
   @Nullable
   private Topic parent;
 
-  private final EnumMap<Extra.ExtraType, Extra<?>> extras = new EnumMap<Extra.ExtraType, Extra<?>>(Extra.ExtraType.class);
-  private final Map<Extra.ExtraType, Extra<?>> unmodifableExtras = Collections.unmodifiableMap(this.extras);
+  private static final Map<Extra.ExtraType, Extra<?>> NO_EXTRAS = Collections.unmodifiableMap(new EnumMap<Extra.ExtraType, Extra<?>>(Extra.ExtraType.class));
+
+  /**
+   * Extras are allocated on the first added extra, most of topics don't have
+   * them.
+   */
+  @Nullable
+  private EnumMap<Extra.ExtraType, Extra<?>> extras;
+  @Nonnull
+  private Map<Extra.ExtraType, Extra<?>> unmodifableExtras = NO_EXTRAS;
 
-  private final Map<String, String> attributes = new TreeMap<String, String>(ModelUtils.STRING_COMPARATOR);
-  private final Map<String, String> unmodifableAttributes = Collections.unmodifiableMap(this.attributes);
+  @Nonnull
+  private CompactStringMap attributes = CompactStringMap.EMPTY;
 
-  private final Map<String, String> codeSnippets = new TreeMap<String, String>(ModelUtils.STRING_COMPARATOR);
-  private final Map<String, String> unmodifableCodeSnippets = Collections.unmodifiableMap(this.codeSnippets);
+  @Nonnull
+  private CompactStringMap codeSnippets = CompactStringMap.EMPTY;
 
   @Nonnull
   private volatile String text;
@@ -74,11 +84,27 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
   @Nonnull
   private final List<Topic> unmodifableChildren = Collections.unmodifiableList(this.children);
 
+  /**
+   * Position of the topic in children of its parent, it is valid only if
+   * {@link #childPositionsValid} of the parent is true.
+   */
+  private transient int positionInParent;
+  private transient boolean childPositionsValid;
+
   @Nullable
   private transient Object payload;
 
   private final transient long localUID = LOCALUID_GENERATOR.getAndIncrement();
 
+  private transient long savedOffset = -1L;
+  private transient int savedLength;
+  private transient int savedLevel;
+  private transient int savedChecksum;
+
+  private transient int revision;
+  private transient int subtreeRevision;
+  private transient boolean subtreeChanged;
+
   @Nonnull
   private final MindMap map;
 
@@ -94,15 +120,27 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
    */
   public Topic(@Nonnull final MindMap mindMap, @Nonnull final Topic base, final boolean copyChildren) {
     this(mindMap, base.text);
-    this.attributes.putAll(base.attributes);
-    this.extras.putAll(base.extras);
-    this.codeSnippets.putAll(base.codeSnippets);
+    this.attributes = base.attributes;
+    this.codeSnippets = base.codeSnippets;
+    if (base.extras != null) {
+      makeExtras().putAll(base.extras);
+    }
+    mindMap.invalidateIndexes();
 
     if (copyChildren) {
-      for (final Topic t : base.children) {
-        final Topic clonedChildren = new Topic(mindMap, t, true);
-        clonedChildren.parent = this;
-        this.children.add(clonedChildren);
+      final List<Topic> copiedPath = new ArrayList<Topic>();
+      copiedPath.add(this);
+      final TreeIterator iterator = new TreeIterator(base, false);
+      while (iterator.hasNext()) {
+        final Topic t = iterator.next();
+        final int depth = iterator.getDepth();
+        final Topic clonedChildren = new Topic(mindMap, t, false);
+        while (copiedPath.size() > depth) {
+          copiedPath.remove(copiedPath.size() - 1);
+        }
+        clonedChildren.parent = copiedPath.get(depth - 1);
+        clonedChildren.parent.addChild(clonedChildren);
+        copiedPath.add(clonedChildren);
       }
     }
   }
@@ -115,7 +153,12 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
       if (parent.getMap() != map) {
         throw new IllegalArgumentException("Parent must belong to the same mind map");
       }
-      parent.children.add(this);
+      parent.addChild(this);
+      if (this.extras == null) {
+        map.invalidateSearchIndex();
+      } else {
+        map.invalidateIndexes();
+      }
     }
   }
 
@@ -125,30 +168,80 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
     for (final Extra<?> e : extras) {
       if (e != null) {
-        this.extras.put(e.getType(), e);
+        makeExtras().put(e.getType(), e);
       }
     }
   }
 
   public boolean containTopic(@Nonnull final Topic topic) {
-    boolean result = false;
-
-    if (this == topic) {
-      result = true;
-    } else {
-      for (final Topic t : this.children) {
-        if (t.containTopic(topic)) {
-          result = true;
-          break;
-        }
+    final Iterator<Topic> iterator = new TreeIterator(this, true);
+    while (iterator.hasNext()) {
+      if (iterator.next() == topic) {
+        return true;
       }
     }
+    return false;
+  }
+
+
+  private void addChild(@Nonnull final Topic topic) {
+    topic.positionInParent = this.children.size();
+    this.children.add(topic);
+    markSubtreeChanged();
+  }
+
+  private void insertChild(final int index, @Nonnull final Topic topic) {
+    this.children.add(index, topic);
+    this.childPositionsValid = false;
+    markSubtreeChanged();
+  }
+
+  @Nonnull
+  private Topic removeChild(final int index) {
+    final Topic result = this.children.remove(index);
+    if (index != this.children.size()) {
+      this.childPositionsValid = false;
+    }
+    markSubtreeChanged();
     return result;
   }
 
+  /**
+   * Get index of a child topic. Positions of children are renumbered lazily
+   * after the first structural change of the child list, so that a sequence
+   * of lookups costs O(1) per call.
+   *
+   * @param topic topic to find, can be null
+   * @return index of the topic in the child list or -1 if it is not a child
+   * @since 1.4.4
+   */
+  public int indexOfChild(@Nullable final Topic topic) {
+    if (topic == null || topic.parent != this) {
+      return -1;
+    }
+    if (!this.childPositionsValid) {
+      final List<Topic> list = this.children;
+      for (int i = 0; i < list.size(); i++) {
+        list.get(i).positionInParent = i;
+      }
+      this.childPositionsValid = true;
+    }
+    final int position = topic.positionInParent;
+    if (position < this.children.size() && this.children.get(position) == topic) {
+      return position;
+    }
+    // deleted topic which still keeps link to the parent or position renumbered by another reader
+    for (int i = 0; i < this.children.size(); i++) {
+      if (this.children.get(i) == topic) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   @Nullable
   public Topic nextSibling() {
-    final int position = this.parent == null ? -1 : this.parent.getChildren().indexOf(this);
+    final int position = this.parent == null ? -1 : this.parent.indexOfChild(this);
 
     final Topic result;
     if (position < 0) {
@@ -163,7 +256,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
   @Nullable
   public Topic prevSibling() {
-    final int position = this.parent == null ? -1 : this.parent.getChildren().indexOf(this);
+    final int position = this.parent == null ? -1 : this.parent.indexOfChild(this);
 
     final Topic result;
     if (position <= 0) {
@@ -181,7 +274,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     if (findInTopicText && pattern.matcher(this.text).find()) {
       result = true;
     } else if (extrasForSearch != null && !extrasForSearch.isEmpty()) {
-      for (final Extra<?> e : this.extras.values()) {
+      for (final Extra<?> e : this.unmodifableExtras.values()) {
         if (extrasForSearch.contains(e.getType()) && e.containsPattern(baseFolder, pattern)) {
           result = true;
           break;
@@ -226,7 +319,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
   @Nullable
   public Topic findParentForDepth(int depth) {
-    this.map.lock();
+    this.map.lockRead();
     try {
       Topic result = this.parent;
       while (depth > 0 && result != null) {
@@ -236,13 +329,13 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
       return result;
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
     }
   }
 
   @Nonnull
   public Topic getRoot() {
-    this.map.lock();
+    this.map.lockRead();
     try {
       Topic result = this;
       while (true) {
@@ -255,7 +348,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
       return result;
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
     }
   }
 
@@ -268,21 +361,19 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
   }
 
   public boolean canBeLost() {
-    this.map.lock();
+    this.map.lockRead();
     try {
-      boolean noImportantContent = this.text.trim().isEmpty() && this.extras.isEmpty() && canBeDeletedSilently();
-      if (noImportantContent) {
-        for (final Topic t : this.children) {
-          noImportantContent &= t.canBeLost();
-          if (!noImportantContent) {
-            break;
-          }
+      final Iterator<Topic> iterator = new TreeIterator(this, true);
+      while (iterator.hasNext()) {
+        final Topic t = iterator.next();
+        if (!(t.text.trim().isEmpty() && t.unmodifableExtras.isEmpty() && t.canBeDeletedSilently())) {
+          return false;
         }
       }
-      return noImportantContent;
+      return true;
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
     }
   }
 
@@ -296,9 +387,12 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
       Extra.ExtraType extraType = null;
 
       String codeSnippetlanguage = null;
-      String codeSnippetBody = null;
+      final StringBuilder codeSnippetBody = new StringBuilder();
+      final Map<String, String> attributesBuffer = new TreeMap<String, String>(ModelUtils.STRING_COMPARATOR);
 
       int detectedLevel = -1;
+
+      final StringBuilder textBuffer = new StringBuilder();
       
       while (true) {
         final int oldLexerPosition = lexer.getCurrentPosition().getOffset();
@@ -312,12 +406,10 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
         
         switch (token) {
           case TOPIC_LEVEL: {
-            final String tokenText = lexer.getTokenText();
-            detectedLevel = ModelUtils.calcCharsOnStart('#', tokenText);
+            detectedLevel = ModelUtils.calcCharsOnStart('#', lexer.getBufferSequence(), lexer.getTokenStartOffset(), lexer.getTokenEndOffset());
           }break;
           case TOPIC_TITLE: {
-            final String tokenText = ModelUtils.removeISOControls(lexer.getTokenText());
-            final String newTopicText = ModelUtils.unescapeMarkdownStr(tokenText);
+            final String newTopicText = ModelUtils.unescapeMarkdownStrAndRemoveISOControls(lexer.getBufferSequence(), lexer.getTokenStartOffset(), lexer.getTokenEndOffset(), textBuffer);
 
             if (detectedLevel == depth + 1) {
               depth = detectedLevel;
@@ -335,38 +427,41 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
           }
           break;
           case EXTRA_TYPE: {
-            final String extraName = lexer.getTokenText().substring(1).trim();
-            try {
-              extraType = Extra.ExtraType.valueOf(extraName);
-            }
-            catch (IllegalArgumentException ex) {
-              extraType = null;
-            }
+            final MindMapLexer.TokenView extraName = lexer.getTokenView();
+            extraName.set(extraName.getBuffer(), extraName.getStartOffset() + 1, extraName.getEndOffset());
+            extraType = findExtraType(extraName.trim());
           }
           break;
           case CODE_SNIPPET_START: {
             if (topic != null) {
-              codeSnippetlanguage = lexer.getTokenText().substring(3);
-              codeSnippetBody = "";
+              final MindMapLexer.TokenView language = lexer.getTokenView();
+              codeSnippetlanguage = language.set(language.getBuffer(), language.getStartOffset() + 3, language.getEndOffset()).trim().toString();
+              codeSnippetBody.setLength(0);
             }
           }
           break;
           case CODE_SNIPPET_BODY: {
-            codeSnippetBody += lexer.getTokenText();
+            if (codeSnippetlanguage != null) {
+              final int tokenStart = lexer.getTokenStartOffset();
+              final int tokenEnd = lexer.getTokenEndOffset();
+              codeSnippetBody.ensureCapacity(codeSnippetBody.length() + tokenEnd - tokenStart);
+              codeSnippetBody.append(lexer.getBufferSequence(), tokenStart, tokenEnd);
+            }
           }
           break;
           case CODE_SNIPPET_END: {
-            if (topic != null && codeSnippetlanguage != null && codeSnippetBody != null) {
-              topic.codeSnippets.put(codeSnippetlanguage.trim(), codeSnippetBody);
+            if (topic != null && codeSnippetlanguage != null) {
+              topic.codeSnippets = topic.codeSnippets.with(codeSnippetlanguage, codeSnippetBody.toString());
             }
             codeSnippetlanguage = null;
-            codeSnippetBody = null;
+            codeSnippetBody.setLength(0);
           }
           break;
           case ATTRIBUTE: {
             if (topic != null) {
-              final String text = lexer.getTokenText().trim();
-              MindMap.fillMapByAttributes(text, topic.attributes);
+              attributesBuffer.clear();
+              MindMap.fillMapByAttributes(lexer.getTokenView().trim(), attributesBuffer);
+              topic.attributes = topic.attributes.withAll(attributesBuffer);
             }
             extraType = null;
           }
@@ -374,8 +469,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
           case EXTRA_TEXT: {
             if (topic != null && extraType != null) {
               try {
-                final String text = lexer.getTokenText();
-                final String groupPre = extraType.preprocessString(text.substring(5, text.length() - 6));
+                final String groupPre = extraType.preprocessString(lexer.getBufferSequence().subSequence(lexer.getTokenStartOffset() + 5, lexer.getTokenEndOffset() - 6).toString());
                 if (groupPre != null) {
                   topic.setExtra(extraType.parseLoaded(groupPre));
                 } else {
@@ -401,6 +495,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
             break;
         }
       }
+      map.invalidateIndexes();
       return topic == null ? null : topic.getRoot();
     }
     finally {
@@ -408,6 +503,27 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     }
   }
 
+  @Nullable
+  private static Extra.ExtraType findExtraType(@Nonnull final CharSequence name) {
+    final int length = name.length();
+    for (final Extra.ExtraType type : EXTRA_TYPES) {
+      final String typeName = type.name();
+      if (typeName.length() == length) {
+        boolean same = true;
+        for (int i = 0; i < length; i++) {
+          if (typeName.charAt(i) != name.charAt(i)) {
+            same = false;
+            break;
+          }
+        }
+        if (same) {
+          return type;
+        }
+      }
+    }
+    return null;
+  }
+
   @Nullable
   public Topic getFirst() {
     return this.children.isEmpty() ? null : this.children.get(0);
@@ -425,7 +541,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
   }
 
   public int getNumberOfExtras() {
-    return this.extras.size();
+    return this.unmodifableExtras.size();
   }
 
   @Nonnull
@@ -440,24 +556,54 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     return collection.toArray(new Extra<?>[collection.size()]);
   }
 
+  /**
+   * Get attributes of the topic.
+   *
+   * @return immutable map of attributes, it is not changed by following changes
+   * of the topic
+   */
   @Nonnull
   public Map<String, String> getAttributes() {
-    return this.unmodifableAttributes;
+    return this.attributes;
   }
 
+  /**
+   * Get code snippets of the topic.
+   *
+   * @return immutable map of code snippets, it is not changed by following
+   * changes of the topic
+   */
   @Nonnull
   public Map<String, String> getCodeSnippets() {
-    return this.unmodifableCodeSnippets;
+    return this.codeSnippets;
+  }
+
+  @Nonnull
+  private EnumMap<Extra.ExtraType, Extra<?>> makeExtras() {
+    EnumMap<Extra.ExtraType, Extra<?>> result = this.extras;
+    if (result == null) {
+      result = new EnumMap<Extra.ExtraType, Extra<?>>(Extra.ExtraType.class);
+      this.extras = result;
+      this.unmodifableExtras = Collections.unmodifiableMap(result);
+    }
+    return result;
+  }
+
+  @Nullable
+  private Extra<?> removeExtraOfType(@Nonnull final Extra.ExtraType type) {
+    return this.extras == null ? null : this.extras.remove(type);
   }
 
   public boolean setAttribute(@Nonnull final String name, @Nullable final String value) {
     this.map.lock();
     try {
-      if (value == null) {
-        return this.attributes.remove(name) != null;
-      } else {
-        return !value.equals(this.attributes.put(name, value));
+      final String oldValue = this.attributes.get(name);
+      this.attributes = this.attributes.with(name, value);
+      markChanged();
+      if (ExtraTopic.TOPIC_UID_ATTR.equals(name)) {
+        this.map.onTopicUidChanged(this, oldValue, value);
       }
+      return value == null ? oldValue != null : !value.equals(oldValue);
     }
     finally {
       this.map.unlock();
@@ -467,11 +613,10 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
   public boolean setCodeSnippet(@Nonnull final String language, @Nullable final String text) {
     this.map.lock();
     try {
-      if (text == null) {
-        return this.codeSnippets.remove(language) != null;
-      } else {
-        return !text.equals(this.codeSnippets.put(language, text));
-      }
+      markChanged();
+      final String oldText = this.codeSnippets.get(language);
+      this.codeSnippets = this.codeSnippets.with(language, text);
+      return text == null ? oldText != null : !text.equals(oldText);
     }
     finally {
       this.map.unlock();
@@ -493,7 +638,11 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     try {
       final Topic theParent = this.parent;
       if (theParent != null) {
-        theParent.children.remove(this);
+        final int index = theParent.indexOfChild(this);
+        if (index >= 0) {
+          theParent.removeChild(index);
+        }
+        this.map.invalidateIndexes();
       }
     }
     finally {
@@ -523,6 +672,8 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     this.map.lock();
     try {
       this.text = Assertions.assertNotNull(text);
+      markChanged();
+      this.map.onTopicContentChanged(this);
     }
     finally {
       this.map.unlock();
@@ -534,7 +685,11 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     try {
       boolean result = false;
       for (final Extra.ExtraType e : Assertions.assertDoesntContainNull(types)) {
-        result |= this.extras.remove(e) != null;
+        if (removeExtraOfType(e) != null) {
+          markChanged();
+          this.map.onTopicExtraChanged(this, e, false);
+          result = true;
+        }
       }
       return result;
     }
@@ -547,7 +702,12 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     this.map.lock();
     try {
       for (final Extra<?> e : Assertions.assertDoesntContainNull(extras)) {
-        this.extras.put(e.getType(), e);
+        markChanged();
+        if (makeExtras().put(e.getType(), e) == null) {
+          this.map.onTopicExtraChanged(this, e.getType(), true);
+        } else {
+          this.map.onTopicContentChanged(this);
+        }
       }
     }
     finally {
@@ -560,10 +720,11 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     try {
       final Topic theParent = this.parent;
       if (theParent != null) {
-        int thatIndex = theParent.children.indexOf(this);
+        final int thatIndex = theParent.indexOfChild(this);
         if (thatIndex > 0) {
-          theParent.children.remove(thatIndex);
-          theParent.children.add(0, this);
+          theParent.removeChild(thatIndex);
+          theParent.insertChild(0, this);
+          this.map.invalidateIndexes();
           return true;
         }
       }
@@ -590,10 +751,11 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     try {
       final Topic theParent = this.parent;
       if (theParent != null) {
-        int thatIndex = theParent.children.indexOf(this);
+        final int thatIndex = theParent.indexOfChild(this);
         if (thatIndex >= 0 && thatIndex != theParent.children.size() - 1) {
-          theParent.children.remove(thatIndex);
-          theParent.children.add(this);
+          theParent.removeChild(thatIndex);
+          theParent.addChild(this);
+          this.map.invalidateIndexes();
           return true;
         }
       }
@@ -609,16 +771,17 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     try {
       final Topic theParent = this.parent;
       if (theParent != null) {
-        int thatIndex = theParent.children.indexOf(topic);
-        final int thisIndex = theParent.children.indexOf(this);
+        int thatIndex = theParent.indexOfChild(topic);
+        final int thisIndex = theParent.indexOfChild(this);
 
         if (thatIndex > thisIndex) {
           thatIndex--;
         }
 
         if (thatIndex >= 0 && thisIndex >= 0) {
-          theParent.children.remove(this);
-          theParent.children.add(thatIndex, this);
+          theParent.removeChild(thisIndex);
+          theParent.insertChild(thatIndex, this);
+          this.map.invalidateIndexes();
         }
       }
     }
@@ -629,7 +792,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
   @Nullable
   public String findAttributeInAncestors(@Nonnull final String attrName) {
-    this.map.lock();
+    this.map.lockRead();
     try {
       String result = null;
       Topic current = this.parent;
@@ -640,7 +803,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
       return result;
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
     }
   }
 
@@ -649,16 +812,17 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     try {
       final Topic theParent = this.parent;
       if (theParent != null) {
-        int thatIndex = theParent.children.indexOf(topic);
-        int thisIndex = theParent.children.indexOf(this);
+        int thatIndex = theParent.indexOfChild(topic);
+        final int thisIndex = theParent.indexOfChild(this);
 
         if (thatIndex > thisIndex) {
           thatIndex--;
         }
 
         if (thatIndex >= 0 && thisIndex >= 0) {
-          theParent.children.remove(this);
-          theParent.children.add(thatIndex + 1, this);
+          theParent.removeChild(thisIndex);
+          theParent.insertChild(thatIndex + 1, this);
+          this.map.invalidateIndexes();
         }
       }
     }
@@ -668,25 +832,160 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
   }
 
   public void write(@Nonnull final Writer out) throws IOException {
-    this.map.lock();
+    this.map.lockRead();
     try {
-      write(1, out);
+      final TreeIterator iterator = new TreeIterator(this, true);
+      while (iterator.hasNext()) {
+        iterator.next().write(iterator.getDepth() + 1, out);
+      }
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
+    }
+  }
+
+  /**
+   * Estimate heap size retained by the topic without its children and payload.
+   *
+   * @return estimated size in bytes
+   * @see MindMap#estimateRetainedBytes()
+   */
+  long estimateOwnRetainedBytes() {
+    long result = RetainedSizeEstimator.shallowSizeOf(Topic.class)
+        + RetainedSizeEstimator.sizeOfString(this.text)
+        + RetainedSizeEstimator.sizeOfArrayList(this.children.size())
+        + RetainedSizeEstimator.sizeOfUnmodifiableList()
+        + this.attributes.estimateRetainedBytes()
+        + this.codeSnippets.estimateRetainedBytes();
+    if (this.extras != null) {
+      result += RetainedSizeEstimator.sizeOfExtrasMap();
+      for (final Extra<?> e : this.extras.values()) {
+        result += RetainedSizeEstimator.sizeOfExtra(e);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Register change of the topic content. Byte region of the topic in the last
+   * saved file is forgotten, so that the topic will be serialized during next
+   * save, and revisions of the topic and its ancestors are increased.
+   */
+  private void markChanged() {
+    this.savedOffset = -1L;
+    this.revision++;
+    markSubtreeChanged();
+  }
+
+  /**
+   * Increase subtree revision of the topic and its ancestors. The walk stops on
+   * the first topic already changed since its last observation, all its
+   * ancestors have been changed too, so that building of deep trees doesn't
+   * walk the whole path to the root for every added topic.
+   */
+  private void markSubtreeChanged() {
+    Topic current = this;
+    while (current != null && !current.subtreeChanged) {
+      current.subtreeRevision++;
+      current.subtreeChanged = true;
+      current = current.parent;
+    }
+  }
+
+  /**
+   * Register that the current subtree revision of the topic has been observed,
+   * so that next change in the subtree increases the revision again. The
+   * topic can be marked only after all its children, changed children are
+   * not allowed.
+   *
+   * @return true if the topic has been marked, false if there is a child
+   * changed since its last observation, in the case the revision can be not
+   * increased for next change
+   * @see #getSubtreeRevision()
+   * @since 1.4.4
+   */
+  public boolean markSubtreeObserved() {
+    for (final Topic c : this.children) {
+      if (c.subtreeChanged) {
+        return false;
+      }
     }
+    this.subtreeChanged = false;
+    return true;
+  }
+
+  /**
+   * Get revision of the topic content. The revision is increased for every
+   * change of text, extras, attributes or code snippets of the topic. It is
+   * not saved and can be used to detect changes of the topic, for instance by
+   * renderers keeping calculated data in payload.
+   *
+   * @return revision counter of the topic content
+   * @since 1.4.4
+   */
+  public int getRevision() {
+    return this.revision;
+  }
+
+  /**
+   * Get revision of the topic subtree. The revision is increased for first
+   * content change of the topic or any its descendant and for first change in
+   * their child lists made after {@link #markSubtreeObserved()}, so that a
+   * value read together with successful marking changes for any later change
+   * of the subtree.
+   *
+   * @return revision counter of the topic subtree
+   * @since 1.4.4
+   */
+  public int getSubtreeRevision() {
+    return this.subtreeRevision;
+  }
+
+  /**
+   * Check that the topic is not changed since the last save and its block in
+   * the saved file has been written for the level.
+   *
+   * @param level level of the topic
+   * @return true if the saved block can be reused
+   * @see MindMap#save(File)
+   */
+  boolean hasSavedRegion(final int level) {
+    return this.savedOffset >= 0L && this.savedLevel == level;
+  }
+
+  long getSavedOffset() {
+    return this.savedOffset;
+  }
+
+  int getSavedLength() {
+    return this.savedLength;
+  }
+
+  int getSavedChecksum() {
+    return this.savedChecksum;
+  }
+
+  void setSavedRegion(final long offset, final int length, final int level, final int checksum) {
+    this.savedOffset = offset;
+    this.savedLength = length;
+    this.savedLevel = level;
+    this.savedChecksum = checksum;
   }
 
-  private void write(final int level, @Nonnull final Writer out) throws IOException {
+  void write(final int level, @Nonnull final Writer out) throws IOException {
     out.append(NEXT_LINE);
     ModelUtils.writeChar(out, '#', level);
-    out.append(' ').append(ModelUtils.escapeMarkdownStr(this.text)).append(NEXT_LINE);
+    out.append(' ');
+    ModelUtils.writeEscapedMarkdownStr(out, this.text);
+    out.append(NEXT_LINE);
 
     if (!this.attributes.isEmpty()) {
-      out.append("> ").append(MindMap.allAttributesAsString(this.attributes)).append(NEXT_LINE).append(NEXT_LINE); //NOI18N
+      out.append("> "); //NOI18N
+      MindMap.writeAttributes(out, this.attributes);
+      out.append(NEXT_LINE).append(NEXT_LINE);
     }
 
-    for (final Map.Entry<Extra.ExtraType, Extra<?>> e : this.extras.entrySet()) {
+    for (final Map.Entry<Extra.ExtraType, Extra<?>> e : this.unmodifableExtras.entrySet()) {
       e.getValue().write(out);
       out.append(NEXT_LINE);
     }
@@ -703,10 +1002,6 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
         out.append("```").append(NEXT_LINE);
       }
     }
-
-    for (final Topic t : this.children) {
-      t.write(level + 1, out);
-    }
   }
 
   @Override
@@ -736,12 +1031,12 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
   }
 
   public boolean hasChildren() {
-    this.map.lock();
+    this.map.lockRead();
     try {
       return !this.children.isEmpty();
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
     }
   }
 
@@ -750,55 +1045,60 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     if (topic != null) {
       final String uid = topic.getAttribute(ExtraTopic.TOPIC_UID_ATTR);
       if (uid != null) {
-        final ExtraTopic link = (ExtraTopic) this.getExtras().get(Extra.ExtraType.TOPIC);
-        if (link != null && uid.equals(link.getValue())) {
-          this.removeExtra(Extra.ExtraType.TOPIC);
-          result = true;
+        final Iterator<Topic> iterator = new TreeIterator(this, true);
+        while (iterator.hasNext()) {
+          final Topic t = iterator.next();
+          final ExtraTopic link = (ExtraTopic) t.getExtras().get(Extra.ExtraType.TOPIC);
+          if (link != null && uid.equals(link.getValue())) {
+            t.removeExtra(Extra.ExtraType.TOPIC);
+            result = true;
+          }
         }
       }
-
-      for (final Topic ch : this.children) {
-        result |= ch.removeAllLinksTo(topic);
-      }
     }
 
     return result;
   }
 
+
   boolean removeTopic(@Nullable final Topic topic) {
     if (topic == null) {
       return false;
     }
-    final Iterator<Topic> iterator = this.children.iterator();
+    final Iterator<Topic> iterator = new TreeIterator(this, false);
     while (iterator.hasNext()) {
-      final Topic t = iterator.next();
-      if (t == topic) {
+      if (iterator.next() == topic) {
         iterator.remove();
         return true;
-      } else if (t.removeTopic(topic)) {
-        return true;
       }
     }
     return false;
   }
 
+
   public void removeAllChildren() {
     this.children.clear();
+    markSubtreeChanged();
+    this.map.invalidateIndexes();
   }
 
   public boolean moveToNewParent(@Nullable final Topic newParent) {
     this.map.lock();
     try {
-      if (newParent == null || this == newParent || this.getParent() == newParent || this.children.contains(newParent)) {
+      if (newParent == null || this == newParent || this.getParent() == newParent || this.indexOfChild(newParent) >= 0) {
         return false;
       }
 
       final Topic theParent = this.parent;
       if (theParent != null) {
-        theParent.children.remove(this);
+        final int index = theParent.indexOfChild(this);
+        if (index >= 0) {
+          theParent.removeChild(index);
+        }
       }
-      newParent.children.add(this);
+      newParent.addChild(this);
       this.parent = newParent;
+      this.map.invalidateIndexes();
 
       return true;
     }
@@ -812,7 +1112,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     this.map.lock();
     try {
       final Topic result = new Topic(this.map, this, GetUtils.ensureNonNull(text, "")); //NOI18N
-      if (afterTheTopic != null && this.children.indexOf(afterTheTopic) >= 0) {
+      if (afterTheTopic != null && this.indexOfChild(afterTheTopic) >= 0) {
         result.moveAfter(afterTheTopic);
       }
       return result;
@@ -824,12 +1124,12 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
   @Nullable
   public Topic findNext(@Nullable final TopicChecker checker) {
-    this.map.lock();
+    this.map.lockRead();
     try {
       Topic result = null;
       Topic current = this.getParent();
       if (current != null) {
-        final int indexThis = current.children.indexOf(this);
+        final int indexThis = current.indexOfChild(this);
         if (indexThis >= 0) {
           for (int i = indexThis + 1; i < current.children.size(); i++) {
             if (checker == null) {
@@ -846,18 +1146,18 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
       return result;
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
     }
   }
 
   @Nullable
   public Topic findPrev(@Nonnull final TopicChecker checker) {
-    this.map.lock();
+    this.map.lockRead();
     try {
       Topic result = null;
       Topic current = this.getParent();
       if (current != null) {
-        final int indexThis = current.children.indexOf(this);
+        final int indexThis = current.indexOfChild(this);
         if (indexThis >= 0) {
           for (int i = indexThis - 1; i >= 0; i--) {
             if (checker.check(current.children.get(i))) {
@@ -871,7 +1171,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
       return result;
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
     }
   }
 
@@ -879,11 +1179,18 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     this.map.lock();
     try {
       if (extras == null || extras.length == 0) {
-        this.extras.clear();
+        for (final Extra.ExtraType t : this.unmodifableExtras.keySet()) {
+          this.map.onTopicExtraChanged(this, t, false);
+        }
+        if (this.extras != null) {
+          this.extras.clear();
+        }
+        markChanged();
       } else {
         for (final Extra<?> e : extras) {
-          if (e != null) {
-            this.extras.remove(e.getType());
+          if (e != null && removeExtraOfType(e.getType()) != null) {
+            markChanged();
+            this.map.onTopicExtraChanged(this, e.getType(), false);
           }
         }
       }
@@ -895,19 +1202,17 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
   @Nullable
   public Topic findForAttribute(@Nonnull final String attrName, @Nonnull String value) {
-    if (value.equals(this.getAttribute(attrName))) {
-      return this;
-    }
-    Topic result = null;
-    for (final Topic c : this.children) {
-      result = c.findForAttribute(attrName, value);
-      if (result != null) {
-        break;
+    final Iterator<Topic> iterator = new TreeIterator(this, true);
+    while (iterator.hasNext()) {
+      final Topic t = iterator.next();
+      if (value.equals(t.getAttribute(attrName))) {
+        return t;
       }
     }
-    return result;
+    return null;
   }
 
+
   @Nonnull
   public int[] getPositionPath() {
     final Topic[] path = getPath();
@@ -917,7 +1222,7 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
     int index = 1;
     while (index < path.length) {
       final Topic next = path[index];
-      final int theindex = current.children.indexOf(next);
+      final int theindex = current.indexOfChild(next);
       result[index++] = theindex;
       if (theindex < 0) {
         break;
@@ -943,19 +1248,28 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
   @Nonnull
   Topic makeCopy(@Nonnull final MindMap newMindMap, @Nullable final Topic parent) {
-    this.map.lock();
+    this.map.lockRead();
     try {
-      final Topic result = new Topic(newMindMap, parent, this.text, this.extras.values().toArray(new Extra<?>[this.extras.values().size()]));
-      for (final Topic c : this.children) {
-        c.makeCopy(newMindMap, result);
+      final List<Topic> copiedPath = new ArrayList<Topic>();
+      final TreeIterator iterator = new TreeIterator(this, true);
+      while (iterator.hasNext()) {
+        final Topic t = iterator.next();
+        final int depth = iterator.getDepth();
+        final Topic copyParent = depth == 0 ? parent : copiedPath.get(depth - 1);
+        final Topic copy = new Topic(newMindMap, copyParent, t.text, t.extrasToArray());
+        copy.attributes = t.attributes;
+        copy.codeSnippets = t.codeSnippets;
+        while (copiedPath.size() > depth) {
+          copiedPath.remove(copiedPath.size() - 1);
+        }
+        copiedPath.add(copy);
       }
-      result.attributes.putAll(this.attributes);
-      result.codeSnippets.putAll(this.codeSnippets);
+      newMindMap.invalidateIndexes();
 
-      return result;
+      return copiedPath.get(0);
     }
     finally {
-      this.map.unlock();
+      this.map.unlockRead();
     }
   }
 
@@ -964,11 +1278,16 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
     this.map.lock();
     try {
-      for (final Extra.ExtraType t : type) {
-        result |= this.extras.remove(t) != null;
-      }
-      for (final Topic c : this.children) {
-        result |= c.removeExtraFromSubtree(type);
+      final Iterator<Topic> iterator = new TreeIterator(this, true);
+      while (iterator.hasNext()) {
+        final Topic topic = iterator.next();
+        for (final Extra.ExtraType t : type) {
+          if (topic.removeExtraOfType(t) != null) {
+            topic.markChanged();
+            this.map.onTopicExtraChanged(topic, t, false);
+            result = true;
+          }
+        }
       }
       return result;
     }
@@ -982,11 +1301,19 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
     this.map.lock();
     try {
-      for (final String t : names) {
-        result |= this.attributes.remove(t) != null;
+      final Iterator<Topic> iterator = new TreeIterator(this, true);
+      while (iterator.hasNext()) {
+        final Topic topic = iterator.next();
+        for (final String t : names) {
+          if (topic.attributes.containsKey(t)) {
+            topic.attributes = topic.attributes.with(t, null);
+            topic.markChanged();
+            result = true;
+          }
+        }
       }
-      for (final Topic c : this.children) {
-        result |= c.removeAttributeFromSubtree(names);
+      if (result) {
+        this.map.invalidateIndexes();
       }
       return result;
     }
@@ -997,106 +1324,169 @@ public final class Topic implements Serializable, Constants, Iterable<Topic> {
 
   public boolean deleteLinkToFileIfPresented(@Nonnull final File baseFolder, @Nonnull final MMapURI file) {
     boolean result = false;
-    if (this.extras.containsKey(Extra.ExtraType.FILE)) {
-      final ExtraFile fileLink = (ExtraFile) this.extras.get(Extra.ExtraType.FILE);
-      if (fileLink.isSameOrHasParent(baseFolder, file)) {
-        result = this.extras.remove(Extra.ExtraType.FILE) != null;
+    final Iterator<Topic> iterator = new TreeIterator(this, true);
+    while (iterator.hasNext()) {
+      final Topic topic = iterator.next();
+      final ExtraFile fileLink = (ExtraFile) topic.unmodifableExtras.get(Extra.ExtraType.FILE);
+      if (fileLink != null && fileLink.isSameOrHasParent(baseFolder, file)) {
+        topic.removeExtraOfType(Extra.ExtraType.FILE);
+        topic.markChanged();
+        this.map.onTopicExtraChanged(topic, Extra.ExtraType.FILE, false);
+        result = true;
       }
     }
-    for (final Topic c : this.children) {
-      result |= c.deleteLinkToFileIfPresented(baseFolder, file);
-    }
     return result;
   }
 
+
   public boolean replaceLinkToFileIfPresented(@Nonnull final File baseFolder, @Nonnull final MMapURI oldFile, @Nonnull final MMapURI newFile) {
     boolean result = false;
-    if (this.extras.containsKey(Extra.ExtraType.FILE)) {
-      final ExtraFile fileLink = (ExtraFile) this.extras.get(Extra.ExtraType.FILE);
-      final ExtraFile replacement;
+    final Iterator<Topic> iterator = new TreeIterator(this, true);
+    while (iterator.hasNext()) {
+      final Topic topic = iterator.next();
+      final ExtraFile fileLink = (ExtraFile) topic.unmodifableExtras.get(Extra.ExtraType.FILE);
+      if (fileLink != null) {
+        final ExtraFile replacement;
 
-      if (fileLink.isSame(baseFolder, oldFile)) {
-        replacement = new ExtraFile(newFile);
-      } else {
-        replacement = fileLink.replaceParentPath(baseFolder, oldFile, newFile);
-      }
+        if (fileLink.isSame(baseFolder, oldFile)) {
+          replacement = new ExtraFile(newFile);
+        } else {
+          replacement = fileLink.replaceParentPath(baseFolder, oldFile, newFile);
+        }
 
-      if (replacement != null) {
-        result = true;
-        this.extras.remove(Extra.ExtraType.FILE);
-        this.extras.put(Extra.ExtraType.FILE, replacement);
+        if (replacement != null) {
+          result = true;
+          topic.makeExtras().put(Extra.ExtraType.FILE, replacement);
+          topic.markChanged();
+          this.map.onTopicContentChanged(topic);
+        }
       }
     }
-
-    for (final Topic c : this.children) {
-      result |= c.replaceLinkToFileIfPresented(baseFolder, oldFile, newFile);
-    }
     return result;
   }
 
+
   public boolean doesContainFileLink(@Nonnull final File baseFolder, @Nonnull final MMapURI file) {
-    if (this.extras.containsKey(Extra.ExtraType.FILE)) {
-      final ExtraFile fileLink = (ExtraFile) this.extras.get(Extra.ExtraType.FILE);
-      if (fileLink.isSame(baseFolder, file)) {
-        return true;
-      }
-    }
-    for (final Topic c : this.children) {
-      if (c.doesContainFileLink(baseFolder, file)) {
+    final Iterator<Topic> iterator = new TreeIterator(this, true);
+    while (iterator.hasNext()) {
+      final ExtraFile fileLink = (ExtraFile) iterator.next().unmodifableExtras.get(Extra.ExtraType.FILE);
+      if (fileLink != null && fileLink.isSame(baseFolder, file)) {
         return true;
       }
     }
     return false;
   }
 
+
   @Override
   @Nonnull
   public Iterator<Topic> iterator() {
-    final Iterator<Topic> iter = this.children.iterator();
-
-    return new Iterator<Topic>() {
-      Topic childTopic;
-      Iterator<Topic> childIterator;
+    return new TreeIterator(this, false);
+  }
 
-      @Override
-      public void remove() {
-        iter.remove();
+  /**
+   * Pre-order iterator over topic subtree. It keeps explicit stack of child
+   * list iterators, so that each step costs O(1) amortized and deep trees
+   * don't make long chains of calls. Removal removes the last returned topic
+   * together with its subtree.
+   *
+   * @since 1.4.4
+   */
+  static final class TreeIterator implements Iterator<Topic> {
+
+    private final List<Iterator<Topic>> stack = new ArrayList<Iterator<Topic>>();
+    private Topic start;
+    private Topic last;
+    private Iterator<Topic> lastSource;
+    private boolean lastChildrenPushed;
+    private int lastDepth;
+
+    /**
+     * Create iterator.
+     *
+     * @param start start topic
+     * @param includeStart true if the start topic must be returned as the
+     * first one, false if only descendants must be iterated
+     */
+    TreeIterator(@Nonnull final Topic start, final boolean includeStart) {
+      if (includeStart) {
+        this.start = start;
+      } else {
+        pushChildren(start);
       }
+    }
 
-      @Nonnull
-      Iterator<Topic> init() {
-        if (iter.hasNext()) {
-          this.childTopic = iter.next();
-        }
-        return this;
+    private boolean pushChildren(@Nonnull final Topic topic) {
+      if (topic.children.isEmpty()) {
+        return false;
       }
+      this.stack.add(topic.children.iterator());
+      return true;
+    }
 
-      @Override
-      public boolean hasNext() {
-        return iter.hasNext() || this.childTopic != null || (this.childIterator != null && this.childIterator.hasNext());
+    @Override
+    public boolean hasNext() {
+      if (this.start != null) {
+        return true;
+      }
+      for (int i = this.stack.size() - 1; i >= 0; i--) {
+        if (this.stack.get(i).hasNext()) {
+          return true;
+        }
+        this.stack.remove(i);
       }
+      return false;
+    }
 
-      @Nonnull
-      @Override
-      public Topic next() {
-        final Topic result;
-        if (this.childTopic != null) {
-          result = this.childTopic;
-          this.childTopic = null;
-          this.childIterator = result.iterator();
-        } else if (this.childIterator != null) {
-          if (this.childIterator.hasNext()) {
-            result = this.childIterator.next();
-          } else {
-            result = iter.next();
-            this.childIterator = result.iterator();
-          }
-        } else {
+    @Override
+    @Nonnull
+    public Topic next() {
+      final Topic result;
+      if (this.start != null) {
+        result = this.start;
+        this.start = null;
+        this.lastSource = null;
+        this.lastDepth = 0;
+      } else {
+        if (!hasNext()) {
           throw new NoSuchElementException();
         }
-        return result;
+        this.lastSource = this.stack.get(this.stack.size() - 1);
+        this.lastDepth = this.stack.size();
+        result = this.lastSource.next();
+      }
+      this.lastChildrenPushed = pushChildren(result);
+      this.last = result;
+      return result;
+    }
+
+    /**
+     * Get depth of the last returned topic relative to the start topic.
+     *
+     * @return zero for the start topic, one for its children and so on
+     */
+    int getDepth() {
+      return this.lastDepth;
+    }
+
+    @Override
+    public void remove() {
+      final Topic removed = this.last;
+      if (removed == null || this.lastSource == null) {
+        throw new IllegalStateException("Can't remove topic"); //NOI18N
       }
-    }.init();
+      if (this.lastChildrenPushed) {
+        this.stack.remove(this.stack.size() - 1);
+        this.lastChildrenPushed = false;
+      }
+      this.lastSource.remove();
+      if (removed.parent != null) {
+        removed.parent.childPositionsValid = false;
+        removed.parent.markSubtreeChanged();
+      }
+      this.last = null;
+      removed.map.invalidateIndexes();
+    }
   }
 
   /**
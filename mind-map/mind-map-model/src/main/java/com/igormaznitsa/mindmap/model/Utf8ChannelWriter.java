@@ -0,0 +1,297 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.igormaznitsa.meta.common.utils.Assertions;
+
+/**
+ * Writer encoding chars into UTF-8 through fixed size buffers and sending
+ * encoded bytes directly to channel or output stream. Amount of allocated
+ * memory doesn't depend on size of written text. Closing of the writer
+ * flushes encoder but doesn't close the target. Checksum of bytes produced
+ * since the last reset is calculated during writing.
+ *
+ * @since 1.4.4
+ */
+final class Utf8ChannelWriter extends Writer {
+
+  private static final int CHAR_BUFFER_SIZE = 8192;
+
+  private final WritableByteChannel channel;
+  private final OutputStream stream;
+  private final CharsetEncoder encoder;
+  private final CharBuffer chars;
+  private final ByteBuffer bytes;
+  private final CRC32 checksum = new CRC32();
+  private long written;
+  private boolean closed;
+
+  Utf8ChannelWriter(@Nonnull final WritableByteChannel channel) {
+    this(Assertions.assertNotNull(channel), null);
+  }
+
+  Utf8ChannelWriter(@Nonnull final OutputStream stream) {
+    this(null, Assertions.assertNotNull(stream));
+  }
+
+  private Utf8ChannelWriter(@Nullable final WritableByteChannel channel, @Nullable final OutputStream stream) {
+    super();
+    this.channel = channel;
+    this.stream = stream;
+    this.encoder = Charset.forName("UTF-8").newEncoder() //NOI18N
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    this.bytes = ByteBuffer.allocate(Math.round(CHAR_BUFFER_SIZE * this.encoder.maxBytesPerChar()));
+  }
+
+  private void assertNotClosed() throws IOException {
+    if (this.closed) {
+      throw new IOException("Writer is closed"); //NOI18N
+    }
+  }
+
+  @Override
+  public void write(final int c) throws IOException {
+    assertNotClosed();
+    if (!this.chars.hasRemaining()) {
+      encodeChars(false);
+    }
+    this.chars.put((char) c);
+  }
+
+  @Override
+  public void write(@Nonnull final char[] cbuf, final int off, final int len) throws IOException {
+    assertNotClosed();
+    int offset = off;
+    int left = len;
+    while (left > 0) {
+      if (!this.chars.hasRemaining()) {
+        encodeChars(false);
+      }
+      final int portion = Math.min(left, this.chars.remaining());
+      this.chars.put(cbuf, offset, portion);
+      offset += portion;
+      left -= portion;
+    }
+  }
+
+  @Override
+  public void write(@Nonnull final String str, final int off, final int len) throws IOException {
+    assertNotClosed();
+    int offset = off;
+    int left = len;
+    while (left > 0) {
+      if (!this.chars.hasRemaining()) {
+        encodeChars(false);
+      }
+      final int portion = Math.min(left, this.chars.remaining());
+      final int position = this.chars.position();
+      str.getChars(offset, offset + portion, this.chars.array(), this.chars.arrayOffset() + position);
+      this.chars.position(position + portion);
+      offset += portion;
+      left -= portion;
+    }
+  }
+
+  @Override
+  @Nonnull
+  public Writer append(@Nullable final CharSequence csq) throws IOException {
+    final CharSequence text = csq == null ? "null" : csq; //NOI18N
+    return append(text, 0, text.length());
+  }
+
+  @Override
+  @Nonnull
+  public Writer append(@Nullable final CharSequence csq, final int start, final int end) throws IOException {
+    final CharSequence text = csq == null ? "null" : csq; //NOI18N
+    if (start < 0 || start > end || end > text.length()) {
+      throw new IndexOutOfBoundsException("Wrong range " + start + ".." + end); //NOI18N
+    }
+    if (text instanceof String) {
+      write((String) text, start, end - start);
+    } else {
+      for (int i = start; i < end; i++) {
+        write(text.charAt(i));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Get number of bytes produced by the writer for the moment. Buffered chars
+   * are encoded but may stay in the byte buffer.
+   *
+   * @return position in the target
+   * @throws IOException if any error in the target
+   */
+  long getPosition() throws IOException {
+    assertNotClosed();
+    encodeBuffered(false);
+    return this.written + this.bytes.position();
+  }
+
+  /**
+   * Get checksum of bytes produced by the writer since the last reset.
+   * Buffered chars are encoded but may stay in the byte buffer.
+   *
+   * @return CRC32 of produced bytes
+   * @throws IOException if any error in the target
+   * @see #resetChecksum()
+   */
+  int getChecksum() throws IOException {
+    assertNotClosed();
+    encodeBuffered(false);
+    return (int) this.checksum.getValue();
+  }
+
+  /**
+   * Start calculation of new checksum from the current position.
+   *
+   * @throws IOException if any error in the target
+   */
+  void resetChecksum() throws IOException {
+    assertNotClosed();
+    encodeBuffered(false);
+    this.checksum.reset();
+  }
+
+  /**
+   * Copy region of file into the target. Copied bytes are counted in the
+   * checksum and the checksum of the region is compared with expected one.
+   *
+   * @param source source file channel
+   * @param position start position in the source
+   * @param length number of bytes to be copied
+   * @param expectedChecksum expected CRC32 of the region
+   * @return true if the copied region has expected checksum, false otherwise
+   * @throws IOException if any error in the source or the target, or the
+   * source doesn't contain the region
+   */
+  boolean copyRegion(@Nonnull final FileChannel source, final long position, final long length, final int expectedChecksum) throws IOException {
+    assertNotClosed();
+    encodeChars(false);
+    final CRC32 regionChecksum = new CRC32();
+    long offset = position;
+    long left = length;
+    while (left > 0L) {
+      this.bytes.limit((int) Math.min(this.bytes.capacity(), left));
+      final int read = source.read(this.bytes, offset);
+      if (read <= 0) {
+        this.bytes.clear();
+        throw new IOException("Can't read region from source " + position + ".." + (position + length)); //NOI18N
+      }
+      regionChecksum.update(this.bytes.array(), this.bytes.arrayOffset(), this.bytes.position());
+      updateChecksum(0);
+      writeBytes();
+      offset += read;
+      left -= read;
+    }
+    return (int) regionChecksum.getValue() == expectedChecksum;
+  }
+
+  private void updateChecksum(final int fromPosition) {
+    this.checksum.update(this.bytes.array(), this.bytes.arrayOffset() + fromPosition, this.bytes.position() - fromPosition);
+  }
+
+  private void encodeBuffered(final boolean endOfInput) throws IOException {
+    this.chars.flip();
+    while (true) {
+      final int start = this.bytes.position();
+      final CoderResult result = this.encoder.encode(this.chars, this.bytes, endOfInput);
+      updateChecksum(start);
+      if (result.isUnderflow()) {
+        break;
+      } else if (result.isOverflow()) {
+        writeBytes();
+      } else {
+        result.throwException();
+      }
+    }
+    // not encoded high surrogate stays in the buffer until next portion
+    this.chars.compact();
+  }
+
+  private void encodeChars(final boolean endOfInput) throws IOException {
+    encodeBuffered(endOfInput);
+    if (endOfInput) {
+      while (true) {
+        final int start = this.bytes.position();
+        final boolean overflow = this.encoder.flush(this.bytes).isOverflow();
+        updateChecksum(start);
+        if (!overflow) {
+          break;
+        }
+        writeBytes();
+      }
+    }
+    writeBytes();
+  }
+
+  private void writeBytes() throws IOException {
+    this.bytes.flip();
+    this.written += this.bytes.remaining();
+    if (this.stream == null) {
+      while (this.bytes.hasRemaining()) {
+        this.channel.write(this.bytes);
+      }
+    } else {
+      this.stream.write(this.bytes.array(), this.bytes.arrayOffset() + this.bytes.position(), this.bytes.remaining());
+    }
+    this.bytes.clear();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    assertNotClosed();
+    encodeChars(false);
+    if (this.stream != null) {
+      this.stream.flush();
+    }
+  }
+
+  /**
+   * Encode all buffered chars and flush the encoder, the target is not closed.
+   *
+   * @throws IOException if any error in the target
+   */
+  @Override
+  public void close() throws IOException {
+    if (!this.closed) {
+      encodeChars(true);
+      this.closed = true;
+      if (this.stream != null) {
+        this.stream.flush();
+      }
+    }
+  }
+}
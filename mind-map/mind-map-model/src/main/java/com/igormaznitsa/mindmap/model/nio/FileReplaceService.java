@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model.nio;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Optional extension of path service which can replace a file atomically.
+ *
+ * @since 1.4.4
+ */
+public interface FileReplaceService {
+
+  /**
+   * Replace target file by source file, the target is never absent during
+   * the operation. Symbolic link of the target is not followed, so that the
+   * target must be already resolved. Permissions of existing target are kept.
+   *
+   * @param source source file to be moved, must not be null
+   * @param target target file to be replaced, must not be null
+   * @throws IOException if the file can't be replaced
+   */
+  void replaceFile(@Nonnull File source, @Nonnull File target) throws IOException;
+}
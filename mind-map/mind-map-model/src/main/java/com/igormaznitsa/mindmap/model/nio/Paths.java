@@ -20,6 +20,7 @@ import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
 import com.igormaznitsa.mindmap.model.nio.impl.J7PathService;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.ServiceLoader;
 
@@ -52,5 +53,24 @@ public final class Paths {
     return PATH_SERVICE.getForPathItems(string, next);
   }
 
+  /**
+   * Replace target file by source file atomically if the path service
+   * supports that.
+   *
+   * @param source source file to be moved, must not be null
+   * @param target target file to be replaced, must not be null
+   * @return true if the file has been replaced, false if the path service
+   * doesn't support atomic replace
+   * @throws IOException if the file can't be replaced
+   * @since 1.4.4
+   */
+  public static boolean replaceFile(@Nonnull final File source, @Nonnull final File target) throws IOException {
+    if (PATH_SERVICE instanceof FileReplaceService) {
+      ((FileReplaceService) PATH_SERVICE).replaceFile(source, target);
+      return true;
+    }
+    return false;
+  }
+
 
 }
@@ -16,17 +16,27 @@
 package com.igormaznitsa.mindmap.model.nio.impl;
 
 import com.igormaznitsa.mindmap.model.IgnoreInAnimalSniffer;
+import com.igormaznitsa.mindmap.model.logger.Logger;
+import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
+import com.igormaznitsa.mindmap.model.nio.FileReplaceService;
 import com.igormaznitsa.mindmap.model.nio.Path;
 import com.igormaznitsa.mindmap.model.nio.PathService;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 
 import javax.annotation.Nonnull;
 
 import com.igormaznitsa.meta.annotation.MustNotContainNull;
 
 @IgnoreInAnimalSniffer
-public class J7PathService implements PathService {
+public class J7PathService implements PathService, FileReplaceService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(J7PathService.class);
 
   @Override
   @Nonnull
@@ -39,5 +49,28 @@ public class J7PathService implements PathService {
   public Path getForPathItems(@Nonnull final String first, @Nonnull @MustNotContainNull final String... items) {
     return new J7Path(first, items);
   }
+
+  @Override
+  public void replaceFile(@Nonnull final File source, @Nonnull final File target) throws IOException {
+    final java.nio.file.Path sourcePath = source.toPath();
+    final java.nio.file.Path targetPath = target.toPath();
+    if (target.isFile()) {
+      try {
+        final PosixFileAttributeView view = Files.getFileAttributeView(targetPath, PosixFileAttributeView.class);
+        if (view != null) {
+          Files.setPosixFilePermissions(sourcePath, view.readAttributes().permissions());
+        }
+      }
+      catch (IOException ex) {
+        LOGGER.warn("Can't copy permissions of file " + target); //NOI18N
+      }
+    }
+    try {
+      Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (AtomicMoveNotSupportedException ex) {
+      Files.move(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
   
 }
@@ -15,6 +15,8 @@
  */
 package com.igormaznitsa.mindmap.model.parser;
 
+import java.io.Reader;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -92,12 +94,101 @@ public final class MindMapLexer {
     }
   }
 
+  /**
+   * Reusable char sequence view to a region of lexer buffer, it allows to
+   * process token text without making its copy. A view provided by lexer is
+   * valid only until next lexer advance.
+   *
+   * @since 1.4.4
+   */
+  public static final class TokenView implements CharSequence {
+
+    private CharSequence buffer = "";
+    private int start;
+    private int end;
+
+    @Nonnull
+    @ReturnsOriginal
+    public TokenView set(@Nonnull final CharSequence buffer, final int start, final int end) {
+      this.buffer = buffer;
+      this.start = start;
+      this.end = end;
+      return this;
+    }
+
+    /**
+     * Exclude all leading and trailing chars with codes less or equal than
+     * space, in the same manner as {@link String#trim()}.
+     *
+     * @return the same view
+     */
+    @Nonnull
+    @ReturnsOriginal
+    public TokenView trim() {
+      while (this.start < this.end && this.buffer.charAt(this.start) <= ' ') {
+        this.start++;
+      }
+      while (this.end > this.start && this.buffer.charAt(this.end - 1) <= ' ') {
+        this.end--;
+      }
+      return this;
+    }
+
+    public int getStartOffset() {
+      return this.start;
+    }
+
+    public int getEndOffset() {
+      return this.end;
+    }
+
+    @Nonnull
+    public CharSequence getBuffer() {
+      return this.buffer;
+    }
+
+    @Override
+    public int length() {
+      return this.end - this.start;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      return this.buffer.charAt(this.start + index);
+    }
+
+    @Override
+    @Nonnull
+    public CharSequence subSequence(final int start, final int end) {
+      return this.buffer.subSequence(this.start + start, this.start + end);
+    }
+
+    @Override
+    @Nonnull
+    public String toString() {
+      return this.buffer.subSequence(this.start, this.end).toString();
+    }
+  }
+
+  /**
+   * Number of chars before token start which should be kept in stream window
+   * because lexer can look back to check line start and closing tags.
+   */
+  private static final int STREAM_LOOKBACK = 8;
+
+  /**
+   * Default initial size of char window for stream mode.
+   */
+  public static final int DEFAULT_STREAM_WINDOW = 16384;
+
   private CharSequence buffer = "";
+  private ReaderCharSequence streamBuffer;
   private int endOffset;
   private int tokenStart;
   private int tokenEnd;
   private TokenType tokenType = TokenType.UNKNOWN_LINE;
   private final LexerPosition position = new LexerPosition(0, TokenType.UNKNOWN_LINE);
+  private final TokenView tokenView = new TokenView();
 
   public int getTokenStartOffset() {
     return this.tokenStart;
@@ -109,6 +200,7 @@ public final class MindMapLexer {
 
   public void start(@Nonnull final CharSequence buffer, final int startOffset, final int endOffset, @Nonnull final MindMapLexer.TokenType initialState) {
     this.buffer = buffer;
+    this.streamBuffer = null;
     this.tokenType = initialState;
     this.position.offset = startOffset;
     this.position.tokenCompleted = true;
@@ -116,6 +208,40 @@ public final class MindMapLexer {
     this.endOffset = endOffset;
   }
 
+  /**
+   * Start lexer in stream mode, text is read from the reader through bounded
+   * window and already processed text is released during advance so that
+   * memory consumption depends on the biggest token but not on the whole text.
+   * Offsets are counted from the reader start. The reader is not closed.
+   *
+   * @param reader source of text, must not be null
+   * @param initialWindowSize initial size of char window, it is extended
+   * automatically if some token doesn't fit
+   * @param initialState initial state of lexer
+   * @since 1.4.4
+   */
+  public void start(@Nonnull final Reader reader, final int initialWindowSize, @Nonnull final MindMapLexer.TokenType initialState) {
+    this.streamBuffer = new ReaderCharSequence(reader, initialWindowSize);
+    this.buffer = this.streamBuffer;
+    this.tokenType = initialState;
+    this.tokenStart = 0;
+    this.tokenEnd = 0;
+    this.position.offset = 0;
+    this.position.tokenCompleted = true;
+    this.position.state = this.tokenType;
+    this.endOffset = Integer.MAX_VALUE;
+  }
+
+  /**
+   * Check that lexer works in stream mode.
+   *
+   * @return true if text is read from reader, false if it is in char sequence
+   * @since 1.4.4
+   */
+  public boolean isStreamMode() {
+    return this.streamBuffer != null;
+  }
+
   public void setBufferEndOffset(final int value) {
     this.endOffset = value;
   }
@@ -125,6 +251,18 @@ public final class MindMapLexer {
     return getBufferSequence().subSequence(this.tokenStart, this.tokenEnd);
   }
 
+  /**
+   * Get view of current token text, the view is reused by lexer and valid only
+   * until next advance.
+   *
+   * @return view to the current token in the lexer buffer
+   * @since 1.4.4
+   */
+  @Nonnull
+  public TokenView getTokenView() {
+    return this.tokenView.set(this.buffer, this.tokenStart, this.tokenEnd);
+  }
+
   @Nonnull
   public String getTokenText() {
     return getTokenSequence().toString();
@@ -147,6 +285,9 @@ public final class MindMapLexer {
   public void advance() {
     boolean tokenHasBeenCompleted = this.position.isTokenCompleted();
     this.tokenStart = tokenHasBeenCompleted ? this.position.offset : this.tokenStart;
+    if (this.streamBuffer != null) {
+      this.streamBuffer.releaseBefore(this.tokenStart - STREAM_LOOKBACK);
+    }
     boolean inAction = true;
 
     while (inAction && !isBufferEnd()) {
@@ -325,6 +466,9 @@ public final class MindMapLexer {
 
   private boolean hasTextAt(@Nonnull final String text, int position) {
     boolean result = false;
+    if (this.streamBuffer != null) {
+      this.streamBuffer.isAvailable(position + text.length() - 1);
+    }
     if (position >= 0 && position + text.length() <= this.buffer.length()) {
       boolean ok = true;
       for (int i = 0; i < text.length(); i++) {
@@ -339,7 +483,8 @@ public final class MindMapLexer {
   }
 
   private boolean isBufferEnd() {
-    return this.position.offset >= this.endOffset;
+    final int offset = this.position.offset;
+    return offset >= this.endOffset || (this.streamBuffer != null && !this.streamBuffer.isAvailable(offset));
   }
 
   private boolean tokenStartsWith(@Nonnull final String text) {
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.annotation.Nonnull;
+
+import com.igormaznitsa.meta.common.utils.Assertions;
+
+/**
+ * Char sequence which keeps only bounded refillable window of reader content in
+ * memory. Offsets are absolute offsets from the reader start, chars before the
+ * released position can be dropped during refill so that the window size
+ * depends only on the biggest lexeme but not on the whole text size.
+ * <p>
+ * <b>It does not fulfill the whole {@link CharSequence} contract:</b> only
+ * chars of the current window (from the first not dropped offset up to
+ * {@link #length()}) are addressable, {@link #charAt(int)} and
+ * {@link #subSequence(int, int)} throw {@link IndexOutOfBoundsException} for
+ * dropped offsets and {@link #toString()} returns only the current window, so
+ * that its length can be less than {@link #length()}. The sequence is designed
+ * for the mind map lexer only.</p>
+ *
+ * @since 1.4.4
+ */
+final class ReaderCharSequence implements CharSequence {
+
+  private final Reader reader;
+  private char[] window;
+  private int windowStart;
+  private int windowEnd;
+  private int releasedOffset;
+  private boolean endOfStream;
+
+  ReaderCharSequence(@Nonnull final Reader reader, final int initialWindowSize) {
+    this.reader = Assertions.assertNotNull(reader);
+    this.window = new char[Math.max(16, initialWindowSize)];
+  }
+
+  /**
+   * Allow to drop all chars placed before offset during next refill.
+   *
+   * @param offset absolute offset, chars before the offset are not needed
+   * anymore
+   */
+  void releaseBefore(final int offset) {
+    if (offset > this.releasedOffset) {
+      this.releasedOffset = offset;
+    }
+  }
+
+  /**
+   * Check that char for offset is presented, read next chunk if needed.
+   *
+   * @param offset absolute offset
+   * @return true if char for the offset is presented, false if end of stream
+   */
+  boolean isAvailable(final int offset) {
+    return offset < this.windowEnd || fill(offset);
+  }
+
+  int getWindowCapacity() {
+    return this.window.length;
+  }
+
+  private boolean fill(final int offset) {
+    try {
+      while (offset >= this.windowEnd && !this.endOfStream) {
+        if (this.windowEnd - this.windowStart == this.window.length) {
+          compact();
+        }
+        final int loaded = this.windowEnd - this.windowStart;
+        final int read = this.reader.read(this.window, loaded, this.window.length - loaded);
+        if (read < 0) {
+          this.endOfStream = true;
+        } else {
+          this.windowEnd += read;
+        }
+      }
+    }
+    catch (IOException ex) {
+      throw new IllegalStateException("Can't read next chunk of mind map text", ex); //NOI18N
+    }
+    return offset < this.windowEnd;
+  }
+
+  private void compact() {
+    final int dropped = Math.min(this.releasedOffset, this.windowEnd) - this.windowStart;
+    if (dropped > 0) {
+      System.arraycopy(this.window, dropped, this.window, 0, this.windowEnd - this.windowStart - dropped);
+      this.windowStart += dropped;
+    } else {
+      final char[] enlarged = new char[this.window.length << 1];
+      System.arraycopy(this.window, 0, enlarged, 0, this.window.length);
+      this.window = enlarged;
+    }
+  }
+
+  /**
+   * Get number of chars loaded from the reader for the moment. It is total
+   * length of text only after end of stream has been reached.
+   *
+   * @return number of loaded chars
+   */
+  @Override
+  public int length() {
+    return this.windowEnd;
+  }
+
+  @Override
+  public char charAt(final int index) {
+    if (index < this.windowStart || !isAvailable(index)) {
+      throw new IndexOutOfBoundsException("Offset is out of window : " + index); //NOI18N
+    }
+    return this.window[index - this.windowStart];
+  }
+
+  @Override
+  @Nonnull
+  public CharSequence subSequence(final int start, final int end) {
+    if (start > end || start < this.windowStart || (end > start && !isAvailable(end - 1))) {
+      throw new IndexOutOfBoundsException("Range is out of window : " + start + ".." + end); //NOI18N
+    }
+    return new String(this.window, start - this.windowStart, end - start);
+  }
+
+  /**
+   * Get text of the current window. Chars dropped during refill are not
+   * presented so that the result starts at the first not dropped offset.
+   *
+   * @return chars of the current window
+   */
+  @Override
+  @Nonnull
+  public String toString() {
+    return new String(this.window, 0, this.windowEnd - this.windowStart);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class CompactStringMapTest {
+
+  @Test
+  public void testWith_SortedAndImmutable() {
+    final CompactStringMap empty = CompactStringMap.EMPTY;
+    final CompactStringMap one = empty.with("zzz", "1");
+    final CompactStringMap three = one.with("aaa", "2").with("mmm", "3");
+
+    assertTrue(empty.isEmpty());
+    assertEquals(1, one.size());
+    assertEquals(3, three.size());
+
+    final List<String> keys = new ArrayList<String>();
+    for (final Map.Entry<String, String> e : three.entrySet()) {
+      keys.add(e.getKey());
+    }
+    assertArrayEquals(new String[]{"aaa", "mmm", "zzz"}, keys.toArray());
+
+    assertEquals("3", three.get("mmm"));
+    assertNull(three.get("nnn"));
+    assertSame(three, three.with("mmm", "3"));
+    assertSame(three, three.with("nnn", null));
+    assertEquals("4", three.with("mmm", "4").get("mmm"));
+    assertEquals("3", three.get("mmm"));
+    assertSame(CompactStringMap.EMPTY, one.with("zzz", null));
+
+    final Map<String, String> etalon = new TreeMap<String, String>();
+    etalon.put("aaa", "2");
+    etalon.put("zzz", "1");
+    assertEquals(etalon, three.with("mmm", null));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testPut_Unsupported() {
+    CompactStringMap.EMPTY.with("a", "b").put("c", "d");
+  }
+
+  @Test
+  public void testTopicAttributes_KeysInternedAndEmptyShared() throws Exception {
+    final MindMap map = new MindMap(null, new StringReader("---\n# root\n> fillColor=`#FF0000`\n\n## child\n> fillColor=`#00FF00`\n\n## child2\n"));
+    final Topic root = map.getRoot();
+    final Topic child = root.getChildren().get(0);
+    final Topic child2 = root.getChildren().get(1);
+
+    final String key1 = root.getAttributes().keySet().iterator().next();
+    final String key2 = child.getAttributes().keySet().iterator().next();
+    assertSame(key1, key2);
+
+    assertSame(child2.getAttributes(), child2.getCodeSnippets());
+
+    final Map<String, String> before = child2.getAttributes();
+    child2.setAttribute("collapsed", "true");
+    assertTrue(before.isEmpty());
+    assertEquals("true", child2.getAttribute("collapsed"));
+  }
+}
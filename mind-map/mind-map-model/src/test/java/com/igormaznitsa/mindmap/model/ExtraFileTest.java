@@ -16,10 +16,31 @@
 package com.igormaznitsa.mindmap.model;
 
 import java.io.File;
+import java.util.regex.Pattern;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
 public class ExtraFileTest {
+
+  @Test
+  public void testGetNormalizedPath_CachedForBaseFolder() throws Exception {
+    final ExtraFile file = new ExtraFile(MMapURI.makeFromFilePath(new File("/some/base"), "chunga/../changa.txt", null));
+    final File base1 = new File("/some/base");
+    final File base2 = new File("/another/folder");
+
+    final String path1 = file.getNormalizedPath(base1);
+    assertEquals(new File("/some/base/changa.txt").getAbsolutePath(), path1);
+    assertSame(path1, file.getNormalizedPath(new File("/some/base")));
+
+    final String path2 = file.getNormalizedPath(base2);
+    assertEquals(new File("/another/folder/changa.txt").getAbsolutePath(), path2);
+    assertSame(path2, file.getNormalizedPath(base2));
+
+    assertTrue(file.containsPattern(base2, Pattern.compile("another")));
+    assertFalse(file.containsPattern(base1, Pattern.compile("another")));
+    assertTrue(file.containsPattern(base1, Pattern.compile("some")));
+  }
+
   @Test
   public void testHasParent() throws Exception {
     assertFalse(new ExtraFile("file:///item1/item2/item2.txt").hasParent(null, new MMapURI("file:///item1/item2/item2.txt")));
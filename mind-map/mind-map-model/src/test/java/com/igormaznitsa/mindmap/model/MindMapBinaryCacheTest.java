@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MindMapBinaryCacheTest {
+
+  private static final String MAP = "Mind Map generated by NB MindMap plugin\n"
+      + "> __version__=`1.1`,showJumps=`true`\n"
+      + "---\n"
+      + "# Root \\<text\\>\n"
+      + "> collapsed=`true`,fillColor=`#FF0000`\n\n"
+      + "- NOTE\n"
+      + "<pre>Some &lt;note&gt; &amp; text</pre>\n"
+      + "```Java\nSystem.exit(0);\n```\n"
+      + "## Child 1\n"
+      + "> topicLinkUID=`1234`\n\n"
+      + "### Child 1.1\n"
+      + "- LINK\n"
+      + "<pre>http://www.igormaznitsa.com</pre>\n"
+      + "## Child 2\n"
+      + "- TOPIC\n"
+      + "<pre>1234</pre>\n"
+      + "- FILE\n"
+      + "<pre>some/file.txt</pre>\n"
+      + "### Child 2.1\n";
+
+  private File folder;
+
+  @Before
+  public void before() throws IOException {
+    this.folder = File.createTempFile("mmdbinarycache", "");
+    assertTrue(this.folder.delete());
+    assertTrue(this.folder.mkdirs());
+  }
+
+  @After
+  public void after() throws IOException {
+    FileUtils.deleteDirectory(this.folder);
+  }
+
+  @Test
+  public void testWriteRead_SameMap() throws Exception {
+    final MindMap map = new MindMap(null, new StringReader(MAP));
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    MindMapBinaryCache.write(map, buffer, null);
+
+    final MindMap restored = MindMapBinaryCache.read(null, new ByteArrayInputStream(buffer.toByteArray()), null);
+    assertNotNull(restored);
+    assertEquals(map.packToString(), restored.packToString());
+    assertSame(restored.getRoot().getChildren().get(0), restored.findTopicForLink(new ExtraTopic("1234")));
+  }
+
+  @Test
+  public void testWriteRead_EmptyMap() throws Exception {
+    final MindMap map = new MindMap(null, false);
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    MindMapBinaryCache.write(map, buffer, null);
+
+    final MindMap restored = MindMapBinaryCache.read(null, new ByteArrayInputStream(buffer.toByteArray()), null);
+    assertNotNull(restored);
+    assertNull(restored.getRoot());
+  }
+
+  @Test(expected = IOException.class)
+  public void testRead_WrongData() throws Exception {
+    MindMapBinaryCache.read(null, new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}), null);
+  }
+
+  @Test(expected = IOException.class)
+  public void testRead_HugeStringCountInCorruptData() throws Exception {
+    // magic, version, empty digest and Integer.MAX_VALUE strings
+    final byte[] data = new byte[]{0x4D, 0x4D, 0x42, 0x43, 1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+    MindMapBinaryCache.read(null, new ByteArrayInputStream(data), null, data.length);
+  }
+
+  @Test
+  public void testLoad_CacheFollowsContent() throws Exception {
+    final File cacheFolder = new File(this.folder, "cache");
+    final File file = new File(this.folder, "test.mmd");
+    FileUtils.writeStringToFile(file, MAP, "UTF-8");
+
+    final MindMapBinaryCache cache = new MindMapBinaryCache(cacheFolder);
+    final MindMap parsed = cache.load(null, file);
+    assertEquals(1, cacheFolder.list().length);
+
+    final MindMap cached = cache.load(null, file);
+    assertNotSame(parsed, cached);
+    assertEquals(parsed.packToString(), cached.packToString());
+
+    cached.getRoot().setText("Changed");
+    cached.save(file);
+    cache.put(file, cached);
+    assertEquals(1, cacheFolder.list().length);
+    assertEquals("Changed", cache.load(null, file).getRoot().getText());
+
+    // broken cache file must be ignored and replaced
+    for (final File f : cacheFolder.listFiles()) {
+      FileUtils.writeStringToFile(f, "broken", "UTF-8");
+    }
+    assertEquals("Changed", cache.load(null, file).getRoot().getText());
+    assertEquals("Changed", cache.load(null, file).getRoot().getText());
+
+    cache.clear();
+    assertEquals(0, cacheFolder.list().length);
+  }
+
+  @Test
+  public void testLoad_LeastRecentlyUsedFilesRemoved() throws Exception {
+    final File cacheFolder = new File(this.folder, "cache");
+    final File fileA = new File(this.folder, "a.mmd");
+    final File fileB = new File(this.folder, "b.mmd");
+    final File fileC = new File(this.folder, "c.mmd");
+    FileUtils.writeStringToFile(fileA, MAP, "UTF-8");
+    FileUtils.writeStringToFile(fileB, MAP.replace("Child 1", "B"), "UTF-8");
+    FileUtils.writeStringToFile(fileC, MAP.replace("Child 1", "C"), "UTF-8");
+
+    final long now = System.currentTimeMillis();
+    final MindMapBinaryCache cache = new MindMapBinaryCache(cacheFolder, 2);
+
+    cache.load(null, fileA);
+    final File cachedA = cacheFolder.listFiles()[0];
+    assertTrue(cachedA.setLastModified(now - 20000L));
+
+    cache.load(null, fileB);
+    assertEquals(2, cacheFolder.list().length);
+    for (final File f : cacheFolder.listFiles()) {
+      if (!f.equals(cachedA)) {
+        assertTrue(f.setLastModified(now - 10000L));
+      }
+    }
+
+    // restore from cache updates access time of the cache file
+    cache.load(null, fileA);
+    assertTrue(cachedA.lastModified() > now - 10000L);
+
+    cache.load(null, fileC);
+    assertEquals(2, cacheFolder.list().length);
+    assertTrue(cachedA.isFile());
+    assertEquals("C", cache.load(null, fileC).getRoot().getChildren().get(0).getText());
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MindMapBulkLoaderTest {
+
+  private File folder;
+
+  @Before
+  public void before() throws IOException {
+    this.folder = File.createTempFile("mmdbulk", "");
+    assertTrue(this.folder.delete());
+    assertTrue(this.folder.mkdirs());
+  }
+
+  @After
+  public void after() {
+    FileUtils.deleteQuietly(this.folder);
+  }
+
+  private List<File> makeFiles(final int number) throws IOException {
+    final List<File> result = new ArrayList<File>();
+    for (int i = 0; i < number; i++) {
+      final File file = new File(this.folder, "map" + i + ".mmd");
+      FileUtils.writeStringToFile(file, "test\n---\n# Root " + i + "\n## Child\n", "UTF-8");
+      result.add(file);
+    }
+    return result;
+  }
+
+  @Test
+  public void testLoad() throws Exception {
+    final List<File> files = makeFiles(32);
+    final File absent = new File(this.folder, "absent.mmd");
+    files.add(absent);
+
+    final Map<File, String> loaded = new ConcurrentHashMap<File, String>();
+    final Map<File, Exception> errors = new ConcurrentHashMap<File, Exception>();
+
+    final MindMapBulkLoader loader = new MindMapBulkLoader(4);
+    try {
+      final MindMapBulkLoader.Job job = loader.load(files, new MindMapBulkLoader.Callback() {
+        @Override
+        public void onLoaded(final File file, final MindMap map) throws Exception {
+          loaded.put(file, map.getRoot().getText());
+        }
+
+        @Override
+        public void onError(final File file, final Exception error) {
+          errors.put(file, error);
+        }
+      });
+      job.await();
+      assertTrue(job.isDone());
+      assertFalse(job.isCancelled());
+    }
+    finally {
+      loader.shutdown();
+    }
+
+    assertEquals(32, loaded.size());
+    for (int i = 0; i < 32; i++) {
+      assertEquals("Root " + i, loaded.get(files.get(i)));
+    }
+    assertEquals(1, errors.size());
+    assertTrue(errors.containsKey(absent));
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    final List<File> files = makeFiles(64);
+    final AtomicInteger counter = new AtomicInteger();
+    final MindMapBulkLoader.Job[] job = new MindMapBulkLoader.Job[1];
+
+    final MindMapBulkLoader loader = new MindMapBulkLoader(1);
+    try {
+      synchronized (job) {
+        job[0] = loader.load(files, new MindMapBulkLoader.Callback() {
+          @Override
+          public void onLoaded(final File file, final MindMap map) throws Exception {
+            counter.incrementAndGet();
+            synchronized (job) {
+              job[0].cancel();
+            }
+          }
+
+          @Override
+          public void onError(final File file, final Exception error) {
+            fail("Unexpected error");
+          }
+        });
+      }
+      job[0].await();
+      assertTrue(job[0].isCancelled());
+      assertTrue(job[0].isDone());
+    }
+    finally {
+      loader.shutdown();
+    }
+    assertEquals(1, counter.get());
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MindMapLinkIndexTest {
+
+  private File folder;
+
+  @Before
+  public void before() throws IOException {
+    this.folder = File.createTempFile("mmdlinkindex", "");
+    assertTrue(this.folder.delete());
+    assertTrue(this.folder.mkdirs());
+  }
+
+  @After
+  public void after() {
+    FileUtils.deleteQuietly(this.folder);
+  }
+
+  private File writeMap(final String name, final String text) throws IOException {
+    final File file = new File(this.folder, name);
+    FileUtils.writeStringToFile(file, text, "UTF-8");
+    return file.getAbsoluteFile();
+  }
+
+  @Test
+  public void testIndexAndReverseLookup() throws Exception {
+    final File docs = new File(this.folder, "docs");
+    assertTrue(docs.mkdirs());
+    final File doc = new File(docs, "doc.txt");
+    FileUtils.writeStringToFile(doc, "hello", "UTF-8");
+
+    final File mapA = writeMap("a.mmd", "A\n---\n# Root\n> topicLinkUID=`UID1`\n\n- FILE\n<pre>docs/doc.txt</pre>\n- LINK\n<pre>http://www.igormaznitsa.com</pre>\n## Child\n- TOPIC\n<pre>UID1</pre>\n");
+    final File mapB = writeMap("b.mmd", "B\n---\n# Root\n- FILE\n<pre>docs</pre>\n");
+    final File mapC = writeMap("c.mmd", "C\n---\n# Root\n");
+
+    final MindMapLinkIndex index = new MindMapLinkIndex(this.folder, null);
+    assertEquals(3, index.update());
+    assertEquals(0, index.update());
+
+    final MindMapLinkIndex.Entry entry = index.getEntry(mapA);
+    assertNotNull(entry);
+    assertEquals(Collections.singletonList("UID1"), entry.getTopicUids());
+    assertEquals(Collections.singletonList("UID1"), entry.getJumpTargets());
+    assertEquals(Collections.singletonList("http://www.igormaznitsa.com"), entry.getUrlLinks());
+    assertEquals(1, entry.getFileLinks().size());
+
+    assertEquals(Collections.singleton(mapA), index.findMapsLinkingTo(doc));
+    assertEquals(2, index.findMapsLinkingTo(docs).size());
+    assertTrue(index.findMapsLinkingTo(docs).containsAll(Arrays.asList(mapA, mapB)));
+    assertTrue(index.findMapsLinkingTo(new File(this.folder, "unknown.txt")).isEmpty());
+
+    assertTrue(mapA.delete());
+    assertTrue(mapC.setLastModified(mapC.lastModified() - 10000L));
+    assertEquals(2, index.update());
+    assertNull(index.getEntry(mapA));
+    assertEquals(Collections.singleton(mapB), index.findMapsLinkingTo(docs));
+  }
+
+  @Test
+  public void testSaveAndLoad() throws Exception {
+    final File indexFile = new File(this.folder, "index/links.idx");
+    final File mapA = writeMap("a.mmd", "A\n---\n# Root\n- FILE\n<pre>doc.txt</pre>\n");
+    writeMap("b.mmd", "B\n---\n# Root\n> topicLinkUID=`UID2`\n");
+
+    final MindMapLinkIndex index = new MindMapLinkIndex(this.folder, indexFile);
+    assertEquals(2, index.update());
+    assertTrue(indexFile.isFile());
+
+    final MindMapLinkIndex loaded = new MindMapLinkIndex(this.folder, indexFile);
+    loaded.load();
+    assertEquals(2, loaded.getIndexedMaps().size());
+    assertEquals(Collections.singleton(mapA), loaded.findMapsLinkingTo(new File(this.folder, "doc.txt")));
+    assertEquals(0, loaded.update());
+  }
+
+  @Test
+  public void testSaveAndLoad_VeryLongLink() throws Exception {
+    final File indexFile = new File(this.folder, "links.idx");
+    final StringBuilder link = new StringBuilder("http://www.igormaznitsa.com/?data=");
+    while (link.length() < 70000) {
+      link.append("abcdef0123456789");
+    }
+    writeMap("a.mmd", "A\n---\n# Root\n- LINK\n<pre>" + link + "</pre>\n");
+
+    final MindMapLinkIndex index = new MindMapLinkIndex(this.folder, indexFile);
+    assertEquals(1, index.update());
+    assertTrue(indexFile.isFile());
+
+    final MindMapLinkIndex loaded = new MindMapLinkIndex(this.folder, indexFile);
+    loaded.load();
+    assertEquals(1, loaded.getIndexedMaps().size());
+    assertEquals(Collections.singletonList(link.toString()), loaded.getEntry(new File(this.folder, "a.mmd").getAbsoluteFile()).getUrlLinks());
+    assertEquals(0, loaded.update());
+  }
+
+  @Test
+  public void testMakeKey_CaseFoldedForCaseInsensitiveFiles() throws Exception {
+    final File linked = new File(this.folder, "Docs" + File.separator + ".." + File.separator + "Doc.TXT");
+    final File other = new File(this.folder, "doc.txt");
+    assertEquals(MindMapLinkIndex.makeKey(linked, true), MindMapLinkIndex.makeKey(other, true));
+    assertFalse(MindMapLinkIndex.makeKey(linked, false).equals(MindMapLinkIndex.makeKey(other, false)));
+  }
+
+  @Test
+  public void testUpdate_FailedMapIsNotRegistered() throws Exception {
+    final File missing = new File(this.folder, "missing.mmd").getAbsoluteFile();
+    final MindMapLinkIndex index = new MindMapLinkIndex(this.folder, null);
+    assertEquals(0, index.update(Collections.singleton(missing), false));
+    assertNull(index.getEntry(missing));
+
+    writeMap("missing.mmd", "A\n---\n# Root\n- FILE\n<pre>doc.txt</pre>\n");
+    assertEquals(1, index.update(Collections.singleton(missing), false));
+    assertEquals(Collections.singleton(missing), index.findMapsLinkingTo(new File(this.folder, "doc.txt")));
+  }
+
+  @Test
+  public void testLoadBrokenIndexFile() throws Exception {
+    final File indexFile = new File(this.folder, "links.idx");
+    FileUtils.writeStringToFile(indexFile, "some wrong content", "UTF-8");
+    final MindMapLinkIndex index = new MindMapLinkIndex(this.folder, indexFile);
+    index.load();
+    assertTrue(index.getIndexedMaps().isEmpty());
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.model;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class MindMapSearchIndexTest {
+
+  private static final Set<Extra.ExtraType> ALL_EXTRAS = EnumSet.of(Extra.ExtraType.NOTE, Extra.ExtraType.LINK, Extra.ExtraType.FILE);
+
+  private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "Epsilon", "ZETA", "eta", "theta"};
+
+  private static Pattern makeEscapedPattern(final String text, final int flags) {
+    final StringBuilder result = new StringBuilder();
+    for (final char c : text.toCharArray()) {
+      result.append(String.format(Locale.ENGLISH, "\\u%04X", (int) c));
+    }
+    return Pattern.compile(result.toString(), flags);
+  }
+
+  private static MindMap makeRandomMap(final Random rnd, final int topics) throws Exception {
+    final MindMap map = new MindMap(null, true);
+    final List<Topic> all = new ArrayList<Topic>();
+    all.add(map.getRoot());
+    for (int i = 0; i < topics; i++) {
+      final Topic parent = all.get(rnd.nextInt(all.size()));
+      final Topic topic = parent.makeChild(WORDS[rnd.nextInt(WORDS.length)] + ' ' + WORDS[rnd.nextInt(WORDS.length)] + i, null);
+      if (rnd.nextInt(3) == 0) {
+        topic.setExtra(new ExtraNote("note with " + WORDS[rnd.nextInt(WORDS.length)]));
+      }
+      if (rnd.nextInt(5) == 0) {
+        topic.setExtra(new ExtraLink("http://www." + WORDS[rnd.nextInt(WORDS.length)].toLowerCase(Locale.ENGLISH) + ".org"));
+      }
+      all.add(topic);
+    }
+    return map;
+  }
+
+  private static Topic bruteForceNext(final MindMap map, final Topic start, final Pattern pattern) {
+    final List<Topic> plain = map.makePlainList();
+    for (int i = start == null ? 0 : plain.indexOf(start) + 1; i < plain.size(); i++) {
+      if (plain.get(i).containsPattern(null, pattern, true, ALL_EXTRAS)) {
+        return plain.get(i);
+      }
+    }
+    return null;
+  }
+
+  private static Topic bruteForcePrev(final MindMap map, final Topic start, final Pattern pattern) {
+    final List<Topic> plain = map.makePlainList();
+    for (int i = (start == null ? plain.size() : plain.indexOf(start)) - 1; i >= 0; i--) {
+      if (plain.get(i).containsPattern(null, pattern, true, ALL_EXTRAS)) {
+        return plain.get(i);
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testExtractLiterals() {
+    assertEquals(Arrays.asList("abc"), MindMapSearchIndex.extractLiterals(makeEscapedPattern("abc", 0)));
+    assertEquals(Arrays.asList("a.b"), MindMapSearchIndex.extractLiterals(Pattern.compile(Pattern.quote("a.b"))));
+    assertEquals(Arrays.asList("a.b*"), MindMapSearchIndex.extractLiterals(Pattern.compile("a.b*", Pattern.LITERAL)));
+    assertEquals(Arrays.asList("a", "cde"), MindMapSearchIndex.extractLiterals(Pattern.compile("ab?cde")));
+    assertEquals(Arrays.asList("word"), MindMapSearchIndex.extractLiterals(Pattern.compile("\\bword")));
+    assertEquals(Arrays.asList("start", "end"), MindMapSearchIndex.extractLiterals(Pattern.compile("^start.*end$")));
+    assertEquals(Arrays.asList("a.b"), MindMapSearchIndex.extractLiterals(Pattern.compile("a\\.b")));
+    assertEquals(Arrays.asList("ab", "c"), MindMapSearchIndex.extractLiterals(Pattern.compile("abx{2,3}c")));
+    assertNull(MindMapSearchIndex.extractLiterals(Pattern.compile("foo|bar")));
+    assertNull(MindMapSearchIndex.extractLiterals(Pattern.compile("(foo)")));
+    assertNull(MindMapSearchIndex.extractLiterals(Pattern.compile("[abc]def")));
+    assertNull(MindMapSearchIndex.extractLiterals(Pattern.compile("abc", Pattern.COMMENTS)));
+  }
+
+  @Test
+  public void testFindNextAndPrev_SameAsBruteForce() throws Exception {
+    final Random rnd = new Random(12345L);
+    final MindMap map = makeRandomMap(rnd, 500);
+    final List<Topic> plain = map.makePlainList();
+
+    final List<Pattern> patterns = new ArrayList<Pattern>();
+    for (final String w : WORDS) {
+      patterns.add(makeEscapedPattern(w, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+      patterns.add(makeEscapedPattern(w, Pattern.UNICODE_CASE));
+      patterns.add(Pattern.compile(Pattern.quote(w.substring(1))));
+    }
+    patterns.add(Pattern.compile("a"));
+    patterns.add(Pattern.compile("eta\\d+"));
+    patterns.add(Pattern.compile("alpha|beta"));
+    patterns.add(Pattern.compile("with\\s+gam"));
+    patterns.add(Pattern.compile("www\\.delta\\.org"));
+    patterns.add(Pattern.compile("nothing to find"));
+
+    for (final Pattern p : patterns) {
+      for (int i = 0; i < 40; i++) {
+        final Topic start = i == 0 ? null : plain.get(rnd.nextInt(plain.size()));
+        assertSame(p.pattern(), bruteForceNext(map, start, p), map.findNext(null, start, p, true, ALL_EXTRAS));
+        assertSame(p.pattern(), bruteForcePrev(map, start, p), map.findPrev(null, start, p, true, ALL_EXTRAS));
+      }
+    }
+  }
+
+  @Test
+  public void testIndexFollowsChanges() throws Exception {
+    final MindMap map = new MindMap(null, true);
+    final Topic first = map.getRoot().makeChild("first", null);
+    final Topic second = map.getRoot().makeChild("second", null);
+    final Topic third = map.getRoot().makeChild("third", null);
+    final Pattern pattern = Pattern.compile("needle", Pattern.CASE_INSENSITIVE);
+
+    assertNull(map.findNext(null, null, pattern, true, ALL_EXTRAS));
+
+    second.setText("Some NEEDLE here");
+    assertSame(second, map.findNext(null, null, pattern, true, ALL_EXTRAS));
+
+    third.setExtra(new ExtraNote("note"));
+    third.setExtra(new ExtraNote("note with needle"));
+    assertSame(third, map.findNext(null, second, pattern, true, ALL_EXTRAS));
+    assertNull(map.findNext(null, second, pattern, true, null));
+
+    second.setText("nothing");
+    assertSame(third, map.findNext(null, null, pattern, true, ALL_EXTRAS));
+
+    third.makeFirst();
+    first.setExtra(new ExtraLink("http://needle.org"));
+    assertSame(third, map.findNext(null, null, pattern, true, ALL_EXTRAS));
+    assertSame(first, map.findNext(null, third, pattern, true, ALL_EXTRAS));
+    assertSame(third, map.findPrev(null, first, pattern, true, ALL_EXTRAS));
+
+    first.removeExtras();
+    third.delete();
+    assertNull(map.findNext(null, null, pattern, true, ALL_EXTRAS));
+
+    final Topic added = map.getRoot().makeChild("added needle", null);
+    assertSame(added, map.findPrev(null, null, pattern, true, ALL_EXTRAS));
+  }
+
+  @Test
+  public void testManyChanges_IndexRebuilt() {
+    final MindMap map = new MindMap(null, true);
+    final List<Topic> topics = new ArrayList<Topic>();
+    for (int i = 0; i < 2000; i++) {
+      topics.add(map.getRoot().makeChild("topic " + i, null));
+    }
+    final Pattern pattern = Pattern.compile("changed");
+    assertNull(map.findNext(null, null, pattern, true, null));
+    for (final Topic t : topics) {
+      t.setText("changed " + t.getText());
+    }
+    Topic found = null;
+    int counter = 0;
+    while ((found = map.findNext(null, found, pattern, true, null)) != null) {
+      assertSame(topics.get(counter++), found);
+    }
+    assertEquals(topics.size(), counter);
+  }
+
+  @Test
+  public void testRelativeFileLink_FoundThroughBaseFolder() throws Exception {
+    final MindMap map = new MindMap(null, true);
+    map.getRoot().makeChild("nothing", null);
+    final Topic withFile = map.getRoot().makeChild("file", null);
+    withFile.setExtra(new ExtraFile(new MMapURI("some/folder/doc.txt")));
+
+    final File base = new File("projectbase").getAbsoluteFile();
+    final Set<Extra.ExtraType> files = EnumSet.of(Extra.ExtraType.FILE);
+    assertSame(withFile, map.findNext(base, null, Pattern.compile(Pattern.quote("projectbase")), false, files));
+    assertSame(withFile, map.findNext(base, null, Pattern.compile("folder"), false, files));
+    assertNull(map.findNext(base, null, Pattern.compile("unknown"), false, files));
+  }
+}
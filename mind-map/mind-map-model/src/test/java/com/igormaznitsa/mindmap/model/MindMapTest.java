@@ -15,7 +15,9 @@
  */
 package com.igormaznitsa.mindmap.model;
 
+import java.io.File;
 import java.io.StringReader;
+import java.io.IOException;
 import java.io.StringWriter;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -23,9 +25,16 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreePath;
+import org.apache.commons.io.FileUtils;
 
 public class MindMapTest {
   
@@ -57,6 +66,132 @@ public class MindMapTest {
     assertEquals("        ",map.getRoot().getText());
   }
   
+  @Test
+  public void testLoadFromPath() throws Exception {
+    final String text = "test\n> attr=`hello`\n---\n# Solar\n## Mercury \\<\n- NOTE\n<pre>Привет</pre>\n## Venus\n```Java\nSystem.exit(0);\n```\n";
+    final File file = File.createTempFile("mmdtest", ".mmd");
+    try {
+      FileUtils.writeStringToFile(file, text, "UTF-8");
+      final MindMap loaded = MindMap.load(null, file.toPath());
+      final MindMap parsed = new MindMap(null, new StringReader(text));
+      assertEquals(parsed.packToString(), loaded.packToString());
+      assertEquals("hello", loaded.getAttribute("attr"));
+      assertEquals("Mercury <", loaded.getRoot().getChildren().get(0).getText());
+      assertEquals("Привет", loaded.getRoot().getChildren().get(0).getExtras().get(Extra.ExtraType.NOTE).getValue());
+      assertEquals("System.exit(0);\n", loaded.getRoot().getChildren().get(1).getCodeSnippet("Java"));
+    }
+    finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  @Test
+  public void testFindTopicForLink_IndexFollowsChanges() throws Exception {
+    final MindMap map = new MindMap(null, new StringReader("test\n---\n# Solar\n## Mercury\n> topicLinkUID=`UID1`\n\n## Venus\n## Earth\n### Moon\n> topicLinkUID=`UID2`\n\n"));
+    final Topic mercury = map.getRoot().getChildren().get(0);
+    final Topic venus = map.getRoot().getChildren().get(1);
+    final Topic earth = map.getRoot().getChildren().get(2);
+    final Topic moon = earth.getChildren().get(0);
+
+    assertSame(mercury, map.findTopicForLink(new ExtraTopic("UID1")));
+    assertSame(moon, map.findTopicForLink(new ExtraTopic("UID2")));
+    assertNull(map.findTopicForLink(new ExtraTopic("UID3")));
+
+    final ExtraTopic venusLink = ExtraTopic.makeLinkTo(map, venus);
+    assertSame(venus, map.findTopicForLink(venusLink));
+
+    mercury.setAttribute(ExtraTopic.TOPIC_UID_ATTR, "UID3");
+    assertNull(map.findTopicForLink(new ExtraTopic("UID1")));
+    assertSame(mercury, map.findTopicForLink(new ExtraTopic("UID3")));
+
+    assertTrue(moon.moveToNewParent(venus));
+    assertSame(moon, map.findTopicForLink(new ExtraTopic("UID2")));
+
+    final Topic clone = map.cloneTopic(venus, true);
+    assertNotNull(clone);
+    assertSame(moon, map.findTopicForLink(new ExtraTopic("UID2")));
+    assertSame(venus, map.findTopicForLink(venusLink));
+
+    venus.delete();
+    assertNull(map.findTopicForLink(new ExtraTopic("UID2")));
+    assertNull(map.findTopicForLink(venusLink));
+
+    map.removeTopic(mercury);
+    assertNull(map.findTopicForLink(new ExtraTopic("UID3")));
+
+    final MindMap parsed = new MindMap(null, new StringReader(map.packToString()));
+    assertNull(parsed.findTopicForLink(new ExtraTopic("UID2")));
+    earth.setAttribute(ExtraTopic.TOPIC_UID_ATTR, "UID4");
+    assertEquals("Earth", new MindMap(null, new StringReader(map.packToString())).findTopicForLink(new ExtraTopic("UID4")).getText());
+  }
+
+  @Test
+  public void testFindAllTopicsForExtraType_IndexFollowsChanges() throws Exception {
+    final MindMap map = new MindMap(null, new StringReader("test\n---\n# Solar\n## Mercury\n- NOTE\n<pre>hot</pre>\n## Venus\n## Earth\n- NOTE\n<pre>home</pre>\n### Moon\n"));
+    final Topic mercury = map.getRoot().getChildren().get(0);
+    final Topic venus = map.getRoot().getChildren().get(1);
+    final Topic earth = map.getRoot().getChildren().get(2);
+    final Topic moon = earth.getChildren().get(0);
+
+    assertEquals(Arrays.asList(mercury, earth), map.findAllTopicsForExtraType(Extra.ExtraType.NOTE));
+    assertTrue(map.findAllTopicsForExtraType(Extra.ExtraType.TOPIC).isEmpty());
+
+    moon.setExtra(ExtraTopic.makeLinkTo(map, venus));
+    assertEquals(Arrays.asList(moon), map.findAllTopicsForExtraType(Extra.ExtraType.TOPIC));
+
+    mercury.removeExtra(Extra.ExtraType.NOTE);
+    assertEquals(Arrays.asList(earth), map.findAllTopicsForExtraType(Extra.ExtraType.NOTE));
+
+    final Topic pluto = new Topic(map, map.getRoot(), "Pluto", new ExtraNote("far"));
+    assertEquals(Arrays.asList(earth, pluto), map.findAllTopicsForExtraType(Extra.ExtraType.NOTE));
+
+    final Topic detached = new Topic(map, null, "Detached");
+    detached.setExtra(new ExtraNote("nowhere"));
+    assertEquals(Arrays.asList(earth, pluto), map.findAllTopicsForExtraType(Extra.ExtraType.NOTE));
+
+    earth.delete();
+    assertEquals(Arrays.asList(pluto), map.findAllTopicsForExtraType(Extra.ExtraType.NOTE));
+    assertTrue(map.findAllTopicsForExtraType(Extra.ExtraType.TOPIC).isEmpty());
+
+    map.getRoot().removeExtraFromSubtree(Extra.ExtraType.NOTE);
+    assertTrue(map.findAllTopicsForExtraType(Extra.ExtraType.NOTE).isEmpty());
+  }
+
+  @Test(timeout = 10000L)
+  public void testReadLock_ReadersAreNotBlocked() throws Exception {
+    final MindMap map = new MindMap(null, new StringReader("test\n---\n# Solar\n## Mercury\n## Venus\n"));
+    final String[] packed = new String[1];
+    final boolean[] modified = new boolean[1];
+
+    map.lockRead();
+    try {
+      final Thread reader = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          packed[0] = map.packToString();
+        }
+      });
+      reader.start();
+      reader.join();
+      assertTrue(packed[0].contains("Mercury"));
+
+      final Thread writer = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          map.setAttribute("some", "value");
+          modified[0] = true;
+        }
+      });
+      writer.start();
+      writer.join(200L);
+      assertTrue(writer.isAlive());
+      assertFalse(modified[0]);
+    }
+    finally {
+      map.unlockRead();
+    }
+  }
+
   @Test
   public void testFindNext_Null() throws Exception {
     final MindMap map = new MindMap(null, new StringReader("test\n---\n# Solar\n## Mercury\n## Venus\n## Earth\n### Moon\n## Mars\n### Phobos\n### Deimos"));
@@ -146,6 +281,123 @@ public class MindMapTest {
     assertEquals("Mind Map generated by NB MindMap plugin   \n> __version__=`1.1`,hello=`World`\n---\n",writer.toString());
   }
 
+  @Test
+  public void testWriteToStreamAndChannel_SameAsPackToString() throws Exception {
+    final StringBuilder longText = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      longText.append("line \uD83D\uDE00 \u0436*_").append(i).append('\n');
+    }
+    final MindMap map = new MindMap(null, true);
+    map.getRoot().setText("Root \u0444\u044B\u0432\n[next]");
+    final Topic child = map.getRoot().makeChild("child `code` <b>", null);
+    child.setAttribute("attr", "va`l`ue");
+    child.setCodeSnippet("Java", longText.toString());
+    child.setExtra(new ExtraNote(longText.toString()));
+
+    final byte[] etalon = map.packToString().getBytes("UTF-8");
+
+    final ByteArrayOutputStream streamBuffer = new ByteArrayOutputStream();
+    map.write(streamBuffer);
+    assertArrayEquals(etalon, streamBuffer.toByteArray());
+
+    final ByteArrayOutputStream channelBuffer = new ByteArrayOutputStream();
+    map.write(Channels.newChannel(channelBuffer));
+    assertArrayEquals(etalon, channelBuffer.toByteArray());
+  }
+
+  @Test
+  public void testSave_IncrementalSameAsWrite() throws Exception {
+    final File file = File.createTempFile("mmdsave", ".mmd");
+    try {
+      final MindMap map = new MindMap(null, new StringReader("---\n# root\n## child1\n### child1.1\n> attr=`value`\n\n### child1.2\n## child2\n### child2.1\n- NOTE\n<pre>note</pre>\n"));
+      map.save(file);
+      assertEquals(map.packToString(), FileUtils.readFileToString(file, "UTF-8"));
+
+      final Topic child1 = map.getRoot().getChildren().get(0);
+      final Topic child2 = map.getRoot().getChildren().get(1);
+      child1.getChildren().get(1).setText("changed \u0436");
+      child2.makeChild("new", null);
+      child2.getChildren().get(0).moveToNewParent(map.getRoot());
+      child1.getChildren().get(0).delete();
+      map.save(file);
+      assertEquals(map.packToString(), FileUtils.readFileToString(file, "UTF-8"));
+
+      // file changed outside with the same length and modification time, copied blocks are checked
+      final long lastModified = file.lastModified();
+      final String saved = FileUtils.readFileToString(file, "UTF-8");
+      FileUtils.writeStringToFile(file, saved.replace("# child1\n", "# chXld1\n"), "UTF-8");
+      assertTrue(file.setLastModified(lastModified));
+      map.getRoot().setText("new root");
+      map.save(file);
+      assertEquals(map.packToString(), FileUtils.readFileToString(file, "UTF-8"));
+
+      // changed file length means external change, all topics are written
+      FileUtils.writeStringToFile(file, "changed", "UTF-8");
+      map.save(file);
+      assertEquals(map.packToString(), FileUtils.readFileToString(file, "UTF-8"));
+    }
+    finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  @Test
+  public void testSave_DoesntTouchFileWithTempName() throws Exception {
+    final File folder = File.createTempFile("mmdsave", "");
+    assertTrue(folder.delete());
+    assertTrue(folder.mkdirs());
+    try {
+      final File file = new File(folder, "map.mmd");
+      final File userFile = new File(folder, "map.mmd.saving");
+      FileUtils.writeStringToFile(userFile, "user data", "UTF-8");
+
+      final MindMap map = new MindMap(null, new StringReader("---\n# root\n## child\n"));
+      map.save(file);
+      map.getRoot().setText("changed");
+      map.save(file);
+
+      assertEquals(map.packToString(), FileUtils.readFileToString(file, "UTF-8"));
+      assertEquals("user data", FileUtils.readFileToString(userFile, "UTF-8"));
+      assertEquals(2, folder.list().length);
+    }
+    finally {
+      FileUtils.deleteQuietly(folder);
+    }
+  }
+
+  @Test
+  public void testSave_KeepsSymbolicLinkAndPermissions() throws Exception {
+    final File folder = File.createTempFile("mmdsave", "");
+    assertTrue(folder.delete());
+    assertTrue(folder.mkdirs());
+    try {
+      final File file = new File(folder, "map.mmd");
+      final File link = new File(folder, "link.mmd");
+      FileUtils.writeStringToFile(file, "old", "UTF-8");
+      try {
+        java.nio.file.Files.createSymbolicLink(link.toPath(), file.toPath());
+        java.nio.file.Files.setPosixFilePermissions(file.toPath(), java.nio.file.attribute.PosixFilePermissions.fromString("rw-------"));
+      } catch (UnsupportedOperationException ex) {
+        return;
+      } catch (IOException ex) {
+        return;
+      }
+
+      final MindMap map = new MindMap(null, new StringReader("---\n# root\n## child\n"));
+      map.save(link);
+      map.getRoot().getChildren().get(0).setText("changed");
+      map.save(link);
+
+      assertTrue(java.nio.file.Files.isSymbolicLink(link.toPath()));
+      assertEquals(map.packToString(), FileUtils.readFileToString(file, "UTF-8"));
+      assertEquals("rw-------", java.nio.file.attribute.PosixFilePermissions.toString(java.nio.file.Files.getPosixFilePermissions(file.toPath())));
+      assertEquals(2, folder.list().length);
+    }
+    finally {
+      FileUtils.deleteQuietly(folder);
+    }
+  }
+
   @Test
   public void testIteration_TwoLevel() throws Exception {
     final MindMap map = new MindMap(null,new StringReader("---\n# root\n## child1\n### child1.1\n### child1.2\n## child2\n### child2.1\n### child2.2\n"));
@@ -156,6 +408,101 @@ public class MindMapTest {
     assertArrayEquals(new String[]{"root", "child1", "child1.1", "child1.2", "child2", "child2.1", "child2.2"},list.toArray(new String[list.size()]));
   }
 
+  @Test
+  public void testIteration_RemoveSubtree() throws Exception {
+    final MindMap map = new MindMap(null, new StringReader("---\n# root\n## child1\n### child1.1\n### child1.2\n## child2\n### child2.1\n### child2.2\n"));
+    final Iterator<Topic> iterator = map.iterator();
+    final List<String> list = new ArrayList<String>();
+    while (iterator.hasNext()) {
+      final Topic t = iterator.next();
+      list.add(t.getText());
+      if ("child1".equals(t.getText())) {
+        iterator.remove();
+        try {
+          iterator.remove();
+          fail("Must throw ISE");
+        }
+        catch (IllegalStateException ex) {
+          // expected
+        }
+      }
+    }
+    assertArrayEquals(new String[]{"root", "child1", "child2", "child2.1", "child2.2"}, list.toArray(new String[list.size()]));
+    assertEquals(1, map.getRoot().getChildren().size());
+    assertEquals(4, countTopics(map));
+  }
+
+  private static int countTopics(final MindMap map) {
+    int result = 0;
+    for (final Topic t : map) {
+      result++;
+    }
+    return result;
+  }
+
+  @Test
+  public void testDeepMap_NoRecursion() throws Exception {
+    final int depth = 10000;
+    final MindMap map = new MindMap(null, true);
+    Topic last = map.getRoot();
+    for (int i = 0; i < depth; i++) {
+      last = last.makeChild("t" + i, null);
+    }
+    last.setAttribute(ExtraTopic.TOPIC_UID_ATTR, "deep");
+    last.setExtra(new ExtraTopic("deep"));
+
+    int counter = 0;
+    for (final Topic t : map) {
+      assertEquals(counter == 0 ? "" : "t" + (counter - 1), t.getText());
+      counter++;
+    }
+    assertEquals(depth + 1, counter);
+
+    assertSame(last, map.findTopicForLink(new ExtraTopic("deep")));
+    assertEquals(1, map.findAllTopicsForExtraType(Extra.ExtraType.TOPIC).size());
+    assertFalse(map.getRoot().canBeLost());
+
+    final MindMap copy = new MindMap(map, null);
+    assertEquals(depth + 1, countTopics(copy));
+
+    final MindMap parsed = new MindMap(null, new StringReader(map.packToString()));
+    assertEquals(depth + 1, countTopics(parsed));
+    assertNotNull(parsed.findTopicForLink(new ExtraTopic("deep")));
+
+    assertTrue(map.getRoot().removeAttributeFromSubtree(ExtraTopic.TOPIC_UID_ATTR));
+    assertNull(map.findTopicForLink(new ExtraTopic("deep")));
+  }
+
+  @Test
+  public void testEstimateRetainedBytes_GrowsWithContent() throws Exception {
+    final MindMap map = new MindMap(null, true);
+    final long empty = map.estimateRetainedBytes();
+    assertTrue(empty > 0L);
+
+    final Topic topic = map.getRoot().makeChild("Some topic", null);
+    final long withTopic = map.estimateRetainedBytes();
+    assertTrue(withTopic > empty);
+
+    topic.setAttribute("fillColor", "#FF0000");
+    final long withAttribute = map.estimateRetainedBytes();
+    assertTrue(withAttribute > withTopic);
+
+    topic.setExtra(new ExtraNote("Some note"));
+    final long withNote = map.estimateRetainedBytes();
+    assertTrue(withNote > withAttribute);
+
+    topic.setExtra(new ExtraLink("http://www.sciareto.org"));
+    assertTrue(map.estimateRetainedBytes() > withNote);
+
+    topic.removeExtras();
+    topic.setAttribute("fillColor", null);
+    final long cleared = map.estimateRetainedBytes();
+    assertTrue(cleared >= withTopic && cleared < withNote);
+
+    map.getRoot().removeAllChildren();
+    assertEquals(empty, map.estimateRetainedBytes());
+  }
+
   @Test
   public void testIteration_Empty() throws Exception {
     final MindMap map = new MindMap(null,new StringReader("---\n"));
@@ -190,4 +537,93 @@ public class MindMapTest {
     final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
     assertTrue(in.readObject() instanceof MindMap);
   }
+
+  private static final class EventCollector implements TreeModelListener {
+
+    private final List<TreeModelEvent> changed = new ArrayList<TreeModelEvent>();
+    private final List<TreeModelEvent> structureChanged = new ArrayList<TreeModelEvent>();
+
+    @Override
+    public void treeNodesChanged(final TreeModelEvent e) {
+      this.changed.add(e);
+    }
+
+    @Override
+    public void treeNodesInserted(final TreeModelEvent e) {
+      fail("Unexpected event");
+    }
+
+    @Override
+    public void treeNodesRemoved(final TreeModelEvent e) {
+      fail("Unexpected event");
+    }
+
+    @Override
+    public void treeStructureChanged(final TreeModelEvent e) {
+      this.structureChanged.add(e);
+    }
+  }
+
+  @Test
+  public void testBatch_CoalescesStructureChanges() throws Exception {
+    final MindMap map = new MindMap(null, new StringReader("---\n# root\n## c1\n## c2\n## c3\n"));
+    final EventCollector collector = new EventCollector();
+    map.addTreeModelListener(collector);
+
+    final Topic root = map.getRoot();
+    map.batch(new Runnable() {
+      @Override
+      public void run() {
+        map.removeTopic(root.getChildren().get(0));
+        map.removeTopic(root.getChildren().get(0));
+        map.cloneTopic(root.getChildren().get(0), true);
+        assertTrue(collector.structureChanged.isEmpty());
+      }
+    });
+
+    assertEquals(1, collector.structureChanged.size());
+    assertTrue(collector.changed.isEmpty());
+    assertEquals(2, root.getChildren().size());
+  }
+
+  @Test
+  public void testBatch_CoalescesNodeChangesPerParent() throws Exception {
+    final MindMap map = new MindMap(null, new StringReader("---\n# root\n## c1\n## c2\n## c3\n"));
+    final EventCollector collector = new EventCollector();
+    map.addTreeModelListener(collector);
+
+    final Topic root = map.getRoot();
+    map.beginBatch();
+    try {
+      map.valueForPathChanged(new TreePath(root.getChildren().get(2).getPath()), "C3");
+      map.beginBatch();
+      try {
+        map.valueForPathChanged(new TreePath(root.getChildren().get(0).getPath()), "C1");
+      }
+      finally {
+        map.endBatch();
+      }
+      map.valueForPathChanged(new TreePath(root.getPath()), "ROOT");
+      assertTrue(collector.changed.isEmpty());
+    }
+    finally {
+      map.endBatch();
+    }
+
+    assertTrue(collector.structureChanged.isEmpty());
+    assertEquals(2, collector.changed.size());
+    assertSame(root, collector.changed.get(0).getTreePath().getLastPathComponent());
+    assertEquals(0, collector.changed.get(0).getChildIndices().length);
+    final TreeModelEvent children = collector.changed.get(1);
+    assertSame(root, children.getTreePath().getLastPathComponent());
+    assertArrayEquals(new int[]{0, 2}, children.getChildIndices());
+    assertArrayEquals(new Object[]{root.getChildren().get(0), root.getChildren().get(2)}, children.getChildren());
+    assertEquals("C1", root.getChildren().get(0).getText());
+    assertEquals("ROOT", root.getText());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEndBatch_NotStarted() {
+    new MindMap(null, true).endBatch();
+  }
 }
@@ -18,6 +18,7 @@ package com.igormaznitsa.mindmap.model;
 import java.io.File;
 import java.net.URI;
 import java.util.Properties;
+import java.util.Random;
 import org.apache.commons.lang.SystemUtils;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -72,6 +73,31 @@ public class ModelUtilsTest {
     assertEquals("", ModelUtils.unescapeMarkdownStr(""));
   }
 
+  @Test
+  public void testUnescapeMarkdownStrAndRemoveISOControls() {
+    final StringBuilder buffer = new StringBuilder();
+    assertEquals("Hello\nWorld", ModelUtils.unescapeMarkdownStrAndRemoveISOControls("Hello<br>World\n", 0, 15, buffer));
+    assertEquals("<>\n", ModelUtils.unescapeMarkdownStrAndRemoveISOControls("##\\<\\><B\u0001R />", 2, 13, buffer));
+    assertEquals("\\\n,", ModelUtils.unescapeMarkdownStrAndRemoveISOControls("\\\r<br>\\,", 0, 8, buffer));
+    assertEquals("", ModelUtils.unescapeMarkdownStrAndRemoveISOControls("\r\n", 0, 2, buffer));
+  }
+
+  @Test
+  public void testUnescapeMarkdownStrAndRemoveISOControls_SameAsTwoPasses() {
+    final String alphabet = "\\<>/bBrR \n\r\u0001\t`*_,.a";
+    final Random rnd = new Random(12345L);
+    final StringBuilder buffer = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      final StringBuilder text = new StringBuilder();
+      final int length = rnd.nextInt(16);
+      for (int c = 0; c < length; c++) {
+        text.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+      }
+      final String str = text.toString();
+      assertEquals(str, ModelUtils.unescapeMarkdownStr(ModelUtils.removeISOControls(str)), ModelUtils.unescapeMarkdownStrAndRemoveISOControls(str, 0, str.length(), buffer));
+    }
+  }
+
   @Test
   public void testEscapeMarkdownStr() {
     assertEquals("Hello<br/>World", ModelUtils.escapeMarkdownStr("Hello\nWorld"));
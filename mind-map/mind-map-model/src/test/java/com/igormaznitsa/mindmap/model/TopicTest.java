@@ -146,6 +146,18 @@ public class TopicTest {
     assertEquals("System.exit(0);\na```\n",topic.getCodeSnippet("Java"));
   }
   
+  @Test
+  public void testParseRoot_BigCodeSnippet() throws Exception {
+    final StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      body.append("line").append(i).append(" = \"some text\";\n");
+    }
+    final MindMap mm = new MindMap(null,true);
+    final Topic topic = Topic.parse(mm, makeLexer("# Root\n```PlantUML  \n" + body + "```\n## Child\n"));
+    assertEquals(body.toString(), topic.getCodeSnippet("PlantUML"));
+    assertEquals("Child", topic.getChildren().get(0).getText());
+  }
+  
   @Test
   public void testParseRoot_emptyCodeSnippet() throws Exception {
     final MindMap mm = new MindMap(null,true);
@@ -326,4 +338,90 @@ public class TopicTest {
     assertEquals("Hello world \n <br>```Some```",((ExtraNote)parsed.getRoot().getExtras().get(Extra.ExtraType.NOTE)).getValue());
   }
   
+  @Test
+  public void testIndexOfChild_KeptAfterStructureChanges() throws Exception {
+    final MindMap mm = new MindMap(null, true);
+    final Topic root = mm.getRoot();
+    final Topic[] children = new Topic[5];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = root.makeChild("child" + i, null);
+    }
+    final Topic grandChild = children[2].makeChild("grand", null);
+
+    for (int i = 0; i < children.length; i++) {
+      assertEquals(i, root.indexOfChild(children[i]));
+    }
+    assertArrayEquals(new int[]{0, 2, 0}, grandChild.getPositionPath());
+    assertEquals(-1, root.indexOfChild(grandChild));
+    assertEquals(-1, root.indexOfChild(null));
+
+    children[4].makeFirst();
+    assertSame(children[4], children[1].prevSibling().prevSibling());
+    assertEquals(0, root.indexOfChild(children[4]));
+    assertEquals(3, root.indexOfChild(children[2]));
+
+    children[1].delete();
+    assertEquals(-1, root.indexOfChild(children[1]));
+    assertSame(children[2], children[0].nextSibling());
+    assertEquals(2, mm.getIndexOfChild(root, children[2]));
+
+    children[0].moveAfter(children[3]);
+    assertSame(children[0], root.getLast());
+    assertEquals(3, root.indexOfChild(children[0]));
+    assertNull(children[0].nextSibling());
+
+    grandChild.moveToNewParent(root);
+    assertEquals(4, root.indexOfChild(grandChild));
+    assertEquals(-1, children[2].indexOfChild(grandChild));
+    assertArrayEquals(new int[]{0, 4}, grandChild.getPositionPath());
+  }
+
+  @Test
+  public void testSubtreeRevision_ChangedAfterObservation() throws Exception {
+    final MindMap mm = new MindMap(null, new StringReader("---\n# root\n## child1\n### child1.1\n## child2\n"));
+    final Topic root = mm.getRoot();
+    final Topic child1 = root.getChildren().get(0);
+    final Topic child11 = child1.getChildren().get(0);
+    final Topic child2 = root.getChildren().get(1);
+
+    assertFalse(root.markSubtreeObserved());
+    assertTrue(child11.markSubtreeObserved());
+    assertTrue(child1.markSubtreeObserved());
+    assertTrue(child2.markSubtreeObserved());
+    assertTrue(root.markSubtreeObserved());
+
+    final int rootRevision = root.getSubtreeRevision();
+    final int child1Revision = child1.getSubtreeRevision();
+    final int child2Revision = child2.getSubtreeRevision();
+
+    child11.setText("changed");
+    assertTrue(rootRevision != root.getSubtreeRevision());
+    assertTrue(child1Revision != child1.getSubtreeRevision());
+    assertEquals(child2Revision, child2.getSubtreeRevision());
+    assertFalse(child1.markSubtreeObserved());
+    assertFalse(root.markSubtreeObserved());
+
+    final Topic deep = new Topic(mm, child2, "deep");
+    assertTrue(child2Revision != child2.getSubtreeRevision());
+    assertTrue(deep.markSubtreeObserved());
+    assertTrue(child2.markSubtreeObserved());
+    assertEquals(child2Revision + 1, child2.getSubtreeRevision());
+  }
+
+  @Test
+  public void testSubtreeRevision_DeepChainIsBuiltAndCopied() throws Exception {
+    final MindMap mm = new MindMap(null, new StringReader("---\n# root\n"));
+    Topic current = mm.getRoot();
+    for (int i = 0; i < 20000; i++) {
+      current = current.makeChild("level" + i, null);
+    }
+    final MindMap copy = new MindMap(mm, null);
+    Topic copied = copy.getRoot();
+    int depth = 0;
+    while (copied.hasChildren()) {
+      copied = copied.getFirst();
+      depth++;
+    }
+    assertEquals(20000, depth);
+  }
 }
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import java.io.StringReader;
 import org.apache.commons.io.IOUtils;
 import com.igormaznitsa.mindmap.model.parser.MindMapLexer.TokenType;
 
@@ -549,4 +550,45 @@ public class MindMapLexerTest {
     assertEquals(etalon,accum3.toString());
   }
   
+  @Test
+  public void testStreamMode_SameTokensAsForString() throws Exception {
+    final String etalon = IOUtils.toString(MindMapLexerTest.class.getResourceAsStream("cancer_risk.mmd"), "UTF-8");
+
+    final MindMapLexer stringLexer = new MindMapLexer();
+    stringLexer.start(etalon, 0, etalon.length(), MindMapLexer.TokenType.HEAD_LINE);
+
+    final MindMapLexer streamLexer = new MindMapLexer();
+    streamLexer.start(new StringReader(etalon), 32, MindMapLexer.TokenType.HEAD_LINE);
+    assertTrue(streamLexer.isStreamMode());
+
+    int maxTokenLength = 0;
+    while (true) {
+      stringLexer.advance();
+      streamLexer.advance();
+
+      assertEquals(stringLexer.getTokenType(), streamLexer.getTokenType());
+      if (stringLexer.getTokenType() == null) {
+        break;
+      }
+      assertEquals(stringLexer.getTokenStartOffset(), streamLexer.getTokenStartOffset());
+      assertEquals(stringLexer.getTokenEndOffset(), streamLexer.getTokenEndOffset());
+      assertEquals(stringLexer.getTokenText(), streamLexer.getTokenText());
+      assertEquals(stringLexer.getCurrentPosition().isTokenCompleted(), streamLexer.getCurrentPosition().isTokenCompleted());
+      maxTokenLength = Math.max(maxTokenLength, streamLexer.getTokenEndOffset() - streamLexer.getTokenStartOffset());
+    }
+
+    final int windowCapacity = ((ReaderCharSequence) streamLexer.getBufferSequence()).getWindowCapacity();
+    assertTrue(windowCapacity < etalon.length());
+    assertTrue(windowCapacity <= Math.max(32, maxTokenLength * 4));
+  }
+
+  @Test
+  public void testStreamMode_Empty() {
+    final MindMapLexer lexer = new MindMapLexer();
+    lexer.start(new StringReader(""), 16, MindMapLexer.TokenType.HEAD_LINE);
+    lexer.advance();
+    assertTrue(lexer.getCurrentPosition().isTokenCompleted());
+    assertNull(lexer.getTokenType());
+  }
+
 }
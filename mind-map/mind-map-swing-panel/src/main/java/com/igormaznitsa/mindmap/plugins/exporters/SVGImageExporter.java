@@ -29,6 +29,7 @@ import com.igormaznitsa.mindmap.swing.panel.MindMapPanelConfig;
 import com.igormaznitsa.mindmap.swing.panel.Texts;
 import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics;
 import com.igormaznitsa.mindmap.swing.panel.ui.gfx.StrokeType;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.TextMeasurementCache;
 import com.igormaznitsa.mindmap.swing.panel.utils.MindMapUtils;
 import com.igormaznitsa.mindmap.swing.panel.utils.RenderQuality;
 import com.igormaznitsa.mindmap.swing.panel.utils.Utils;
@@ -322,13 +323,13 @@ public class SVGImageExporter extends AbstractExporter {
 
     @Override
     public float getFontMaxAscent() {
-      return this.context.getFontMetrics().getMaxAscent();
+      return TextMeasurementCache.getMaxAscent(this.context);
     }
 
     @Override
     @Nonnull
     public Rectangle2D getStringBounds(@Nonnull final String s) {
-      return this.context.getFontMetrics().getStringBounds(s, this.context);
+      return TextMeasurementCache.getStringBounds(this.context, s);
     }
 
     @Override
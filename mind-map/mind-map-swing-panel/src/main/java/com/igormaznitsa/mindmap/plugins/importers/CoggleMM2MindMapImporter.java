@@ -125,7 +125,13 @@ public class CoggleMM2MindMapImporter extends AbstractImporter {
     if ("map".equals(root.getTagName())) {
       final List<Element> nodes = Utils.findDirectChildrenForName(root, "node");
       if (!nodes.isEmpty()) {
-        parseTopic(result, null, result.getRoot(), nodes.get(0));
+        result.beginBatch();
+        try {
+          parseTopic(result, null, result.getRoot(), nodes.get(0));
+        }
+        finally {
+          result.endBatch();
+        }
       }
     } else {
       throw new IllegalArgumentException("File is not Coggle mind map");
@@ -177,20 +177,26 @@ public class Freemind2MindMapImporter extends AbstractImporter {
     final MindMap resultedMap = new MindMap(null, true);
     resultedMap.setAttribute(MindMapPanel.ATTR_SHOW_JUMPS, "true");
 
-    final List<Element> list = Utils.findDirectChildrenForName(rootElement, "node");
-    if (list.isEmpty()) {
-      Assertions.assertNotNull(resultedMap.getRoot()).setText("Empty");
-    } else {
-      parseTopic(file.getParentFile(), resultedMap, null, resultedMap.getRoot(), list.get(0), idTopicMap, linksMap);
-    }
+    resultedMap.beginBatch();
+    try {
+      final List<Element> list = Utils.findDirectChildrenForName(rootElement, "node");
+      if (list.isEmpty()) {
+        Assertions.assertNotNull(resultedMap.getRoot()).setText("Empty");
+      } else {
+        parseTopic(file.getParentFile(), resultedMap, null, resultedMap.getRoot(), list.get(0), idTopicMap, linksMap);
+      }
 
-    for (final Map.Entry<String, String> l : linksMap.entrySet()) {
-      final Topic start = idTopicMap.get(l.getKey());
-      final Topic end = idTopicMap.get(l.getValue());
-      if (start != null && end != null) {
-        start.setExtra(ExtraTopic.makeLinkTo(resultedMap, end));
+      for (final Map.Entry<String, String> l : linksMap.entrySet()) {
+        final Topic start = idTopicMap.get(l.getKey());
+        final Topic end = idTopicMap.get(l.getValue());
+        if (start != null && end != null) {
+          start.setExtra(ExtraTopic.makeLinkTo(resultedMap, end));
+        }
       }
     }
+    finally {
+      resultedMap.endBatch();
+    }
 
     return resultedMap;
   }
@@ -78,15 +78,21 @@ public class Mindmup2MindMapImporter extends AbstractImporter {
       final Topic mindMapRoot = Assertions.assertNotNull(resultedMap.getRoot());
       final Map<Long, Topic> mapTopicId = new HashMap<Long, Topic>();
 
-      parseTopic(resultedMap, null, mindMapRoot, parsedJson, mapTopicId);
+      resultedMap.beginBatch();
+      try {
+        parseTopic(resultedMap, null, mindMapRoot, parsedJson, mapTopicId);
 
-      if (!mindMapRoot.getExtras().containsKey(Extra.ExtraType.FILE)) {
-        mindMapRoot.setExtra(new ExtraFile(new MMapURI(null, file, null)));
-      }
+        if (!mindMapRoot.getExtras().containsKey(Extra.ExtraType.FILE)) {
+          mindMapRoot.setExtra(new ExtraFile(new MMapURI(null, file, null)));
+        }
 
-      final JsonArray links = parsedJson.getArray("links");
-      if (links != null) {
-        processLinks(resultedMap, links, mapTopicId);
+        final JsonArray links = parsedJson.getArray("links");
+        if (links != null) {
+          processLinks(resultedMap, links, mapTopicId);
+        }
+      }
+      finally {
+        resultedMap.endBatch();
       }
     }
     return resultedMap;
@@ -200,22 +200,28 @@ public class Novamind2MindMapImporter extends AbstractImporter {
 
     assertNotNull(result.getRoot()).setText("Empty map");
 
-    final ParsedContent.TopicReference rootRef = content.getRootTopic();
-    if (rootRef != null) {
-      final Map<String, Topic> mapIdToTopic = new HashMap<String, Topic>();
-      convertContentTopicIntoMMTopic(result, null, rootRef, manifest, mapIdToTopic);
-
-      for (final Map.Entry<String, String> link : content.getLinksBetweenTopics().entrySet()) {
-        final Topic from = mapIdToTopic.get(link.getKey());
-        final Topic to = mapIdToTopic.get(link.getValue());
-
-        if (from != null && to != null) {
-          from.setExtra(ExtraTopic.makeLinkTo(result, to));
+    result.beginBatch();
+    try {
+      final ParsedContent.TopicReference rootRef = content.getRootTopic();
+      if (rootRef != null) {
+        final Map<String, Topic> mapIdToTopic = new HashMap<String, Topic>();
+        convertContentTopicIntoMMTopic(result, null, rootRef, manifest, mapIdToTopic);
+
+        for (final Map.Entry<String, String> link : content.getLinksBetweenTopics().entrySet()) {
+          final Topic from = mapIdToTopic.get(link.getKey());
+          final Topic to = mapIdToTopic.get(link.getValue());
+
+          if (from != null && to != null) {
+            from.setExtra(ExtraTopic.makeLinkTo(result, to));
+          }
         }
-      }
 
-      processURLLinks(result, content, rootRef, mapIdToTopic);
+        processURLLinks(result, content, rootRef, mapIdToTopic);
 
+      }
+    }
+    finally {
+      result.endBatch();
     }
     return result;
   }
@@ -58,25 +58,31 @@ public class Text2MindMapImporter extends AbstractImporter {
   @Nonnull
   MindMap makeFromLines(@Nonnull @MustNotContainNull final List<String> lines, @Nullable final MindMapController controller) {
     final MindMap result = new MindMap(controller, false);
-    final Iterator<String> iterator = lines.iterator();
-    final List<TopicData> topicStack = new ArrayList<TopicData>();
-    while (true) {
-      final Topic topic = decodeLine(result, iterator, topicStack);
-      if (topic == null) {
-        break;
+    result.beginBatch();
+    try {
+      final Iterator<String> iterator = lines.iterator();
+      final List<TopicData> topicStack = new ArrayList<TopicData>();
+      while (true) {
+        final Topic topic = decodeLine(result, iterator, topicStack);
+        if (topic == null) {
+          break;
+        }
       }
-    }
 
-    final Topic root = result.getRoot();
+      final Topic root = result.getRoot();
 
-    final int size = root == null ? 0 : root.getChildren().size();
-    if (root != null && size != 0) {
-      final List<Topic> topics = root.getChildren();
-      final int left = (topics.size() + 1) / 2;
-      for (int i = 0; i < left; i++) {
-        AbstractCollapsableElement.makeTopicLeftSided(topics.get(i), true);
+      final int size = root == null ? 0 : root.getChildren().size();
+      if (root != null && size != 0) {
+        final List<Topic> topics = root.getChildren();
+        final int left = (topics.size() + 1) / 2;
+        for (int i = 0; i < left; i++) {
+          AbstractCollapsableElement.makeTopicLeftSided(topics.get(i), true);
+        }
       }
     }
+    finally {
+      result.endBatch();
+    }
 
     return result;
   }
@@ -244,32 +244,38 @@ public class XMind2MindMapImporter extends AbstractImporter {
     final Map<String, Topic> topicIdMap = new HashMap<String, Topic>();
     final Map<String, String> linksBetweenTopics = new HashMap<String, String>();
 
-    final List<Element> rootTopics = Utils.findDirectChildrenForName(sheet, "topic");
-    if (!rootTopics.isEmpty()) {
-      convertTopic(file, styles, resultedMap, null, rootTopic, rootTopics.get(0), topicIdMap, linksBetweenTopics);
-    }
+    resultedMap.beginBatch();
+    try {
+      final List<Element> rootTopics = Utils.findDirectChildrenForName(sheet, "topic");
+      if (!rootTopics.isEmpty()) {
+        convertTopic(file, styles, resultedMap, null, rootTopic, rootTopics.get(0), topicIdMap, linksBetweenTopics);
+      }
 
-    for (final Element l : Utils.findDirectChildrenForName(sheet, "relationships")) {
-      for (final Element r : Utils.findDirectChildrenForName(l, "relationship")) {
-        final String end1 = r.getAttribute("end1");
-        final String end2 = r.getAttribute("end2");
-        if (!linksBetweenTopics.containsKey(end1)) {
-          final Topic startTopic = topicIdMap.get(end1);
-          final Topic endTopic = topicIdMap.get(end2);
-          if (startTopic != null && endTopic != null) {
-            startTopic.setExtra(ExtraTopic.makeLinkTo(resultedMap, endTopic));
+      for (final Element l : Utils.findDirectChildrenForName(sheet, "relationships")) {
+        for (final Element r : Utils.findDirectChildrenForName(l, "relationship")) {
+          final String end1 = r.getAttribute("end1");
+          final String end2 = r.getAttribute("end2");
+          if (!linksBetweenTopics.containsKey(end1)) {
+            final Topic startTopic = topicIdMap.get(end1);
+            final Topic endTopic = topicIdMap.get(end2);
+            if (startTopic != null && endTopic != null) {
+              startTopic.setExtra(ExtraTopic.makeLinkTo(resultedMap, endTopic));
+            }
           }
         }
       }
-    }
 
-    for (final Map.Entry<String, String> e : linksBetweenTopics.entrySet()) {
-      final Topic startTopic = topicIdMap.get(e.getKey());
-      final Topic endTopic = topicIdMap.get(e.getValue());
-      if (startTopic != null && endTopic != null) {
-        startTopic.setExtra(ExtraTopic.makeLinkTo(resultedMap, endTopic));
+      for (final Map.Entry<String, String> e : linksBetweenTopics.entrySet()) {
+        final Topic startTopic = topicIdMap.get(e.getKey());
+        final Topic endTopic = topicIdMap.get(e.getValue());
+        if (startTopic != null && endTopic != null) {
+          startTopic.setExtra(ExtraTopic.makeLinkTo(resultedMap, endTopic));
+        }
       }
     }
+    finally {
+      resultedMap.endBatch();
+    }
 
     return resultedMap;
   }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.swing.panel;
+
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.Topic;
+import com.igormaznitsa.mindmap.swing.panel.ui.AbstractCollapsableElement;
+import com.igormaznitsa.mindmap.swing.panel.ui.AbstractElement;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics2DWrapper;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Cache of rendered diagram in tiles of fixed size. Tiles are rendered at
+ * device resolution of target graphics, so that they are rendered again if
+ * zoom, configuration, model or the device transform is changed. After layout
+ * only tiles covered by changed elements and their connectors are rendered
+ * again. Number of kept tiles is bounded by doubled number of tiles in visible
+ * area, least recently used tiles are removed first.
+ *
+ * @since 1.4.4
+ */
+final class DiagramTileCache {
+
+  static final int TILE_SIZE = 256;
+  private static final int MIN_TILES = 16;
+
+  private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(64, 0.75f, true);
+  private Map<AbstractElement, ElementRecord> records = new IdentityHashMap<AbstractElement, ElementRecord>();
+
+  private MindMap model;
+  private Object context;
+  private double deviceScaleX = 1.0d;
+  private double deviceScaleY = 1.0d;
+  private boolean showJumps;
+  private int layoutStamp;
+  private boolean recordsValid;
+  private long renderedTiles;
+
+  private static final class ElementRecord {
+
+    private final Rectangle2D area;
+    private final int revision;
+
+    private ElementRecord(@Nonnull final Rectangle2D area, final int revision) {
+      this.area = area;
+      this.revision = revision;
+    }
+
+    private boolean isSame(@Nonnull final ElementRecord that) {
+      return this.revision == that.revision && this.area.equals(that.area);
+    }
+  }
+
+  /**
+   * Paint diagram from tiles, missing tiles are rendered.
+   *
+   * @param gfx target graphics
+   * @param model model to be painted, its elements must be laid out
+   * @param config panel configuration
+   * @param context object which is changed if configuration has been changed
+   * @param layoutStamp counter of layouts, if changed then elements are
+   * checked for changes
+   * @param area area to be painted, in coordinates of the graphics
+   * @param visible visible area of the component, it defines number of kept
+   * tiles so that repaint of small area doesn't remove tiles of the viewport
+   */
+  void paint(@Nonnull final Graphics2D gfx, @Nonnull final MindMap model, @Nonnull final MindMapPanelConfig config, @Nonnull final Object context, final int layoutStamp, @Nonnull final Rectangle area, @Nonnull final Rectangle visible) {
+    final AffineTransform transform = gfx.getTransform();
+    final double scaleX = transform.getScaleX();
+    final double scaleY = transform.getScaleY();
+    final boolean jumps = Boolean.parseBoolean(model.getAttribute(MindMapPanel.ATTR_SHOW_JUMPS));
+
+    if (this.model != model || this.context != context || Double.compare(this.deviceScaleX, scaleX) != 0 || Double.compare(this.deviceScaleY, scaleY) != 0 || this.showJumps != jumps) {
+      clear();
+      this.model = model;
+      this.context = context;
+      this.deviceScaleX = scaleX;
+      this.deviceScaleY = scaleY;
+      this.showJumps = jumps;
+    }
+
+    if (!this.recordsValid || this.layoutStamp != layoutStamp) {
+      updateRecords(model, config);
+      this.layoutStamp = layoutStamp;
+    }
+
+    final int firstColumn = Math.max(0, area.x) / TILE_SIZE;
+    final int firstRow = Math.max(0, area.y) / TILE_SIZE;
+    final int lastColumn = Math.max(0, area.x + area.width - 1) / TILE_SIZE;
+    final int lastRow = Math.max(0, area.y + area.height - 1) / TILE_SIZE;
+    final int maxTiles = Math.max(MIN_TILES, countTiles(visible.union(area)) * 2);
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        final Long key = makeKey(column, row);
+        BufferedImage tile = this.tiles.get(key);
+        if (tile == null) {
+          tile = renderTile(gfx.getDeviceConfiguration(), model, config, column, row);
+          this.tiles.put(key, tile);
+        }
+        gfx.drawImage(tile, column * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE, null);
+      }
+    }
+
+    final Iterator<Long> iterator = this.tiles.keySet().iterator();
+    while (this.tiles.size() > maxTiles && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Remove all tiles.
+   */
+  void clear() {
+    this.tiles.clear();
+    this.records = new IdentityHashMap<AbstractElement, ElementRecord>();
+    this.recordsValid = false;
+    this.model = null;
+    this.context = null;
+  }
+
+  int getNumberOfTiles() {
+    return this.tiles.size();
+  }
+
+  long getNumberOfRenderedTiles() {
+    return this.renderedTiles;
+  }
+
+  private static int countTiles(@Nonnull final Rectangle area) {
+    final int columns = (Math.max(0, area.x + area.width - 1) / TILE_SIZE) - (Math.max(0, area.x) / TILE_SIZE) + 1;
+    final int rows = (Math.max(0, area.y + area.height - 1) / TILE_SIZE) - (Math.max(0, area.y) / TILE_SIZE) + 1;
+    return columns * rows;
+  }
+
+  private static long makeKey(final int column, final int row) {
+    return ((long) column << 32) | (row & 0xFFFFFFFFL);
+  }
+
+  @Nonnull
+  private BufferedImage renderTile(@Nonnull final GraphicsConfiguration graphicsConfiguration, @Nonnull final MindMap model, @Nonnull final MindMapPanelConfig config, final int column, final int row) {
+    final int width = (int) Math.ceil(TILE_SIZE * this.deviceScaleX);
+    final int height = (int) Math.ceil(TILE_SIZE * this.deviceScaleY);
+    final BufferedImage result = graphicsConfiguration.createCompatibleImage(width, height, config.isDrawBackground() ? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+    final Graphics2D gfx = result.createGraphics();
+    this.renderedTiles++;
+    try {
+      config.getRenderQuality().prepare(gfx);
+      gfx.scale(this.deviceScaleX, this.deviceScaleY);
+      gfx.translate(-column * TILE_SIZE, -row * TILE_SIZE);
+      gfx.setClip(column * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+      MindMapPanel.drawOnGraphicsForConfiguration(new MMGraphics2DWrapper(gfx), config, model, false, null);
+    } finally {
+      gfx.dispose();
+    }
+    return result;
+  }
+
+  private void updateRecords(@Nonnull final MindMap model, @Nonnull final MindMapPanelConfig config) {
+    final Map<AbstractElement, ElementRecord> newRecords = new IdentityHashMap<AbstractElement, ElementRecord>();
+    final Topic root = model.getRoot();
+    if (root != null && root.getPayload() != null) {
+      final double margin = config.safeScaleFloatValue(config.getShadowOffset() + config.getElementBorderWidth() + config.getConnectorWidth() + config.getCollapsatorBorderWidth(), 0.0f) + 2.0d;
+      collectRecords(newRecords, (AbstractElement) root.getPayload(), null, margin);
+    }
+
+    if (this.recordsValid && !this.tiles.isEmpty()) {
+      if (this.showJumps) {
+        // jump arrows can cross any area so that all tiles are dropped
+        this.tiles.clear();
+      } else {
+        for (final Map.Entry<AbstractElement, ElementRecord> e : this.records.entrySet()) {
+          final ElementRecord changed = newRecords.get(e.getKey());
+          if (changed == null || !changed.isSame(e.getValue())) {
+            invalidateArea(e.getValue().area);
+          }
+        }
+        for (final Map.Entry<AbstractElement, ElementRecord> e : newRecords.entrySet()) {
+          final ElementRecord old = this.records.get(e.getKey());
+          if (old == null || !old.isSame(e.getValue())) {
+            invalidateArea(e.getValue().area);
+          }
+        }
+      }
+    }
+
+    this.records = newRecords;
+    this.recordsValid = true;
+  }
+
+  private static void collectRecords(@Nonnull final Map<AbstractElement, ElementRecord> records, @Nonnull final AbstractElement element, @Nullable final Rectangle2D parentArea, final double margin) {
+    final Rectangle2D bounds = element.getBounds();
+    final Rectangle2D area = new Rectangle2D.Double(bounds.getX() - margin, bounds.getY() - margin, bounds.getWidth() + margin * 2, bounds.getHeight() + margin * 2);
+    if (element instanceof AbstractCollapsableElement) {
+      final Rectangle2D collapsator = ((AbstractCollapsableElement) element).getCollapsatorArea();
+      area.add(new Rectangle2D.Double(bounds.getX() + collapsator.getX() - margin, bounds.getY() + collapsator.getY() - margin, collapsator.getWidth() + margin * 2, collapsator.getHeight() + margin * 2));
+    }
+
+    // connector from parent is painted between areas of the parent and the element
+    final Rectangle2D recordArea = parentArea == null ? area : area.createUnion(parentArea);
+    records.put(element, new ElementRecord(recordArea, element.getModel().getRevision()));
+
+    if (!element.isCollapsed()) {
+      for (final Topic t : element.getModel().getChildren()) {
+        final AbstractElement child = (AbstractElement) t.getPayload();
+        if (child != null) {
+          collectRecords(records, child, area, margin);
+        }
+      }
+    }
+  }
+
+  private void invalidateArea(@Nonnull final Rectangle2D area) {
+    if (this.tiles.isEmpty()) {
+      return;
+    }
+    final int firstColumn = (int) Math.floor(Math.max(0.0d, area.getMinX()) / TILE_SIZE);
+    final int firstRow = (int) Math.floor(Math.max(0.0d, area.getMinY()) / TILE_SIZE);
+    final int lastColumn = (int) Math.floor(Math.max(0.0d, area.getMaxX()) / TILE_SIZE);
+    final int lastRow = (int) Math.floor(Math.max(0.0d, area.getMaxY()) / TILE_SIZE);
+
+    final Iterator<Long> iterator = this.tiles.keySet().iterator();
+    while (iterator.hasNext()) {
+      final long key = iterator.next();
+      final int column = (int) (key >> 32);
+      final int row = (int) key;
+      if (column >= firstColumn && column <= lastColumn && row >= firstRow && row <= lastRow) {
+        iterator.remove();
+      }
+    }
+  }
+}
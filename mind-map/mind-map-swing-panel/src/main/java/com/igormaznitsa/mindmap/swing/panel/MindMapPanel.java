@@ -99,6 +99,16 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
   private transient DraggedElement draggedElement = null;
   private transient AbstractElement destinationElement = null;
   private volatile boolean popupMenuActive = false;
+  private transient volatile boolean layoutInvalid = true;
+  private transient volatile Object layoutContext = new Object();
+  private final transient MindMapConfigListener layoutContextInvalidator = new MindMapConfigListener() {
+    @Override
+    public void onConfigurationPropertyChanged(@Nonnull final MindMapPanelConfig changedConfig) {
+      layoutContext = new Object();
+    }
+  };
+  private transient int layoutCounter;
+  private final transient DiagramTileCache tileCache = new DiagramTileCache();
 
   public MindMapPanel(@Nonnull final MindMapPanelController controller) {
     super();
@@ -109,6 +119,7 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
     this.controller = controller;
 
     this.config = new MindMapPanelConfig(panelConfig, false);
+    this.config.addConfigurationListener(this.layoutContextInvalidator);
 
     this.textEditor.setMargin(new Insets(5, 5, 5, 5));
     this.textEditor.setBorder(BorderFactory.createEtchedBorder());
@@ -825,6 +836,8 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
 
     final float arrowSize = cfg.safeScaleFloatValue(10.0f * cfg.getJumpLinkWidth(), 0.2f);
 
+    final Rectangle clip = gfx.getClipBounds();
+
     for (Topic src : allTopicsWithJumps) {
       final ExtraTopic extra = (ExtraTopic) assertNotNull(assertNotNull(src).getExtras()).get(Extra.ExtraType.TOPIC);
 
@@ -846,7 +859,9 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
               final AbstractElement srcElement = assertNotNull((AbstractElement) assertNotNull(src).getPayload());
               final Rectangle2D srcRect = srcElement.getBounds();
               final Rectangle2D dstRect = dstElement.getBounds();
-              drawArrowToDestination(gfx, srcRect, dstRect, lineWidth, arrowWidth, arrowSize, jumpLinkColor);
+              if (clip == null || clip.intersects(srcRect.createUnion(dstRect))) {
+                drawArrowToDestination(gfx, srcRect, dstRect, lineWidth, arrowWidth, arrowSize, jumpLinkColor);
+              }
             }
           }
         }
@@ -889,13 +904,35 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
   }
 
   private static void drawTopicTree(@Nonnull final MMGraphics gfx, @Nonnull final Topic topic, @Nonnull final MindMapPanelConfig cfg) {
+    final Rectangle clip = gfx.getClipBounds();
+    if (clip == null) {
+      drawWholeTopicTree(gfx, topic, cfg);
+    } else {
+      final AbstractElement element = assertNotNull((AbstractElement) topic.getPayload());
+      drawBranchInArea(gfx, element, element.isLeftDirection(), cfg, clip);
+    }
+  }
+
+  private static void drawBranchInArea(@Nonnull final MMGraphics gfx, @Nonnull final AbstractElement element, final boolean leftDirection, @Nonnull final MindMapPanelConfig cfg, @Nonnull final Rectangle2D area) {
+    final List<AbstractElement> children = element.findChildrenInArea(area, leftDirection);
+    if (!children.isEmpty()) {
+      element.doPaintConnectors(gfx, leftDirection, cfg, children);
+    }
+    element.doPaintComponent(gfx, cfg, true);
+    final boolean root = element instanceof ElementRoot;
+    for (final AbstractElement child : children) {
+      drawBranchInArea(gfx, child, root ? child.isLeftDirection() : leftDirection, cfg, area);
+    }
+  }
+
+  private static void drawWholeTopicTree(@Nonnull final MMGraphics gfx, @Nonnull final Topic topic, @Nonnull final MindMapPanelConfig cfg) {
     paintTopic(gfx, topic, cfg);
     final AbstractElement w = assertNotNull((AbstractElement) topic.getPayload());
     if (w.isCollapsed()) {
       return;
     }
     for (final Topic t : topic.getChildren()) {
-      drawTopicTree(gfx, t, cfg);
+      drawWholeTopicTree(gfx, t, cfg);
     }
   }
 
@@ -935,20 +972,39 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
     }
   }
 
+  @Nonnull
+  private static AbstractElement makeElementForLevel(@Nonnull final Topic topic, final int level) {
+    final AbstractElement result;
+    switch (level) {
+      case 0:
+        result = new ElementRoot(topic);
+        break;
+      case 1:
+        result = new ElementLevelFirst(topic);
+        break;
+      default:
+        result = new ElementLevelOther(topic);
+        break;
+    }
+    return result;
+  }
+
+  private static boolean isElementForLevel(@Nonnull final AbstractElement element, final int level) {
+    final Class<?> elementClass = element.getClass();
+    switch (level) {
+      case 0:
+        return elementClass == ElementRoot.class;
+      case 1:
+        return elementClass == ElementLevelFirst.class;
+      default:
+        return elementClass == ElementLevelOther.class;
+    }
+  }
+
   private static void setElementSizesForElementAndChildren(@Nonnull final MMGraphics gfx, @Nonnull final MindMapPanelConfig cfg, @Nonnull final Topic topic, final int level) {
     AbstractElement widget = (AbstractElement) topic.getPayload();
     if (widget == null) {
-      switch (level) {
-        case 0:
-          widget = new ElementRoot(topic);
-          break;
-        case 1:
-          widget = new ElementLevelFirst(topic);
-          break;
-        default:
-          widget = new ElementLevelOther(topic);
-          break;
-      }
+      widget = makeElementForLevel(topic, level);
       topic.setPayload(widget);
     }
 
@@ -959,6 +1015,55 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
     widget.updateBlockSize(cfg);
   }
 
+  private static void updateElementSizesForElementAndChildren(@Nonnull final MMGraphics gfx, @Nonnull final MindMapPanelConfig cfg, @Nonnull final Topic topic, final int level, @Nonnull final Object context) {
+    AbstractElement widget = (AbstractElement) topic.getPayload();
+    final boolean created = widget == null || !isElementForLevel(widget, level);
+    if (created) {
+      widget = makeElementForLevel(topic, level);
+      topic.setPayload(widget);
+    } else if (widget.isSubtreeLayoutValid(context)) {
+      return;
+    }
+
+    if (created || !widget.isLayoutValid(context)) {
+      if (!created) {
+        widget.updateFromModel();
+      }
+      widget.updateElementBounds(gfx, cfg);
+    }
+    for (final Topic t : topic.getChildren()) {
+      updateElementSizesForElementAndChildren(gfx, cfg, t, level + 1, context);
+    }
+    widget.updateBlockSize(cfg);
+    widget.markLayoutValid(context);
+  }
+
+  /**
+   * Update sizes of elements only for changed topics. Elements are kept in
+   * topic payloads between calls and identified by topic revisions, so that
+   * only changed topics are measured again and only block sizes of their
+   * ancestors are recalculated, subtrees without changes are skipped.
+   *
+   * @param gfx graphics to measure elements
+   * @param model model which elements should be updated, can be null
+   * @param cfg configuration
+   * @param context object identifying the configuration, all elements made for
+   * another context object are measured again
+   * @return true if the model has root and elements have been updated, false
+   * otherwise
+   * @since 1.4.4
+   */
+  public static boolean updateElementSizes(@Nonnull final MMGraphics gfx, @Nullable final MindMap model, @Nonnull final MindMapPanelConfig cfg, @Nonnull final Object context) {
+    boolean result = false;
+
+    final Topic root = model == null ? null : model.getRoot();
+    if (root != null) {
+      updateElementSizesForElementAndChildren(gfx, cfg, root, 0, context);
+      result = true;
+    }
+    return result;
+  }
+
   public static boolean calculateElementSizes(@Nonnull final MMGraphics gfx, @Nullable final MindMap model, @Nonnull final MindMapPanelConfig cfg) {
     boolean result = false;
 
@@ -1003,21 +1108,28 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
   public static Dimension layoutFullDiagramWithCenteringToPaper(@Nonnull final MMGraphics gfx, @Nonnull final MindMap map, @Nonnull final MindMapPanelConfig cfg, @Nonnull final Dimension2D paperSize) {
     Dimension resultSize = null;
     if (calculateElementSizes(gfx, map, cfg)) {
-      Dimension2D rootBlockSize = layoutModelElements(map, cfg);
-      final double paperMargin = cfg.getPaperMargins() * cfg.getScale();
+      resultSize = layoutDiagramWithCenteringToPaper(map, cfg, paperSize);
+    }
+    return resultSize;
+  }
 
-      if (rootBlockSize != null) {
-        final ElementRoot rootElement = assertNotNull((ElementRoot) assertNotNull(map.getRoot()).getPayload());
+  @Nullable
+  private static Dimension layoutDiagramWithCenteringToPaper(@Nonnull final MindMap map, @Nonnull final MindMapPanelConfig cfg, @Nonnull final Dimension2D paperSize) {
+    Dimension resultSize = null;
+    final Dimension2D rootBlockSize = layoutModelElements(map, cfg);
+    final double paperMargin = cfg.getPaperMargins() * cfg.getScale();
 
-        double rootOffsetXInBlock = rootElement.getLeftBlockSize().getWidth();
-        double rootOffsetYInBlock = (rootBlockSize.getHeight() - rootElement.getBounds().getHeight()) / 2;
+    if (rootBlockSize != null) {
+      final ElementRoot rootElement = assertNotNull((ElementRoot) assertNotNull(map.getRoot()).getPayload());
 
-        rootOffsetXInBlock += (paperSize.getWidth() - rootBlockSize.getWidth()) <= paperMargin ? paperMargin : (paperSize.getWidth() - rootBlockSize.getWidth()) / 2;
-        rootOffsetYInBlock += (paperSize.getHeight() - rootBlockSize.getHeight()) <= paperMargin ? paperMargin : (paperSize.getHeight() - rootBlockSize.getHeight()) / 2;
+      double rootOffsetXInBlock = rootElement.getLeftBlockSize().getWidth();
+      double rootOffsetYInBlock = (rootBlockSize.getHeight() - rootElement.getBounds().getHeight()) / 2;
 
-        moveDiagram(map, rootOffsetXInBlock, rootOffsetYInBlock);
-        resultSize = new Dimension((int) Math.round(rootBlockSize.getWidth() + paperMargin * 2), (int) Math.round(rootBlockSize.getHeight() + paperMargin * 2));
-      }
+      rootOffsetXInBlock += (paperSize.getWidth() - rootBlockSize.getWidth()) <= paperMargin ? paperMargin : (paperSize.getWidth() - rootBlockSize.getWidth()) / 2;
+      rootOffsetYInBlock += (paperSize.getHeight() - rootBlockSize.getHeight()) <= paperMargin ? paperMargin : (paperSize.getHeight() - rootBlockSize.getHeight()) / 2;
+
+      moveDiagram(map, rootOffsetXInBlock, rootOffsetYInBlock);
+      resultSize = new Dimension((int) Math.round(rootBlockSize.getWidth() + paperMargin * 2), (int) Math.round(rootBlockSize.getHeight() + paperMargin * 2));
     }
 
     return resultSize;
@@ -1157,7 +1269,7 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
         }
       }
     }
-    this.model.resetPayload();
+    invalidate();
     notifyModelChanged();
     repaint();
   }
@@ -2167,7 +2279,8 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
         try {
           if (graph != null) {
             final MMGraphics gfx = new MMGraphics2DWrapper(graph);
-            if (calculateElementSizes(gfx, this.model, this.config)) {
+            if (updateElementSizes(gfx, this.model, this.config, getLayoutContext())) {
+              this.layoutInvalid = false;
 
               Dimension pageSize = getSize();
 
@@ -2178,7 +2291,8 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
                 }
               }
 
-              changeSizeOfComponent(layoutFullDiagramWithCenteringToPaper(gfx, this.model, this.config, pageSize), doListenerNotification);
+              changeSizeOfComponent(layoutDiagramWithCenteringToPaper(this.model, this.config, pageSize), doListenerNotification);
+              this.layoutCounter++;
               result = true;
               fireNotificationComponentElementsLayouted(graph);
             }
@@ -2191,6 +2305,18 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
     return result;
   }
 
+  /**
+   * Get object identifying configuration used for the current element sizes.
+   * The object is replaced by notification about any change of the panel
+   * configuration, so that all elements are measured again.
+   *
+   * @return layout context object
+   */
+  @Nonnull
+  private Object getLayoutContext() {
+    return this.layoutContext;
+  }
+
   public boolean updateElementsAndSizeForCurrentGraphics(final boolean enforce, final boolean doListenerNotification) {
     assertSwingDispatchThread();
     return updateElementsAndSizeForGraphics((Graphics2D) getGraphics(), enforce, doListenerNotification);
@@ -2231,7 +2357,7 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
   public boolean isValid() {
     if (this.lockIfNotDisposed()) {
       try {
-        return isModelValid(this.model);
+        return !this.layoutInvalid && isModelValid(this.model);
       } finally {
         this.unlock();
       }
@@ -2249,9 +2375,7 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
     if (lockIfNotDisposed()) {
       try {
         super.invalidate();
-        if (this.model != null && this.model.getRoot() != null) {
-          this.model.resetPayload();
-        }
+        this.layoutInvalid = true;
       } finally {
         this.unlock();
       }
@@ -2272,10 +2396,17 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
           if (error != null) {
             drawErrorText(gfx, this.getSize(), error);
           } else {
-            if (this.model.getRoot().getPayload() == null) {
+            if (this.layoutInvalid || this.model.getRoot().getPayload() == null) {
               updateElementsAndSizeForGraphics(gfx, true, true);
             }
-            drawOnGraphicsForConfiguration(new MMGraphics2DWrapper(gfx), this.config, this.model, true, this.selectedTopics);
+            final Rectangle clip = gfx.getClipBounds();
+            if (this.config.isTileCache() && clip != null) {
+              this.tileCache.paint(gfx, this.model, this.config, getLayoutContext(), this.layoutCounter, clip, getVisibleRect());
+              drawSelection(new MMGraphics2DWrapper(gfx), this.config, this.selectedTopics);
+            } else {
+              this.tileCache.clear();
+              drawOnGraphicsForConfiguration(new MMGraphics2DWrapper(gfx), this.config, this.model, true, this.selectedTopics);
+            }
             drawDestinationElement(gfx, this.config);
           }
 
@@ -2561,6 +2692,7 @@ public class MindMapPanel extends JComponent implements ClipboardOwner {
           this.weakTable.clear();
           this.selectedTopics.clear();
           this.mindMapListeners.clear();
+          this.tileCache.clear();
 
           for (final PanelAwarePlugin p : MindMapPluginRegistry.getInstance().findFor(PanelAwarePlugin.class)) {
             p.onPanelDispose(this);
@@ -113,6 +113,7 @@ public final class MindMapPanelConfig implements Serializable {
   private double scale = 1.0d;
   private boolean dropShadow = true;
   private RenderQuality renderQuality = RenderQuality.DEFAULT;
+  private boolean tileCache = false;
   private transient volatile boolean notificationEnabled = true;
 
   public MindMapPanelConfig(@Nonnull final MindMapPanelConfig cfg, final boolean copyListeners) {
@@ -742,6 +743,7 @@ public final class MindMapPanelConfig implements Serializable {
 
   public void setShadowOffset(final float value) {
     this.shadowOffset = value;
+    notifyCfgListenersAboutChange();
   }
 
   public float getConnectorWidth() {
@@ -791,6 +793,29 @@ public final class MindMapPanelConfig implements Serializable {
     notifyCfgListenersAboutChange();
   }
 
+  /**
+   * Check that panel keeps rendered diagram in tiles of offscreen images.
+   *
+   * @return true if tile cache is enabled
+   * @since 1.4.4
+   */
+  public boolean isTileCache() {
+    return this.tileCache;
+  }
+
+  /**
+   * Enable or disable cache of rendered diagram in tiles of offscreen images.
+   * If enabled then repaint of the panel without changes of diagram just
+   * copies tiles, tiles are painted again only for changed elements.
+   *
+   * @param flag true to enable cache, false otherwise
+   * @since 1.4.4
+   */
+  public void setTileCache(final boolean flag) {
+    this.tileCache = flag;
+    notifyCfgListenersAboutChange();
+  }
+
   public int getCollapsatorSize() {
     return this.collapsatorSize;
   }
@@ -25,9 +25,13 @@ import java.awt.Point;
 import java.awt.geom.Dimension2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
 import java.awt.Color;
 import com.igormaznitsa.mindmap.swing.panel.ui.gfx.StrokeType;
 import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics;
@@ -142,9 +146,9 @@ public abstract class AbstractCollapsableElement extends AbstractElement {
           } else {
             notFirstChiild = true;
           }
-          ((AbstractElement) assertNotNull(t.getPayload())).calcBlockSize(cfg, result, false);
-          width = Math.max(baseWidth + result.getWidth(), width);
-          childrenHeight += result.getHeight();
+          final Dimension2D childBlockSize = ((AbstractElement) assertNotNull(t.getPayload())).getBlockSize();
+          width = Math.max(baseWidth + childBlockSize.getWidth(), width);
+          childrenHeight += childBlockSize.getHeight();
         }
 
         height = Math.max(height, childrenHeight);
@@ -207,11 +211,45 @@ public abstract class AbstractCollapsableElement extends AbstractElement {
 
   @Override
   public void doPaintConnectors(@Nonnull final MMGraphics g, final boolean leftDirection, @Nonnull final MindMapPanelConfig cfg) {
-    final Rectangle2D source = new Rectangle2D.Double(this.bounds.getX() + this.collapsatorZone.getX(), this.bounds.getY() + this.collapsatorZone.getY(), this.collapsatorZone.getWidth(), this.collapsatorZone.getHeight());
-    final boolean lefDir = isLeftDirection();
-    for (final Topic t : this.model.getChildren()) {
-      this.drawConnector(g, source, (assertNotNull((AbstractElement) t.getPayload())).getBounds(), lefDir, cfg);
+    super.doPaintConnectors(g, isLeftDirection(), cfg);
+  }
+
+  @Override
+  protected boolean isChildBlocksOrdered() {
+    return true;
+  }
+
+  @Override
+  @Nonnull
+  protected Rectangle2D makeConnectorSource() {
+    return new Rectangle2D.Double(this.bounds.getX() + this.collapsatorZone.getX(), this.bounds.getY() + this.collapsatorZone.getY(), this.collapsatorZone.getWidth(), this.collapsatorZone.getHeight());
+  }
+
+  @Override
+  @Nonnull
+  @MustNotContainNull
+  public List<AbstractElement> findChildrenInArea(@Nonnull final Rectangle2D area, final boolean leftDirection) {
+    if (this.isCollapsed() || !this.hasChildren()) {
+      return Collections.emptyList();
     }
+
+    final List<Topic> children = this.model.getChildren();
+    final int low = findFirstChildBlockNotAbove(children, area.getMinY());
+
+    // nearest children above and below the area are checked too because their connectors can cross the area
+    final List<AbstractElement> result = new ArrayList<AbstractElement>();
+    final Rectangle2D source = makeConnectorSource();
+    final double areaMaxY = area.getMaxY();
+    for (int i = Math.max(0, low - 1); i < children.size(); i++) {
+      final AbstractElement element = assertNotNull((AbstractElement) children.get(i).getPayload());
+      if (element.isBranchOrConnectorInArea(area, source, leftDirection)) {
+        result.add(element);
+      }
+      if (i >= low && element.calcBlockY() > areaMaxY) {
+        break;
+      }
+    }
+    return result;
   }
 
   @Override
@@ -249,16 +287,15 @@ public abstract class AbstractCollapsableElement extends AbstractElement {
       if (this.bounds.contains(point.getX(), point.getY()) || this.collapsatorZone.contains(point.getX() - this.bounds.getX(), point.getY() - this.bounds.getY())) {
         result = this;
       } else if (!isCollapsed()) {
-        final double topZoneY = this.bounds.getY() - (this.blockSize.getHeight() - this.bounds.getHeight()) / 2;
-        final double topZoneX = isLeftDirection() ? this.bounds.getMaxX() - this.blockSize.getWidth() : this.bounds.getX();
-
-        if (point.getX() >= topZoneX && point.getY() >= topZoneY && point.getX() < (this.blockSize.getWidth() + topZoneX) && point.getY() < (this.blockSize.getHeight() + topZoneY)) {
-          for (final Topic t : this.model.getChildren()) {
-            final AbstractElement w = (AbstractElement) t.getPayload();
+        final double topZoneY = calcBlockY();
+
+        // blocks of children don't overlap vertically so that only one branch is checked on every level
+        if (point.getY() >= topZoneY && point.getY() < (this.blockSize.getHeight() + topZoneY)) {
+          final List<Topic> children = this.model.getChildren();
+          final int index = findFirstChildBlockNotAbove(children, point.getY());
+          if (index < children.size()) {
+            final AbstractElement w = (AbstractElement) children.get(index).getPayload();
             result = w == null ? null : w.findForPoint(point);
-            if (result != null) {
-              break;
-            }
           }
         }
       }
@@ -28,10 +28,13 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Dimension2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.swing.text.JTextComponent;
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
 import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics;
 import static com.igormaznitsa.meta.common.utils.Assertions.assertNotNull;
 
@@ -53,6 +56,10 @@ public abstract class AbstractElement {
   protected Color textColor;
   protected Color borderColor;
 
+  private Object layoutContext;
+  private int layoutRevision;
+  private int layoutSubtreeRevision;
+
   @Nonnull
   public String getText() {
     return this.model.getText();
@@ -84,6 +91,57 @@ public abstract class AbstractElement {
     updateColorAttributeFromModel();
   }
 
+  /**
+   * Refresh text, alignment and colors of the element from its topic, sizes
+   * must be updated after the call.
+   *
+   * @since 1.4.4
+   */
+  public void updateFromModel() {
+    this.textBlock.updateText(this.model.getText());
+    this.textBlock.setTextAlign(TextAlign.findForName(this.model.getAttribute("align"))); //NOI18N
+    updateColorAttributeFromModel();
+  }
+
+  /**
+   * Check that element bounds have been calculated for the current revision
+   * of the topic in the layout context.
+   *
+   * @param context object identifying layout parameters
+   * @return true if the element bounds are actual
+   * @since 1.4.4
+   */
+  public boolean isLayoutValid(@Nonnull final Object context) {
+    return this.layoutContext == context && this.layoutRevision == this.model.getRevision();
+  }
+
+  /**
+   * Check that bounds and block sizes of the element and all elements of its
+   * subtree have been calculated for the current state of the topic subtree
+   * in the layout context.
+   *
+   * @param context object identifying layout parameters
+   * @return true if the whole subtree is actual
+   * @since 1.4.4
+   */
+  public boolean isSubtreeLayoutValid(@Nonnull final Object context) {
+    return this.layoutContext == context && this.layoutSubtreeRevision == this.model.getSubtreeRevision();
+  }
+
+  /**
+   * Remember that the element and its subtree have been calculated for the
+   * current state of the topic subtree in the layout context.
+   *
+   * @param context object identifying layout parameters
+   * @since 1.4.4
+   */
+  public void markLayoutValid(@Nonnull final Object context) {
+    // if children are not observed then the subtree revision can't be trusted
+    this.layoutContext = this.model.markSubtreeObserved() ? context : null;
+    this.layoutRevision = this.model.getRevision();
+    this.layoutSubtreeRevision = this.model.getSubtreeRevision();
+  }
+
   public final void updateColorAttributeFromModel() {
     this.borderColor = Utils.html2color(this.model.getAttribute(ATTR_BORDER_COLOR.getText()), false);
     this.textColor = Utils.html2color(this.model.getAttribute(ATTR_TEXT_COLOR.getText()), false);
@@ -161,33 +219,115 @@ public abstract class AbstractElement {
   }
 
   public final void doPaint(@Nonnull final MMGraphics g, @Nonnull final MindMapPanelConfig cfg, final boolean drawCollapsator) {
-    final MMGraphics gfx = g.copy();
-    try {
-      if (this.hasChildren() && !isCollapsed()) {
-        doPaintConnectors(g, isLeftDirection(), cfg);
-      }
-
-      final Rectangle clip = g.getClipBounds();
-
-      if (clip == null) {
-        gfx.translate(this.bounds.getX(), this.bounds.getY());
-        drawComponent(gfx, cfg, drawCollapsator);
-      } else if (clip.intersects(this.bounds)) {
+    if (this.hasChildren() && !isCollapsed()) {
+      doPaintConnectors(g, isLeftDirection(), cfg);
+    }
+    doPaintComponent(g, cfg, drawCollapsator);
+  }
+
+  /**
+   * Paint the element without connectors, nothing is painted if the element is
+   * out of clip bounds of the graphics.
+   *
+   * @param g graphics to paint
+   * @param cfg panel configuration
+   * @param drawCollapsator flag to draw collapsator of the element
+   * @since 1.4.4
+   */
+  public final void doPaintComponent(@Nonnull final MMGraphics g, @Nonnull final MindMapPanelConfig cfg, final boolean drawCollapsator) {
+    final Rectangle clip = g.getClipBounds();
+    if (clip == null || clip.intersects(this.bounds)) {
+      final MMGraphics gfx = g.copy();
+      try {
         gfx.translate(this.bounds.getX(), this.bounds.getY());
         drawComponent(gfx, cfg, drawCollapsator);
+      } finally {
+        gfx.dispose();
       }
-    } finally {
-      gfx.dispose();
     }
   }
 
   public void doPaintConnectors(@Nonnull final MMGraphics g, final boolean leftDirection, @Nonnull final MindMapPanelConfig cfg) {
-    final Rectangle2D source = this.bounds;
+    final Rectangle2D source = makeConnectorSource();
     for (final Topic t : this.model.getChildren()) {
       drawConnector(g, source, (assertNotNull((AbstractElement) t.getPayload())).getBounds(), leftDirection, cfg);
     }
   }
 
+  /**
+   * Paint connectors only to listed child elements.
+   *
+   * @param g graphics to paint
+   * @param leftDirection direction of the branch
+   * @param cfg panel configuration
+   * @param children child elements of the element
+   * @since 1.4.4
+   */
+  public void doPaintConnectors(@Nonnull final MMGraphics g, final boolean leftDirection, @Nonnull final MindMapPanelConfig cfg, @Nonnull @MustNotContainNull final List<AbstractElement> children) {
+    final Rectangle2D source = makeConnectorSource();
+    for (final AbstractElement e : children) {
+      drawConnector(g, source, e.getBounds(), leftDirection, cfg);
+    }
+  }
+
+  /**
+   * Get area where connectors to children start.
+   *
+   * @return area in panel coordinates
+   * @since 1.4.4
+   */
+  @Nonnull
+  protected Rectangle2D makeConnectorSource() {
+    return this.bounds;
+  }
+
+  /**
+   * Find child elements which branches or connectors intersect area. The
+   * default implementation checks every child element.
+   *
+   * @param area area in panel coordinates
+   * @param leftDirection direction of the branch, ignored for the root element
+   * @return list of found child elements in their order, can be empty
+   * @since 1.4.4
+   */
+  @Nonnull
+  @MustNotContainNull
+  public List<AbstractElement> findChildrenInArea(@Nonnull final Rectangle2D area, final boolean leftDirection) {
+    final List<AbstractElement> result = new ArrayList<AbstractElement>();
+    if (!this.isCollapsed()) {
+      final Rectangle2D source = makeConnectorSource();
+      for (final Topic t : this.model.getChildren()) {
+        final AbstractElement element = assertNotNull((AbstractElement) t.getPayload());
+        if (element.isBranchOrConnectorInArea(area, source, element.isLeftDirection())) {
+          result.add(element);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Check that the branch of the element or connector to the element from its
+   * parent intersects area. Connectors are painted within rectangle between
+   * their ends.
+   *
+   * @param area area in panel coordinates
+   * @param connectorSource start area of connector in the parent
+   * @param leftDirection direction of the branch
+   * @return true if the branch or the connector can be visible in the area
+   */
+  protected boolean isBranchOrConnectorInArea(@Nonnull final Rectangle2D area, @Nonnull final Rectangle2D connectorSource, final boolean leftDirection) {
+    final double blockX = leftDirection ? this.bounds.getMaxX() - this.blockSize.getWidth() : this.bounds.getX();
+    if (area.intersects(blockX, calcBlockY(), this.blockSize.getWidth(), this.blockSize.getHeight())) {
+      return true;
+    }
+    final double minX = Math.min(connectorSource.getMinX(), this.bounds.getMinX());
+    final double minY = Math.min(connectorSource.getMinY(), this.bounds.getMinY());
+    final double maxX = Math.max(connectorSource.getMaxX(), this.bounds.getMaxX());
+    final double maxY = Math.max(connectorSource.getMaxY(), this.bounds.getMaxY());
+    return area.intersects(minX, minY, maxX - minX, maxY - minY);
+  }
+
   public boolean hasChildren() {
     return this.model.hasChildren();
   }
@@ -261,32 +401,79 @@ public abstract class AbstractElement {
       if (this.isCollapsed()) {
         return this.getModel().getLast();
       } else {
-        double py = point.getY();
+        final double py = point.getY();
         final double vertInset = cfg.getOtherLevelVerticalInset() * cfg.getScale();
 
-        Topic prev = null;
+        final List<Topic> children = this.model.getChildren();
+        final int index = findFirstChildBlockNotAbove(children, py - vertInset);
 
-        for (final Topic t : this.model.getChildren()) {
+        if (index >= children.size()) {
+          result = children.get(children.size() - 1);
+        } else {
+          final Topic t = children.get(index);
           final AbstractElement el = assertNotNull((AbstractElement) t.getPayload());
-
-          final double childStartBlockY = el.calcBlockY();
-          final double childEndBlockY = childStartBlockY + el.getBlockSize().getHeight() + vertInset;
-
-          if (py < childEndBlockY) {
-            result = py < el.getBounds().getCenterY() ? prev : t;
-            break;
-          } else if (this.model.isLastChild(t)) {
+          if (py < el.getBounds().getCenterY()) {
+            result = index == 0 ? null : children.get(index - 1);
+          } else {
             result = t;
-            break;
           }
-
-          prev = t;
         }
       }
     }
     return result;
   }
 
+  /**
+   * Find index of the first child which block is not above Y coordinate. Blocks
+   * of children must be placed from top to bottom.
+   *
+   * @param children children of the element
+   * @param y Y coordinate in panel
+   * @return index of the found child, number of children if all blocks are
+   * above the coordinate
+   * @since 1.4.4
+   */
+  protected static int findFirstChildBlockNotAbove(@Nonnull @MustNotContainNull final List<Topic> children, final double y) {
+    int low = 0;
+    int high = children.size() - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final AbstractElement element = assertNotNull((AbstractElement) children.get(middle).getPayload());
+      if (element.calcBlockY() + element.getBlockSize().getHeight() <= y) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Check that blocks of children are placed from top to bottom in their
+   * order.
+   *
+   * @return true if children can be found by binary search
+   * @since 1.4.4
+   */
+  protected boolean isChildBlocksOrdered() {
+    return false;
+  }
+
+  /**
+   * Calculate distance from point to the block of the element.
+   *
+   * @param point point in panel coordinates
+   * @param leftDirection direction of the branch
+   * @return distance to the block, zero if the block contains the point
+   */
+  private double calcDistanceToBlock(@Nonnull final Point point, final boolean leftDirection) {
+    final double blockX = leftDirection ? this.bounds.getMaxX() - this.blockSize.getWidth() : this.bounds.getX();
+    final double blockY = calcBlockY();
+    final double dx = Math.max(0.0d, Math.max(blockX - point.getX(), point.getX() - (blockX + this.blockSize.getWidth())));
+    final double dy = Math.max(0.0d, Math.max(blockY - point.getY(), point.getY() - (blockY + this.blockSize.getHeight())));
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
   protected double calcBlockY() {
     return this.bounds.getY() - (this.blockSize.getHeight() - this.bounds.getHeight()) / 2;
   }
@@ -297,11 +484,11 @@ public abstract class AbstractElement {
 
   @Nullable
   public AbstractElement findNearestOpenedTopicToPoint(@Nullable final AbstractElement elementToIgnore, @Nonnull final Point point) {
-    return findNearestTopic(elementToIgnore, Double.MAX_VALUE, point);
+    return findNearestTopic(elementToIgnore, Double.MAX_VALUE, point, this.isLeftDirection());
   }
 
   @Nullable
-  private AbstractElement findNearestTopic(@Nullable final AbstractElement elementToIgnore, double maxDistance, @Nonnull final Point point) {
+  private AbstractElement findNearestTopic(@Nullable final AbstractElement elementToIgnore, double maxDistance, @Nonnull final Point point, final boolean leftDirection) {
     AbstractElement result = null;
     if (elementToIgnore != this) {
       final double dist = calcAverageDistanceToPoint(point);
@@ -312,13 +499,48 @@ public abstract class AbstractElement {
     }
 
     if (!this.isCollapsed()) {
-      for (final Topic t : this.model.getChildren()) {
-        final AbstractElement element = t.getPayload() == null ? null : (AbstractElement) t.getPayload();
-        if (element != null) {
-          final AbstractElement nearestChild = element.findNearestTopic(elementToIgnore, maxDistance, point);
-          if (nearestChild != null) {
-            maxDistance = nearestChild.calcAverageDistanceToPoint(point);
-            result = nearestChild;
+      // average distance to corners of element can't be less than distance to block of its branch
+      final List<Topic> children = this.model.getChildren();
+      if (this.isChildBlocksOrdered()) {
+        final int start = findFirstChildBlockNotAbove(children, point.getY());
+        for (int i = start; i < children.size(); i++) {
+          final AbstractElement element = assertNotNull((AbstractElement) children.get(i).getPayload());
+          if (element.calcBlockY() - point.getY() >= maxDistance) {
+            break;
+          }
+          if (element.calcDistanceToBlock(point, leftDirection) < maxDistance) {
+            final AbstractElement nearestChild = element.findNearestTopic(elementToIgnore, maxDistance, point, leftDirection);
+            if (nearestChild != null) {
+              maxDistance = nearestChild.calcAverageDistanceToPoint(point);
+              result = nearestChild;
+            }
+          }
+        }
+        for (int i = start - 1; i >= 0; i--) {
+          final AbstractElement element = assertNotNull((AbstractElement) children.get(i).getPayload());
+          if (point.getY() - (element.calcBlockY() + element.getBlockSize().getHeight()) >= maxDistance) {
+            break;
+          }
+          if (element.calcDistanceToBlock(point, leftDirection) < maxDistance) {
+            final AbstractElement nearestChild = element.findNearestTopic(elementToIgnore, maxDistance, point, leftDirection);
+            if (nearestChild != null) {
+              maxDistance = nearestChild.calcAverageDistanceToPoint(point);
+              result = nearestChild;
+            }
+          }
+        }
+      } else {
+        for (final Topic t : children) {
+          final AbstractElement element = t.getPayload() == null ? null : (AbstractElement) t.getPayload();
+          if (element != null) {
+            final boolean childLeftDirection = element.isLeftDirection();
+            if (element.calcDistanceToBlock(point, childLeftDirection) < maxDistance) {
+              final AbstractElement nearestChild = element.findNearestTopic(elementToIgnore, maxDistance, point, childLeftDirection);
+              if (nearestChild != null) {
+                maxDistance = nearestChild.calcAverageDistanceToPoint(point);
+                result = nearestChild;
+              }
+            }
           }
         }
       }
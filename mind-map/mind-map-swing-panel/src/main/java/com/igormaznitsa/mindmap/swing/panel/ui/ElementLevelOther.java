@@ -21,7 +21,6 @@ import com.igormaznitsa.mindmap.model.Topic;
 
 import java.awt.Color;
 import java.awt.Shape;
-import java.awt.geom.Rectangle2D;
 
 import javax.annotation.Nonnull;
 import com.igormaznitsa.mindmap.swing.panel.ui.gfx.StrokeType;
@@ -72,14 +71,6 @@ public class ElementLevelOther extends ElementLevelFirst {
     }
   }
   
-  @Override
-  public void doPaintConnectors(@Nonnull final MMGraphics g, final boolean leftDirection, @Nonnull final MindMapPanelConfig cfg) {
-    final Rectangle2D source = new Rectangle2D.Double(this.bounds.getX() + this.collapsatorZone.getX(), this.bounds.getY() + this.collapsatorZone.getY(), this.collapsatorZone.getWidth(), this.collapsatorZone.getHeight());
-    for (final Topic t : this.model.getChildren()) {
-      this.drawConnector(g, source, assertNotNull(((AbstractElement) t.getPayload())).getBounds(), leftDirection, cfg);
-    }
-  }
-  
   @Override
   public void setLeftDirection(boolean leftSide) {
   }
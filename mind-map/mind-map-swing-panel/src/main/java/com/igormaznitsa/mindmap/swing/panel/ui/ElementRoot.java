@@ -208,11 +208,11 @@ public final class ElementRoot extends AbstractElement {
     for (final Topic t : this.model.getChildren()) {
       final ElementLevelFirst w = assertNotNull((ElementLevelFirst) t.getPayload());
 
-      w.calcBlockSize(cfg, result, false);
+      final Dimension2D childBlockSize = w.getBlockSize();
 
       if (w.isLeftDirection()) {
-        leftWidth = Math.max(leftWidth, result.getWidth());
-        leftHeight += result.getHeight();
+        leftWidth = Math.max(leftWidth, childBlockSize.getWidth());
+        leftHeight += childBlockSize.getHeight();
         if (nonfirstOnLeft) {
           leftHeight += insetV;
         }
@@ -221,8 +221,8 @@ public final class ElementRoot extends AbstractElement {
         }
       }
       else {
-        rightWidth = Math.max(rightWidth, result.getWidth());
-        rightHeight += result.getHeight();
+        rightWidth = Math.max(rightWidth, childBlockSize.getWidth());
+        rightHeight += childBlockSize.getHeight();
         if (nonfirstOnRight) {
           rightHeight += insetV;
         }
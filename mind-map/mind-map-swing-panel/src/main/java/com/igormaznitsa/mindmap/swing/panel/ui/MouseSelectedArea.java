@@ -26,7 +26,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 
 import com.igormaznitsa.meta.annotation.MustNotContainNull;
 
@@ -58,26 +57,22 @@ public class MouseSelectedArea {
   public List<Topic> getAllSelectedElements(@Nonnull final MindMap map) {
     final List<Topic> result = new ArrayList<Topic>();
     final Rectangle rect = asRectangle();
-    addCoveredToList(result, map.getRoot(), rect.getBounds2D());
+    final Topic root = map.getRoot();
+    if (root != null && root.getPayload() != null) {
+      final AbstractElement rootElement = (AbstractElement) root.getPayload();
+      addCoveredToList(result, rootElement, rootElement.isLeftDirection(), rect.getBounds2D());
+    }
     return result;
   }
 
-  private void addCoveredToList(@Nonnull @MustNotContainNull final List<Topic> list, @Nullable final Topic root, @Nonnull final Rectangle2D rect) {
-    if (root == null || root.getPayload() == null) {
-      return;
-    }
-
-    final AbstractElement payload = (AbstractElement) root.getPayload();
-    if (payload != null) {
-      if (rect.contains(payload.getBounds())) {
-        list.add(root);
-      }
-      if (payload instanceof AbstractCollapsableElement && ((AbstractCollapsableElement) payload).isCollapsed()) {
-        return;
-      }
+  private void addCoveredToList(@Nonnull @MustNotContainNull final List<Topic> list, @Nonnull final AbstractElement element, final boolean leftDirection, @Nonnull final Rectangle2D rect) {
+    if (rect.contains(element.getBounds())) {
+      list.add(element.getModel());
     }
-    for (final Topic t : root.getChildren()) {
-      addCoveredToList(list, t, rect);
+    // only branches which blocks intersect the area can contain covered elements
+    final boolean root = element instanceof ElementRoot;
+    for (final AbstractElement child : element.findChildrenInArea(rect, leftDirection)) {
+      addCoveredToList(list, child, root ? child.isLeftDirection() : leftDirection, rect);
     }
   }
 }
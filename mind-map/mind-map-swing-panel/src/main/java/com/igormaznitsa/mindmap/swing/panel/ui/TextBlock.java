@@ -29,6 +29,7 @@ import javax.swing.text.JTextComponent;
 
 import com.igormaznitsa.meta.common.utils.Assertions;
 import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.TextMeasurementCache;
 
 public final class TextBlock implements Cloneable {
 
@@ -100,7 +101,7 @@ public final class TextBlock implements Cloneable {
   }
   
   public void updateSize(@Nonnull final MMGraphics gfx, @Nonnull final MindMapPanelConfig cfg) {
-      this.font = cfg.getFont().deriveFont(cfg.safeScaleFloatValue(cfg.getFont().getSize2D(),2f));
+      this.font = TextMeasurementCache.deriveFont(cfg.getFont(), cfg.safeScaleFloatValue(cfg.getFont().getSize2D(),2f));
       gfx.setFont(font);
       
       this.maxLineAscent = gfx.getFontMaxAscent();
@@ -166,13 +166,13 @@ public class MMGraphics2DWrapper implements MMGraphics {
 
   @Override
   public float getFontMaxAscent() {
-    return this.wrapped.getFontMetrics().getMaxAscent();
+    return TextMeasurementCache.getMaxAscent(this.wrapped);
   }
 
   @Override
   @Nonnull
   public Rectangle2D getStringBounds(@Nonnull final String str) {
-    return this.wrapped.getFontMetrics().getStringBounds(str, this.wrapped);
+    return TextMeasurementCache.getStringBounds(this.wrapped, str);
   }
 
   @Override
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.swing.panel.ui.gfx;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Shared bounded cache of derived fonts and text measurements. Measurements
+ * are kept for font render context of graphics, so that results are the same
+ * as provided by font metrics of the graphics. Least recently used entries are
+ * removed if number of entries reaches limit.
+ *
+ * @since 1.4.4
+ */
+public final class TextMeasurementCache {
+
+  private static final int MAX_FONTS = 256;
+  private static final int MAX_ASCENTS = 256;
+  private static final int MAX_STRINGS = 16384;
+
+  private static final Map<Key, Font> FONTS = makeLruMap(MAX_FONTS);
+  private static final Map<Key, Float> ASCENTS = makeLruMap(MAX_ASCENTS);
+  private static final Map<Key, Rectangle2D> STRINGS = makeLruMap(MAX_STRINGS);
+
+  private static final class Key {
+
+    private final Object first;
+    private final Object second;
+    private final Object third;
+    private final int hash;
+
+    private Key(@Nonnull final Object first, @Nonnull final Object second, @Nonnull final Object third) {
+      this.first = first;
+      this.second = second;
+      this.third = third;
+      this.hash = (first.hashCode() * 31 + second.hashCode()) * 31 + third.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj instanceof Key) {
+        final Key that = (Key) obj;
+        return this.hash == that.hash && this.first.equals(that.first) && this.second.equals(that.second) && this.third.equals(that.third);
+      }
+      return false;
+    }
+  }
+
+  private TextMeasurementCache() {
+  }
+
+  @Nonnull
+  private static <V> Map<Key, V> makeLruMap(final int maxSize) {
+    return new LinkedHashMap<Key, V>(64, 0.75f, true) {
+      private static final long serialVersionUID = -6218754163409327551L;
+
+      @Override
+      protected boolean removeEldestEntry(@Nonnull final Map.Entry<Key, V> eldest) {
+        return this.size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Get font derived from base font for size.
+   *
+   * @param base base font
+   * @param size size of needed font
+   * @return cached or new derived font
+   */
+  @Nonnull
+  public static Font deriveFont(@Nonnull final Font base, final float size) {
+    final Key key = new Key(base, size, Boolean.TRUE);
+    synchronized (FONTS) {
+      Font result = FONTS.get(key);
+      if (result == null) {
+        result = base.deriveFont(size);
+        FONTS.put(key, result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Get max ascent of current font of graphics.
+   *
+   * @param gfx graphics which font and render context are used
+   * @return max ascent of the font
+   */
+  public static float getMaxAscent(@Nonnull final Graphics2D gfx) {
+    final Font font = gfx.getFont();
+    final FontRenderContext context = gfx.getFontRenderContext();
+    final Key key = new Key(font, context, Boolean.TRUE);
+    Float result;
+    synchronized (ASCENTS) {
+      result = ASCENTS.get(key);
+    }
+    if (result == null) {
+      result = (float) gfx.getFontMetrics(font).getMaxAscent();
+      synchronized (ASCENTS) {
+        ASCENTS.put(key, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get bounds of string drawn by current font of graphics.
+   *
+   * @param gfx graphics which font and render context are used
+   * @param str string to be measured
+   * @return new rectangle contains bounds of the string
+   */
+  @Nonnull
+  public static Rectangle2D getStringBounds(@Nonnull final Graphics2D gfx, @Nonnull final String str) {
+    final Font font = gfx.getFont();
+    final Key key = new Key(font, gfx.getFontRenderContext(), str);
+    Rectangle2D result;
+    synchronized (STRINGS) {
+      result = STRINGS.get(key);
+    }
+    if (result == null) {
+      result = gfx.getFontMetrics(font).getStringBounds(str, gfx);
+      synchronized (STRINGS) {
+        STRINGS.put(key, result);
+      }
+    }
+    return (Rectangle2D) result.clone();
+  }
+
+  /**
+   * Remove all cached fonts and measurements.
+   */
+  public static void clear() {
+    synchronized (FONTS) {
+      FONTS.clear();
+    }
+    synchronized (ASCENTS) {
+      ASCENTS.clear();
+    }
+    synchronized (STRINGS) {
+      STRINGS.clear();
+    }
+  }
+}
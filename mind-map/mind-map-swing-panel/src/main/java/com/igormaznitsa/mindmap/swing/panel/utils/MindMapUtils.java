@@ -106,11 +106,25 @@ public final class MindMapUtils {
   }
 
   public static void removeCollapseAttributeFromTopicsWithoutChildren(@Nullable final MindMap map) {
-    removeCollapseAttrIfNoChildren(map == null ? null : map.getRoot());
+    if (map != null) {
+      map.beginBatch();
+      try {
+        removeCollapseAttrIfNoChildren(map.getRoot());
+      }
+      finally {
+        map.endBatch();
+      }
+    }
   }
 
   public static void removeCollapseAttr(@Nonnull final MindMap map) {
-    _removeCollapseAttr(map.getRoot());
+    map.beginBatch();
+    try {
+      _removeCollapseAttr(map.getRoot());
+    }
+    finally {
+      map.endBatch();
+    }
   }
 
   private static void _removeCollapseAttr(@Nullable final Topic topic) {
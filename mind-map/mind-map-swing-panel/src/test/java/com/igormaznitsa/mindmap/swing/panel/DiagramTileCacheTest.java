@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.swing.panel;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.Topic;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics2DWrapper;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Dimension2D;
+import java.awt.image.BufferedImage;
+import java.io.StringReader;
+import javax.annotation.Nonnull;
+
+public class DiagramTileCacheTest {
+
+  @Nonnull
+  private static Dimension2D layout(@Nonnull final MindMap map, @Nonnull final MindMapPanelConfig config, @Nonnull final Object context) {
+    final MMGraphics gfx = new MMGraphics2DWrapper(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB).createGraphics());
+    try {
+      assertTrue(MindMapPanel.updateElementSizes(gfx, map, config, context));
+      return MindMapPanel.layoutModelElements(map, config);
+    } finally {
+      gfx.dispose();
+    }
+  }
+
+  private static void assertSameAsDirectPainting(@Nonnull final DiagramTileCache cache, @Nonnull final MindMap map, @Nonnull final MindMapPanelConfig config, @Nonnull final Object context, final int layoutStamp, @Nonnull final Rectangle area) {
+    final BufferedImage expected = new BufferedImage(area.x + area.width, area.y + area.height, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D expectedGfx = expected.createGraphics();
+    try {
+      config.getRenderQuality().prepare(expectedGfx);
+      expectedGfx.setClip(area);
+      MindMapPanel.drawOnGraphicsForConfiguration(new MMGraphics2DWrapper(expectedGfx), config, map, false, null);
+    } finally {
+      expectedGfx.dispose();
+    }
+
+    final BufferedImage tiled = new BufferedImage(area.x + area.width, area.y + area.height, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D tiledGfx = tiled.createGraphics();
+    try {
+      tiledGfx.setClip(area);
+      cache.paint(tiledGfx, map, config, context, layoutStamp, area, area);
+    } finally {
+      tiledGfx.dispose();
+    }
+
+    for (int y = area.y; y < area.y + area.height; y++) {
+      for (int x = area.x; x < area.x + area.width; x++) {
+        assertEquals("Pixel " + x + ',' + y, expected.getRGB(x, y), tiled.getRGB(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testPaint_OnlyChangedTilesAreRendered() throws Exception {
+    final StringBuilder text = new StringBuilder("---\n# root\n");
+    for (int i = 0; i < 6; i++) {
+      text.append("## first ").append(i).append('\n');
+      for (int j = 0; j < 8; j++) {
+        text.append("### second ").append(i).append('.').append(j).append('\n');
+      }
+    }
+    final MindMap map = new MindMap(null, new StringReader(text.toString()));
+    final MindMapPanelConfig config = new MindMapPanelConfig();
+    final Object context = new Object();
+    final Dimension2D size = layout(map, config, context);
+    final Rectangle area = new Rectangle(0, 0, (int) Math.ceil(size.getWidth()), (int) Math.ceil(size.getHeight()));
+
+    final DiagramTileCache cache = new DiagramTileCache();
+    assertSameAsDirectPainting(cache, map, config, context, 1, area);
+    final long allTiles = cache.getNumberOfRenderedTiles();
+    assertTrue(allTiles > 4);
+    assertEquals(allTiles, cache.getNumberOfTiles());
+
+    assertSameAsDirectPainting(cache, map, config, context, 1, area);
+    assertEquals(allTiles, cache.getNumberOfRenderedTiles());
+
+    final Topic changed = map.getRoot().getChildren().get(0).getChildren().get(0);
+    changed.setText("changed");
+    layout(map, config, context);
+
+    assertSameAsDirectPainting(cache, map, config, context, 2, area);
+    final long rendered = cache.getNumberOfRenderedTiles() - allTiles;
+    assertTrue(rendered > 0);
+    assertTrue(rendered < allTiles);
+
+    assertSameAsDirectPainting(cache, map, config, new Object(), 2, area);
+    assertEquals(allTiles * 2 + rendered, cache.getNumberOfRenderedTiles());
+  }
+
+  @Test
+  public void testPaint_SmallAreaKeepsTilesOfVisibleArea() throws Exception {
+    final StringBuilder text = new StringBuilder("---\n# root\n");
+    for (int i = 0; i < 12; i++) {
+      text.append("## first ").append(i).append('\n');
+      for (int j = 0; j < 12; j++) {
+        text.append("### second ").append(i).append('.').append(j).append('\n');
+      }
+    }
+    final MindMap map = new MindMap(null, new StringReader(text.toString()));
+    final MindMapPanelConfig config = new MindMapPanelConfig();
+    final Object context = new Object();
+    final Dimension2D size = layout(map, config, context);
+    final Rectangle visible = new Rectangle(0, 0, (int) Math.ceil(size.getWidth()), (int) Math.ceil(size.getHeight()));
+
+    final BufferedImage image = new BufferedImage(visible.width, visible.height, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D gfx = image.createGraphics();
+    try {
+      final DiagramTileCache cache = new DiagramTileCache();
+      cache.paint(gfx, map, config, context, 1, visible, visible);
+      final long allTiles = cache.getNumberOfRenderedTiles();
+      assertTrue(allTiles > 16);
+
+      cache.paint(gfx, map, config, context, 1, new Rectangle(10, 10, 5, 5), visible);
+      assertEquals(allTiles, cache.getNumberOfTiles());
+
+      cache.paint(gfx, map, config, context, 1, visible, visible);
+      assertEquals(allTiles, cache.getNumberOfRenderedTiles());
+    } finally {
+      gfx.dispose();
+    }
+  }
+}
@@ -18,6 +18,26 @@ package com.igormaznitsa.mindmap.swing.panel;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import static org.mockito.Mockito.*;
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.Topic;
+import com.igormaznitsa.mindmap.swing.panel.ui.AbstractCollapsableElement;
+import com.igormaznitsa.mindmap.swing.panel.ui.AbstractElement;
+import com.igormaznitsa.mindmap.swing.panel.ui.MouseSelectedArea;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics;
+import com.igormaznitsa.mindmap.swing.panel.ui.gfx.MMGraphics2DWrapper;
+import com.igormaznitsa.mindmap.swing.panel.utils.MindMapUtils;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Dimension2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.swing.JPanel;
 
 public class MindMapPanelTest {
 
@@ -33,4 +53,183 @@ public class MindMapPanelTest {
     assertNotSame(config,panel.getConfiguration());
   }
   
+  @Test
+  public void testUpdateElementSizes_OnlyChangedBranchIsRecalculated() throws Exception {
+    final MindMapPanelConfig config = new MindMapPanelConfig();
+    final MindMap map = new MindMap(null, new StringReader("---\n# root\n## first\n### first.1\n### first.2\n## second\n### second.1\n"));
+    final MMGraphics gfx = new MMGraphics2DWrapper(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB).createGraphics());
+    final Object context = new Object();
+
+    try {
+      assertTrue(MindMapPanel.updateElementSizes(gfx, map, config, context));
+
+      final Topic root = map.getRoot();
+      final Topic first = root.getChildren().get(0);
+      final Topic changed = first.getChildren().get(1);
+      final Topic second = root.getChildren().get(1);
+
+      final AbstractElement rootElement = (AbstractElement) root.getPayload();
+      final AbstractElement changedElement = (AbstractElement) changed.getPayload();
+      final AbstractElement secondElement = (AbstractElement) second.getPayload();
+      final double oldWidth = changedElement.getBounds().getWidth();
+      assertTrue(rootElement.isSubtreeLayoutValid(context));
+
+      changed.setText("some much longer text of the topic");
+
+      assertFalse(rootElement.isSubtreeLayoutValid(context));
+      assertFalse(((AbstractElement) first.getPayload()).isSubtreeLayoutValid(context));
+      assertFalse(changedElement.isLayoutValid(context));
+      assertTrue(secondElement.isSubtreeLayoutValid(context));
+      assertTrue(((AbstractElement) first.getChildren().get(0).getPayload()).isSubtreeLayoutValid(context));
+
+      assertTrue(MindMapPanel.updateElementSizes(gfx, map, config, context));
+
+      assertSame(rootElement, root.getPayload());
+      assertSame(changedElement, changed.getPayload());
+      assertSame(secondElement, second.getPayload());
+      assertTrue(rootElement.isSubtreeLayoutValid(context));
+      assertTrue(changedElement.getBounds().getWidth() > oldWidth);
+
+      final MindMap copy = new MindMap(map, null);
+      assertTrue(MindMapPanel.calculateElementSizes(gfx, copy, config));
+      final Dimension2D expected = ((AbstractElement) copy.getRoot().getPayload()).getBlockSize();
+      assertEquals(expected.getWidth(), rootElement.getBlockSize().getWidth(), 0.0001d);
+      assertEquals(expected.getHeight(), rootElement.getBlockSize().getHeight(), 0.0001d);
+
+      assertFalse(rootElement.isSubtreeLayoutValid(new Object()));
+    } finally {
+      gfx.dispose();
+    }
+  }
+
+  @Nonnull
+  private static MindMap makeThreeLevelMap() throws Exception {
+    final StringBuilder text = new StringBuilder("---\n# root\n");
+    for (int i = 0; i < 6; i++) {
+      text.append("## first ").append(i).append('\n');
+      for (int j = 0; j < 8; j++) {
+        text.append("### second ").append(i).append('.').append(j).append('\n');
+        text.append("#### third ").append(i).append('.').append(j).append('\n');
+      }
+    }
+    return new MindMap(null, new StringReader(text.toString()));
+  }
+
+  @Nonnull
+  private static Dimension2D layout(@Nonnull final MindMap map, @Nonnull final MindMapPanelConfig config) {
+    final MMGraphics gfx = new MMGraphics2DWrapper(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB).createGraphics());
+    try {
+      assertTrue(MindMapPanel.calculateElementSizes(gfx, map, config));
+      return MindMapPanel.layoutModelElements(map, config);
+    } finally {
+      gfx.dispose();
+    }
+  }
+
+  @Test
+  public void testDrawOnGraphics_ClippedPaintingIsSameAsFull() throws Exception {
+    final MindMapPanelConfig config = new MindMapPanelConfig();
+    config.setDrawBackground(false);
+    final MindMap map = makeThreeLevelMap();
+    final Dimension2D size = layout(map, config);
+
+    final int width = (int) Math.ceil(size.getWidth());
+    final int height = (int) Math.ceil(size.getHeight());
+    final BufferedImage expected = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final MMGraphics fullGfx = new MMGraphics2DWrapper(expected.createGraphics());
+    try {
+      MindMapPanel.drawOnGraphicsForConfiguration(fullGfx, config, map, false, null);
+    } finally {
+      fullGfx.dispose();
+    }
+
+    final AbstractElement rootElement = (AbstractElement) map.getRoot().getPayload();
+    final Rectangle[] clips = new Rectangle[]{
+      new Rectangle(0, 0, width / 3, height / 4),
+      new Rectangle(width / 2, height / 2, width / 2, height / 5),
+      new Rectangle(width - width / 4, height / 3, width / 4, 20),
+      new Rectangle(width / 3, height / 3, width / 3, height / 3)
+    };
+
+    for (final Rectangle clip : clips) {
+      final BufferedImage clipped = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      final Graphics2D g = clipped.createGraphics();
+      g.setClip(clip);
+      final MMGraphics clippedGfx = new MMGraphics2DWrapper(g);
+      try {
+        MindMapPanel.drawOnGraphicsForConfiguration(clippedGfx, config, map, false, null);
+      } finally {
+        clippedGfx.dispose();
+      }
+      for (int y = clip.y; y < clip.y + clip.height; y++) {
+        for (int x = clip.x; x < clip.x + clip.width; x++) {
+          assertEquals("Pixel " + x + ',' + y + " in " + clip, expected.getRGB(x, y), clipped.getRGB(x, y));
+        }
+      }
+    }
+
+    final Topic first = map.getRoot().getChildren().get(0);
+    final AbstractElement firstElement = (AbstractElement) first.getPayload();
+    final AbstractElement firstChildElement = (AbstractElement) first.getChildren().get(0).getPayload();
+    final List<AbstractElement> found = firstElement.findChildrenInArea(firstChildElement.getBounds(), firstElement.isLeftDirection());
+    assertTrue(found.contains(firstChildElement));
+    assertTrue(found.size() < first.getChildren().size());
+    assertTrue(rootElement.findChildrenInArea(new Rectangle2D.Double(-10000.0d, -10000.0d, 10.0d, 10.0d), false).isEmpty());
+  }
+
+  @Test
+  public void testSearchByPoint_SameAsCheckOfAllElements() throws Exception {
+    final MindMapPanelConfig config = new MindMapPanelConfig();
+    final MindMap map = makeThreeLevelMap();
+    final Topic collapsed = map.getRoot().getChildren().get(2).getChildren().get(3);
+    MindMapUtils.setCollapsed(collapsed, true);
+    final Dimension2D size = layout(map, config);
+
+    final List<AbstractElement> visible = new ArrayList<AbstractElement>();
+    for (final Topic t : map) {
+      if (!MindMapUtils.isHidden(t)) {
+        visible.add((AbstractElement) t.getPayload());
+      }
+    }
+    assertFalse(visible.contains(collapsed.getChildren().get(0).getPayload()));
+
+    final AbstractElement root = (AbstractElement) map.getRoot().getPayload();
+
+    for (int y = -20; y < size.getHeight() + 20; y += 3) {
+      for (int x = -20; x < size.getWidth() + 20; x += 7) {
+        final Point point = new Point(x, y);
+
+        AbstractElement expectedUnderPoint = null;
+        AbstractElement expectedNearest = null;
+        double minDistance = Double.MAX_VALUE;
+        for (final AbstractElement e : visible) {
+          if (e.getBounds().contains(point) || (e instanceof AbstractCollapsableElement && ((AbstractCollapsableElement) e).getCollapsatorArea().contains(x - e.getBounds().getX(), y - e.getBounds().getY()))) {
+            expectedUnderPoint = e;
+          }
+          final double distance = e.calcAverageDistanceToPoint(point);
+          if (distance < minDistance) {
+            minDistance = distance;
+            expectedNearest = e;
+          }
+        }
+
+        assertSame("Under point " + point, expectedUnderPoint, root.findForPoint(point));
+        assertSame("Nearest to point " + point, expectedNearest, root.findNearestOpenedTopicToPoint(null, point));
+      }
+    }
+
+    final Rectangle area = new Rectangle((int) size.getWidth() / 4, (int) size.getHeight() / 5, (int) size.getWidth() / 2, (int) size.getHeight() / 3);
+    final List<Topic> expectedSelected = new ArrayList<Topic>();
+    for (final AbstractElement e : visible) {
+      if (area.contains(e.getBounds())) {
+        expectedSelected.add(e.getModel());
+      }
+    }
+    assertFalse(expectedSelected.isEmpty());
+
+    final MouseSelectedArea selection = new MouseSelectedArea(area.getLocation());
+    selection.update(new MouseEvent(new JPanel(), MouseEvent.MOUSE_DRAGGED, 0L, 0, area.x + area.width, area.y + area.height, 1, false));
+    assertEquals(expectedSelected, selection.getAllSelectedElements(map));
+  }
+
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015-2018 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.igormaznitsa.mindmap.swing.panel.ui.gfx;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TextMeasurementCacheTest {
+
+  @Test
+  public void testDeriveFont() {
+    final Font base = new Font(Font.SANS_SERIF, Font.BOLD, 12);
+    final Font derived = TextMeasurementCache.deriveFont(base, 24.0f);
+    assertEquals(base.deriveFont(24.0f), derived);
+    assertSame(derived, TextMeasurementCache.deriveFont(new Font(Font.SANS_SERIF, Font.BOLD, 12), 24.0f));
+    assertNotSame(derived, TextMeasurementCache.deriveFont(base, 25.0f));
+  }
+
+  @Test
+  public void testMeasurementSameAsFontMetrics() {
+    final Graphics2D gfx = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB).createGraphics();
+    try {
+      gfx.setFont(new Font(Font.SERIF, Font.PLAIN, 20));
+      final Rectangle2D plain = TextMeasurementCache.getStringBounds(gfx, "Hello world");
+      assertEquals(gfx.getFontMetrics().getStringBounds("Hello world", gfx), plain);
+      assertEquals(gfx.getFontMetrics().getMaxAscent(), TextMeasurementCache.getMaxAscent(gfx), 0.0f);
+
+      plain.setRect(0.0d, 0.0d, 1.0d, 1.0d);
+      assertEquals(gfx.getFontMetrics().getStringBounds("Hello world", gfx), TextMeasurementCache.getStringBounds(gfx, "Hello world"));
+
+      gfx.setFont(new Font(Font.SERIF, Font.PLAIN, 40));
+      assertEquals(gfx.getFontMetrics().getStringBounds("Hello world", gfx), TextMeasurementCache.getStringBounds(gfx, "Hello world"));
+
+      gfx.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+      assertEquals(gfx.getFontMetrics().getStringBounds("Hello world", gfx), TextMeasurementCache.getStringBounds(gfx, "Hello world"));
+    } finally {
+      gfx.dispose();
+    }
+  }
+}
@@ -115,6 +115,27 @@ public class MindMapLink {
       flock.releaseLock();
     }
     
+    notifyPrimaryFileChanged(foj);
+  }
+
+  private void writeMindMap(final MindMap map) throws IOException {
+    final FileObject foj = getFile();
+    final FileLock flock = lock(foj);
+    try{
+      final OutputStream out  = foj.getOutputStream(flock);
+      try{
+        map.write(out);
+      }finally{
+        IOUtils.closeQuietly(out);
+      }
+    }finally{
+      flock.releaseLock();
+    }
+    
+    notifyPrimaryFileChanged(foj);
+  }
+
+  private static void notifyPrimaryFileChanged(final FileObject foj) throws IOException {
     final DataObject doj = DataObject.find(foj);
     if (doj!=null && doj instanceof MMDDataObject){
       LOGGER.info("Notify about change primary file");
@@ -141,7 +162,7 @@ public class MindMapLink {
 
   public synchronized void writeMindMap() throws IOException {
     if (this.model != null){
-      writeUTF8Text(this.model.packToString());
+      writeMindMap(this.model);
     }
   }
 
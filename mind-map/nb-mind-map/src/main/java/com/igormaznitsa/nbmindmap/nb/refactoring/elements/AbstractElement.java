@@ -79,7 +79,7 @@ public abstract class AbstractElement extends SimpleRefactoringElementImplementa
     try {
       final OutputStream out = fileObject.getOutputStream(lock);
       try {
-        IOUtils.write(map.packToString(), out, "UTF-8"); //NOI18N
+        map.write(out);
       }
       finally {
         IOUtils.closeQuietly(out);
@@ -18,14 +18,12 @@
  */
 package com.igormaznitsa.sciareto.ui;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -34,10 +32,9 @@ import javax.swing.SwingUtilities;
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import com.igormaznitsa.meta.annotation.MustNotContainNull;
-import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.MindMapLinkIndex;
 import com.igormaznitsa.mindmap.model.logger.Logger;
 import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
 import com.igormaznitsa.sciareto.Context;
@@ -152,6 +149,8 @@ public class FindUsagesPanel extends javax.swing.JPanel {
 
         int value = 0;
 
+        private final Set<File> mapsLinkingToFile = new HashSet<>();
+
         private void processFile(final NodeFileOrFolder file) {
           value++;
 
@@ -160,17 +159,8 @@ public class FindUsagesPanel extends javax.swing.JPanel {
           if (project != null) {
             final String extension = FilenameUtils.getExtension(f.getName()).toLowerCase(Locale.ENGLISH);
             if ("mmd".equals(extension)) { //NOI18N
-              Reader reader = null;
-              try {
-                reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8")); //NOI18N
-                final MindMap map = new MindMap(null, reader);
-                if (!MapUtils.findTopicsRelatedToFile(project.getFolder(), nodeFileToSearch, map).isEmpty()) {
-                  addFileIntoList(file);
-                }
-              } catch (Exception ex) {
-                LOGGER.error("Can't parse map", ex); //NOI18N
-              } finally {
-                IOUtils.closeQuietly(reader);
+              if (mapsLinkingToFile.contains(f.getAbsoluteFile())) {
+                addFileIntoList(file);
               }
             } else if (findEverywhere){
               try {
@@ -216,6 +206,16 @@ public class FindUsagesPanel extends javax.swing.JPanel {
 
         @Override
         public void run() {
+          for (final NodeProject p : scope) {
+            final MindMapLinkIndex index = p.getLinkIndex();
+            try {
+              index.update();
+            } catch (InterruptedException ex) {
+              return;
+            }
+            this.mapsLinkingToFile.addAll(index.findMapsLinkingTo(nodeFileToSearch));
+          }
+
           for (final NodeProject p : scope) {
             for (final NodeFileOrFolder f : p) {
               if (Thread.currentThread().isInterrupted()) {
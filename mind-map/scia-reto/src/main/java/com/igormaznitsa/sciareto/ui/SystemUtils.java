@@ -22,6 +22,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Level;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.MindMapBinaryCache;
+import com.igormaznitsa.mindmap.model.MindMapController;
 import com.igormaznitsa.mindmap.model.logger.Logger;
 import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
 
@@ -29,6 +33,8 @@ public final class SystemUtils {
   
   private static final Logger LOGGER = LoggerFactory.getLogger(SystemUtils.class);
 
+  private static final MindMapBinaryCache MIND_MAP_CACHE = new MindMapBinaryCache(new File(System.getProperty("user.home"), ".sciareto" + File.separatorChar + "mmdcache")); //NOI18N
+
   private SystemUtils(){
   }
 
@@ -80,4 +86,18 @@ public final class SystemUtils {
   public static void saveUTFText(@Nonnull final File file, @Nonnull final CharSequence text) throws IOException {
     org.apache.commons.io.FileUtils.write(file, text, "UTF-8",false); //NOI18N
   }
+
+  public static void saveMindMap(@Nonnull final File file, @Nonnull final MindMap map) throws IOException {
+    map.save(file);
+    try {
+      MIND_MAP_CACHE.put(file, map);
+    } catch (IOException ex) {
+      LOGGER.warn("Can't cache saved mind map : " + file); //NOI18N
+    }
+  }
+
+  @Nonnull
+  public static MindMap loadMindMap(@Nullable final MindMapController controller, @Nonnull final File file) throws IOException {
+    return MIND_MAP_CACHE.load(controller, file);
+  }
 }
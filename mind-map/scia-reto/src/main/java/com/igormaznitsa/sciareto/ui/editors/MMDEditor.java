@@ -43,6 +43,7 @@ import com.igormaznitsa.sciareto.Main;
 import com.igormaznitsa.sciareto.preferences.PreferencesManager;
 import com.igormaznitsa.sciareto.ui.DialogProviderManager;
 import com.igormaznitsa.sciareto.ui.FindTextScopeProvider;
+import com.igormaznitsa.sciareto.ui.SystemUtils;
 import com.igormaznitsa.sciareto.ui.UiUtils;
 import com.igormaznitsa.sciareto.ui.editors.mmeditors.ColorAttributePanel;
 import com.igormaznitsa.sciareto.ui.editors.mmeditors.FileEditPanel;
@@ -51,7 +52,6 @@ import com.igormaznitsa.sciareto.ui.misc.ColorChooserButton;
 import com.igormaznitsa.sciareto.ui.tabs.TabTitle;
 import com.igormaznitsa.sciareto.ui.tree.FileTransferable;
 import com.igormaznitsa.sciareto.ui.tree.NodeProject;
-import org.apache.commons.io.FileUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -68,7 +68,6 @@ import java.awt.geom.Rectangle2D;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -156,15 +155,6 @@ public final class MMDEditor extends AbstractEditor implements MindMapPanelContr
 
     this.mindMapPanel.setDropTarget(new DropTarget(this.mindMapPanel, this));
 
-    final MindMap map;
-    if (file == null || file.length() == 0L) {
-      map = new MindMap(this, true);
-    } else {
-      map = new MindMap(this, new StringReader(FileUtils.readFileToString(file, "UTF-8"))); //NOI18N
-    }
-
-    this.mindMapPanel.setModel(Assertions.assertNotNull(map), false);
-
     loadContent(file);
     this.currentModelState = this.mindMapPanel.getModel().packToString();
   }
@@ -264,7 +254,7 @@ public final class MMDEditor extends AbstractEditor implements MindMapPanelContr
     if (file == null || file.length() == 0L) {
       map = new MindMap(this, true);
     } else {
-      map = new MindMap(this, new StringReader(FileUtils.readFileToString(file, "UTF-8"))); //NOI18N
+      map = SystemUtils.loadMindMap(this, file);
     }
     this.mindMapPanel.setModel(Assertions.assertNotNull(map), false);
 
@@ -287,7 +277,7 @@ public final class MMDEditor extends AbstractEditor implements MindMapPanelContr
           return result;
         }
       }
-      FileUtils.write(file, this.mindMapPanel.getModel().write(new StringWriter(16384)).toString(), "UTF-8", false); //NOI18N
+      SystemUtils.saveMindMap(file, this.mindMapPanel.getModel());
       this.title.setChanged(false);
       result = true;
       this.undoStorage.setFlagThatSomeStateLost();
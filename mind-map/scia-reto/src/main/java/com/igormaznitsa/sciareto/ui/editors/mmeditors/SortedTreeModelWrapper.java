@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
@@ -37,6 +38,7 @@ public final class SortedTreeModelWrapper implements TreeModel, TreeModelListene
   private final MindMap model;
   
   private final Map<Object,List<Object>> sortedCache = new HashMap<>();
+  private final Map<Object,Map<Object,Integer>> positionCache = new HashMap<>();
   private final Comparator<Object> comparator;
   
   public SortedTreeModelWrapper(@Nonnull final MindMap model, @Nonnull final Comparator<Object> comparator){
@@ -70,12 +72,22 @@ public final class SortedTreeModelWrapper implements TreeModel, TreeModelListene
   @Override
   public void valueForPathChanged(@Nonnull final TreePath path, @Nonnull final Object newValue) {
     this.model.valueForPathChanged(path, newValue);
-    this.sortedCache.clear();
+    this.clear();
   }
 
   @Override
   public int getIndexOfChild(@Nonnull final Object parent, @Nonnull final Object child) {
-    return getChildrenFromCache(parent).indexOf(child);
+    Map<Object,Integer> positions = this.positionCache.get(parent);
+    if (positions == null) {
+      final List<Object> sorted = getChildrenFromCache(parent);
+      positions = new IdentityHashMap<>(sorted.size());
+      for (int i = 0; i < sorted.size(); i++) {
+        positions.put(sorted.get(i), i);
+      }
+      this.positionCache.put(parent, positions);
+    }
+    final Integer result = positions.get(child);
+    return result == null ? -1 : result;
   }
 
   @Override
@@ -90,6 +102,7 @@ public final class SortedTreeModelWrapper implements TreeModel, TreeModelListene
   
   private void clear(){
     this.sortedCache.clear();
+    this.positionCache.clear();
   }
   
   @Nonnull
@@ -30,9 +30,13 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -45,8 +49,10 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import com.google.common.base.Function;
+import com.igormaznitsa.meta.annotation.MustNotContainNull;
 import com.igormaznitsa.mindmap.model.MMapURI;
 import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.MindMapBulkLoader;
 import com.igormaznitsa.mindmap.model.logger.Logger;
 import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
 import com.igormaznitsa.sciareto.ui.MapUtils;
@@ -165,23 +171,51 @@ public final class FileLinkGraphPanel extends javax.swing.JPanel {
 
     final Set<File> mapFilesInProcessing = new HashSet<File>();
 
+    final Map<File, MindMap> loadedMaps = new ConcurrentHashMap<File, MindMap>();
+
     if (startMindMap != null) {
-      addMindMapAndFillByItsLinks(null, result, projectFolder, startMindMap, edgeCounter, mapFilesInProcessing);
+      addMindMapAndFillByItsLinks(null, result, projectFolder, startMindMap, edgeCounter, mapFilesInProcessing, loadedMaps);
     } else if (projectFolder != null) {
+      final List<File> mmdFiles = new ArrayList<File>();
       final Iterator<File> iterator = FileUtils.iterateFiles(projectFolder, new String[]{"mmd"}, true); //NOI18N
       while (iterator.hasNext()) {
         final File mmdFile = iterator.next();
         if (mmdFile.isFile()) {
-          addMindMapAndFillByItsLinks(null, result, projectFolder, mmdFile, edgeCounter, mapFilesInProcessing);
+          mmdFiles.add(mmdFile);
         }
       }
+
+      preloadMindMaps(mmdFiles, loadedMaps);
+
+      for (final File mmdFile : mmdFiles) {
+        addMindMapAndFillByItsLinks(null, result, projectFolder, mmdFile, edgeCounter, mapFilesInProcessing, loadedMaps);
+      }
     }
 
     return result;
   }
 
+  private static void preloadMindMaps(@Nonnull @MustNotContainNull final List<File> files, @Nonnull final Map<File, MindMap> loadedMaps) {
+    try {
+      MindMapBulkLoader.getDefault().loadAndWait(files, new MindMapBulkLoader.Callback() {
+        @Override
+        public void onLoaded(@Nonnull final File file, @Nonnull final MindMap map) {
+          loadedMaps.put(file, map);
+        }
+
+        @Override
+        public void onError(@Nonnull final File file, @Nonnull final Exception error) {
+          // the file will be loaded again during graph building and the error will be logged there
+        }
+      });
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   @Nullable
-  private static FileVertex addMindMapAndFillByItsLinks(@Nullable final FileVertex parent, @Nonnull final @Nullable Graph<FileVertex, Number> graph, @Nullable final File projectFolder, @Nonnull final File mindMapFile, @Nonnull final AtomicInteger edgeCounter, @Nonnull Set<File> mapFilesInProcessing) {
+  private static FileVertex addMindMapAndFillByItsLinks(@Nullable final FileVertex parent, @Nonnull final @Nullable Graph<FileVertex, Number> graph, @Nullable final File projectFolder, @Nonnull final File mindMapFile, @Nonnull final AtomicInteger edgeCounter, @Nonnull Set<File> mapFilesInProcessing, @Nonnull final Map<File, MindMap> loadedMaps) {
 
     MindMap map;
 
@@ -190,7 +224,11 @@ public final class FileLinkGraphPanel extends javax.swing.JPanel {
     try {
 
       thisVertex = new FileVertex(mindMapFile, FileVertexType.MINDMAP);
-      map = new MindMap(null, new StringReader(FileUtils.readFileToString(mindMapFile, "UTF-8"))); //NOI18N
+      map = loadedMaps.get(mindMapFile);
+      if (map == null) {
+        map = new MindMap(null, new StringReader(FileUtils.readFileToString(mindMapFile, "UTF-8"))); //NOI18N
+        loadedMaps.put(mindMapFile, map);
+      }
 
       if (parent != null) {
         for (final MMapURI fileUri : MapUtils.extractAllFileLinks(map)) {
@@ -230,7 +268,7 @@ public final class FileLinkGraphPanel extends javax.swing.JPanel {
             if (convertedFile.equals(mindMapFile)) {
               that = thisVertex;
             } else {
-              that = addMindMapAndFillByItsLinks(thisVertex, graph, projectFolder, convertedFile, edgeCounter, mapFilesInProcessing);
+              that = addMindMapAndFillByItsLinks(thisVertex, graph, projectFolder, convertedFile, edgeCounter, mapFilesInProcessing, loadedMaps);
             }
           } else {
             that = new FileVertex(convertedFile, FileVertexType.DOCUMENT);
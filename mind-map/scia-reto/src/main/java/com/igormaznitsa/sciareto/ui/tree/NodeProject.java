@@ -20,10 +20,12 @@ package com.igormaznitsa.sciareto.ui.tree;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 import com.igormaznitsa.meta.common.utils.Assertions;
 import javax.annotation.Nullable;
@@ -31,11 +33,12 @@ import org.apache.commons.io.FileUtils;
 import com.igormaznitsa.meta.annotation.MustNotContainNull;
 import com.igormaznitsa.mindmap.model.MMapURI;
 import com.igormaznitsa.mindmap.model.MindMap;
+import com.igormaznitsa.mindmap.model.MindMapBulkLoader;
+import com.igormaznitsa.mindmap.model.MindMapLinkIndex;
 import com.igormaznitsa.mindmap.model.logger.Logger;
 import com.igormaznitsa.mindmap.model.logger.LoggerFactory;
 import com.igormaznitsa.sciareto.Context;
 import com.igormaznitsa.sciareto.preferences.PrefUtils;
-import com.igormaznitsa.sciareto.ui.MapUtils;
 import com.igormaznitsa.sciareto.ui.SystemUtils;
 import java.util.Collections;
 
@@ -45,6 +48,7 @@ public class NodeProject extends NodeFileOrFolder {
 
   private volatile File folder = null;
   private volatile boolean knowledgeFolderPresented;
+  private MindMapLinkIndex linkIndex;
   
   public NodeProject(@Nonnull final NodeProjectGroup group, @Nonnull final File folder) throws IOException {
     super(group, true, folder.getName(), PrefUtils.isShowHiddenFilesAndFolders(), !Files.isWritable(folder.toPath()));
@@ -93,46 +97,54 @@ public class NodeProject extends NodeFileOrFolder {
   @Nonnull
   @MustNotContainNull
   public List<File> findAffectedFiles(@Nonnull final File changedFile) {
-    final File baseFolder = makeFileForNode();
-    final boolean folder = changedFile.isDirectory();
-    
-    final List<File> result = new ArrayList<>();
-    for (final File mindMapFile : FileUtils.listFiles(baseFolder, new String[]{"mmd", "MMD"}, true)) { //NOI18N
-      try {
-        final MindMap map = new MindMap(null, new StringReader(FileUtils.readFileToString(mindMapFile, "UTF-8"))); //NOI18N
-        if (!MapUtils.findTopicsRelatedToFile(baseFolder, changedFile, map).isEmpty()) {
-          result.add(mindMapFile);
-        }
-      } catch (IOException ex) {
-        LOGGER.error("Can't process mind map file", ex); //NOI18N
-      }
+    final MindMapLinkIndex index = getLinkIndex();
+    try {
+      index.update();
+    } catch (InterruptedException ex) {
+      LOGGER.warn("Update of link index has been interrupted"); //NOI18N
+      Thread.currentThread().interrupt();
+      return Collections.emptyList();
     }
+
+    final List<File> result = new ArrayList<>(index.findMapsLinkingTo(changedFile));
+    Collections.sort(result);
     return result;
   }
 
+  /**
+   * Get index of links in mind maps of the project. The index is persisted in
+   * the user home folder and should be updated before use.
+   *
+   * @return link index for the current project folder
+   */
+  @Nonnull
+  public synchronized MindMapLinkIndex getLinkIndex() {
+    final File projectFolder = this.folder;
+    if (this.linkIndex == null || !this.linkIndex.getProjectFolder().equals(projectFolder)) {
+      final File indexFolder = new File(System.getProperty("user.home"), ".sciareto" + File.separatorChar + "linkindex"); //NOI18N
+      final String indexName = projectFolder.getName() + '_' + Integer.toHexString(projectFolder.getAbsolutePath().hashCode()) + ".idx"; //NOI18N
+      this.linkIndex = new MindMapLinkIndex(projectFolder, new File(indexFolder, indexName));
+      this.linkIndex.load();
+    }
+    return this.linkIndex;
+  }
+
   @Nonnull
   @MustNotContainNull
   public List<File> deleteAllLinksToFile(@Nonnull @MustNotContainNull final List<File> listOfFilesToProcess, @Nonnull final File fileToRemove) {
-    final List<File> affectedFiles = new ArrayList<>();
-
     final File baseFolder = makeFileForNode();
     final MMapURI fileURI = new MMapURI(baseFolder, fileToRemove, null);
 
-    for (final File file : listOfFilesToProcess) {
-      if (file.isFile()) {
-        try {
-          final MindMap map = new MindMap(null, new StringReader(FileUtils.readFileToString(file, "UTF-8"))); //NOI18N
-          if (map.deleteAllLinksToFile(baseFolder, fileURI)) {
-            SystemUtils.saveUTFText(file, map.packToString());
-            affectedFiles.add(file);
-          }
-        } catch (IOException ex) {
-          LOGGER.error("Can't process mind map file", ex); //NOI18N
+    return processMindMaps(listOfFilesToProcess, new MindMapProcessor() {
+      @Override
+      public boolean process(@Nonnull final File file, @Nonnull final MindMap map) throws IOException {
+        if (map.deleteAllLinksToFile(baseFolder, fileURI)) {
+          SystemUtils.saveMindMap(file, map);
+          return true;
         }
+        return false;
       }
-    }
-
-    return affectedFiles;
+    });
   }
 
   @Override
@@ -160,26 +172,72 @@ public class NodeProject extends NodeFileOrFolder {
   @Nonnull
   @MustNotContainNull
   public List<File> replaceAllLinksToFile(@Nonnull @MustNotContainNull final List<File> listOfFilesToProcess, @Nonnull final File oldFile, @Nonnull final File newFile) {
-    final List<File> affectedFiles = new ArrayList<>();
-
     final File baseFolder = makeFileForNode();
     final MMapURI oldFileURI = new MMapURI(baseFolder, oldFile, null);
     final MMapURI newFileURI = new MMapURI(baseFolder, newFile, null);
 
-    for (final File file : listOfFilesToProcess) {
-      if (file.isFile()) {
-        try {
-          final MindMap map = new MindMap(null, new StringReader(FileUtils.readFileToString(file, "UTF-8"))); //NOI18N
-          if (map.replaceAllLinksToFile(baseFolder, oldFileURI, newFileURI)) {
-            SystemUtils.saveUTFText(file, map.packToString());
-            affectedFiles.add(file);
-          }
-        } catch (IOException ex) {
-          LOGGER.error("Can't process mind map file", ex); //NOI18N
+    return processMindMaps(listOfFilesToProcess, new MindMapProcessor() {
+      @Override
+      public boolean process(@Nonnull final File file, @Nonnull final MindMap map) throws IOException {
+        if (map.replaceAllLinksToFile(baseFolder, oldFileURI, newFileURI)) {
+          SystemUtils.saveMindMap(file, map);
+          return true;
         }
+        return false;
+      }
+    });
+  }
+
+  private interface MindMapProcessor {
+
+    boolean process(@Nonnull File file, @Nonnull MindMap map) throws IOException;
+  }
+
+  /**
+   * Load mind map files in parallel and process them.
+   *
+   * @param files files to be processed, non-file items are ignored
+   * @param processor processor to be called for each loaded map, it is called
+   * concurrently from worker threads
+   * @return files for which processor returned true, in the same order as in
+   * the source collection
+   */
+  @Nonnull
+  @MustNotContainNull
+  private static List<File> processMindMaps(@Nonnull @MustNotContainNull final Collection<File> files, @Nonnull final MindMapProcessor processor) {
+    final List<File> filesToLoad = new ArrayList<>(files.size());
+    for (final File f : files) {
+      if (f.isFile()) {
+        filesToLoad.add(f);
       }
     }
 
-    return affectedFiles;
+    final Set<File> affected = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+    try {
+      MindMapBulkLoader.getDefault().loadAndWait(filesToLoad, new MindMapBulkLoader.Callback() {
+        @Override
+        public void onLoaded(@Nonnull final File file, @Nonnull final MindMap map) throws Exception {
+          if (processor.process(file, map)) {
+            affected.add(file);
+          }
+        }
+
+        @Override
+        public void onError(@Nonnull final File file, @Nonnull final Exception error) {
+          LOGGER.error("Can't process mind map file : " + file, error); //NOI18N
+        }
+      });
+    } catch (InterruptedException ex) {
+      LOGGER.warn("Processing of mind maps has been interrupted"); //NOI18N
+      Thread.currentThread().interrupt();
+    }
+
+    final List<File> result = new ArrayList<>(affected.size());
+    for (final File f : filesToLoad) {
+      if (affected.contains(f)) {
+        result.add(f);
+      }
+    }
+    return result;
   }
 }